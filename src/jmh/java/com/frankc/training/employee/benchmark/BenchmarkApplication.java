@@ -0,0 +1,89 @@
+package com.frankc.training.employee.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.frankc.training.employee.RestEmployeeApplication;
+import com.frankc.training.employee.entities.Department;
+import com.frankc.training.employee.entities.Employee;
+import com.frankc.training.employee.entities.Task;
+import com.frankc.training.employee.services.DepartmentService;
+import com.frankc.training.employee.services.EmployeeService;
+
+/**
+ * Starts the application, without a web server, against embedded Mongo
+ * or the embedded store, and seeds it with data for the benchmarks.
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static final String MONGO = "mongo";
+    static final String EMBEDDED_STORE = "embedded-store";
+
+    static ConfigurableApplicationContext start() {
+        return start(MONGO);
+    }
+
+    /**
+     * @param backend MONGO, or EMBEDDED_STORE for log files in a new
+     *                temporary directory
+     * @param properties extra "name=value" properties for the benchmark
+     */
+    static ConfigurableApplicationContext start(String backend,
+                                                String... properties) {
+        SpringApplicationBuilder builder =
+                new SpringApplicationBuilder(RestEmployeeApplication.class)
+                            .web(WebApplicationType.NONE)
+                            .properties("logging.level.com.frankc=WARN")
+                            .properties(properties);
+
+        if (EMBEDDED_STORE.equals(backend)) {
+            try {
+                builder.profiles(EMBEDDED_STORE)
+                       .properties("store.directory=" + Files.createTempDirectory(
+                                                        "benchmark-store"));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        return builder.run();
+    }
+
+    static Department seedDepartment(ConfigurableApplicationContext context,
+                                     String name) {
+        Department department = new Department();
+        department.setName(name);
+        return context.getBean(DepartmentService.class)
+                      .saveDepartment(department);
+    }
+
+    static Employee newEmployee(String departmentId, int n) {
+        Task task = new Task();
+        task.setTitle("Task " + n);
+        task.setDescription("Benchmark task number " + n);
+
+        Employee employee = new Employee();
+        employee.setFullName("Employee " + n);
+        employee.setDepartmentId(departmentId);
+        employee.setCurrentTask(task);
+        return employee;
+    }
+
+    static Employee seedEmployees(ConfigurableApplicationContext context,
+                                  String departmentId, int count) {
+        EmployeeService employeeService = context.getBean(EmployeeService.class);
+
+        Employee last = null;
+        for (int i = 0; i < count; ++i) {
+            last = employeeService.saveEmployee(newEmployee(departmentId, i));
+        }
+        return last;
+    }
+}
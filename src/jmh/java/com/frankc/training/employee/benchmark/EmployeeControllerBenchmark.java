@@ -0,0 +1,97 @@
+package com.frankc.training.employee.benchmark;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.frankc.training.employee.controllers.EmployeeController;
+
+/**
+ * Full request handling through EmployeeController using MockMvc, so
+ * request mapping, (de)serialization and the service layer are measured
+ * without any network.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EmployeeControllerBenchmark {
+
+    @Param({"1000"})
+    public int employeeCount;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+
+    private String employeeId;
+    private byte[] newEmployeeJson;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.start();
+        ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+
+        mockMvc = MockMvcBuilders
+                    .standaloneSetup(context.getBean(EmployeeController.class))
+                    .setMessageConverters(
+                        new MappingJackson2HttpMessageConverter(objectMapper))
+                    .build();
+
+        String departmentId = BenchmarkApplication.seedDepartment(
+                                    context, "ControllerBenchmark").getId();
+        employeeId = BenchmarkApplication.seedEmployees(
+                                    context, departmentId, employeeCount).getId();
+        newEmployeeJson = objectMapper.writeValueAsBytes(
+                                BenchmarkApplication.newEmployee(departmentId, 0));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MvcResult getEmployee() throws Exception {
+        return mockMvc.perform(get(EmployeeController.BASE_PATH + employeeId))
+                      .andReturn();
+    }
+
+    @Benchmark
+    public MvcResult getEmployeesPage() throws Exception {
+        return mockMvc.perform(get(EmployeeController.BASE_PATH)
+                                   .param("size", "100"))
+                      .andReturn();
+    }
+
+    @Benchmark
+    public MvcResult createEmployee() throws Exception {
+        return mockMvc.perform(post(EmployeeController.BASE_PATH)
+                                   .contentType(MediaType.APPLICATION_JSON)
+                                   .content(newEmployeeJson))
+                      .andReturn();
+    }
+}
@@ -0,0 +1,123 @@
+package com.frankc.training.employee.benchmark;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.frankc.training.employee.entities.Employee;
+import com.frankc.training.employee.index.OffHeapEmployeeTable;
+
+/**
+ * A replica of a large directory, held as Employee objects in a HashMap
+ * or in an OffHeapEmployeeTable.
+ *
+ * fullCollection times a full garbage collection with the replica live,
+ * standing in for the old generation collections whose pauses grow with
+ * the number of live objects; the heap replica is millions of them, the
+ * off-heap one a handful. findEmployee shows the price: an off-heap
+ * lookup decodes the Employee every time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-XX:MaxDirectMemorySize=4g"})
+@State(Scope.Benchmark)
+public class EmployeeIndexBenchmark {
+
+    private static final int DEPARTMENTS = 100;
+
+    @Param({"1000000"})
+    public int employeeCount;
+
+    @Param({"heap", "off-heap"})
+    public String replica;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Map<String, Employee> heap;
+    private OffHeapEmployeeTable offHeap;
+
+    private String[] ids;
+    private String[] departmentIds;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        departmentIds = new String[DEPARTMENTS];
+        for (int i = 0; i < DEPARTMENTS; ++i) {
+            departmentIds[i] = new ObjectId().toHexString();
+        }
+
+        ids = new String[employeeCount];
+        List<Employee> employees = new ArrayList<>(employeeCount);
+        for (int i = 0; i < employeeCount; ++i) {
+            Employee employee = BenchmarkApplication.newEmployee(
+                    departmentIds[random.nextInt(DEPARTMENTS)], i);
+            employee.setId(new ObjectId().toHexString());
+            employee.setVersion(0L);
+            ids[i] = employee.getId();
+            employees.add(employee);
+        }
+
+        if ("heap".equals(replica)) {
+            heap = new HashMap<>();
+            for (Employee employee : employees) {
+                heap.put(employee.getId(), employee);
+            }
+        } else {
+            offHeap = new OffHeapEmployeeTable();
+            for (Employee employee : employees) {
+                offHeap.put(employee.getId(), employee.getDepartmentId(), true,
+                            objectMapper.writeValueAsBytes(employee));
+            }
+        }
+
+        // Shuffle so lookups don't follow insertion order
+        for (int i = ids.length - 1; i > 0; --i) {
+            int j = random.nextInt(i + 1);
+            String id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void fullCollection() {
+        System.gc();
+    }
+
+    @Benchmark
+    public Employee findEmployee() throws IOException {
+        String id = ids[next++ % ids.length];
+
+        if (heap != null) {
+            return heap.get(id);
+        }
+        ByteBuffer document = offHeap.get(id);
+        return objectMapper.readValue(new ByteBufferBackedInputStream(document),
+                                      Employee.class);
+    }
+}
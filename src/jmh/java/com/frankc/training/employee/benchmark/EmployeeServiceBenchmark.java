@@ -0,0 +1,100 @@
+package com.frankc.training.employee.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Slice;
+
+import com.frankc.training.employee.cache.EmployeeCache;
+import com.frankc.training.employee.entities.Employee;
+import com.frankc.training.employee.services.EmployeeService;
+
+/**
+ * EmployeeService round trips against embedded Mongo and against the
+ * embedded store.
+ *
+ * The employee index is turned off, as findEmployee would otherwise be
+ * answered by it whether or not the EmployeeCache holds the Employee;
+ * EmployeeIndexBenchmark measures the index.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EmployeeServiceBenchmark {
+
+    @Param({"1000"})
+    public int employeeCount;
+
+    @Param({BenchmarkApplication.MONGO, BenchmarkApplication.EMBEDDED_STORE})
+    public String backend;
+
+    private ConfigurableApplicationContext context;
+    private EmployeeService employeeService;
+    private EmployeeCache employeeCache;
+
+    private String departmentId;
+    private String employeeId;
+    private int created;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(backend,
+                                             "employee.index.enabled=false");
+        employeeService = context.getBean(EmployeeService.class);
+        employeeCache = context.getBean(EmployeeCache.class);
+
+        departmentId = BenchmarkApplication.seedDepartment(
+                            context, "ServiceBenchmark").getId();
+        employeeId = BenchmarkApplication.seedEmployees(
+                            context, departmentId, employeeCount).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Employee saveEmployee() {
+        return employeeService.saveEmployee(
+                BenchmarkApplication.newEmployee(departmentId, created++));
+    }
+
+    @Benchmark
+    public Employee findEmployeeCached() {
+        return employeeService.findEmployee(employeeId);
+    }
+
+    @Benchmark
+    public Employee findEmployeeUncached() {
+        employeeCache.invalidate(employeeId);
+        return employeeService.findEmployee(employeeId);
+    }
+
+    @Benchmark
+    public List<Employee> findAllEmployees() {
+        return employeeService.findAllEmployees();
+    }
+
+    @Benchmark
+    public Slice<Employee> findEmployeesFirstPage() {
+        return employeeService.findEmployeesPage(null, 100);
+    }
+}
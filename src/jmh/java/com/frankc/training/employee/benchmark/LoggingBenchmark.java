@@ -0,0 +1,74 @@
+package com.frankc.training.employee.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.helpers.NOPAppender;
+
+import com.frankc.training.employee.entities.Employee;
+
+/**
+ * Cost of the per-request log statements, at the default INFO level.
+ *
+ * Compares the old style (string concatenation at INFO, always built and
+ * logged), concatenation at a disabled level (still built) and the
+ * parameterized debug logging now used. Run with -prof gc to see the
+ * allocation per operation:
+ *   -Djmh.args="LoggingBenchmark -prof gc"
+ *
+ * Events go to a no-op appender so only the logging call is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoggingBenchmark {
+
+    private Logger logger;
+    private Employee employee;
+
+    @Setup
+    public void setUp() {
+        NOPAppender<ILoggingEvent> appender = new NOPAppender<>();
+        appender.start();
+
+        logger = (Logger) LoggerFactory.getLogger(LoggingBenchmark.class);
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+
+        employee = BenchmarkApplication.newEmployee("5c5d5a2b9f1e4a3b2c1d0e9f", 1);
+        employee.setId("5c5d5a2b9f1e4a3b2c1d0f00");
+    }
+
+    @Benchmark
+    public void concatenatedInfo() {
+        logger.info("Found employee: " + employee);
+    }
+
+    @Benchmark
+    public void concatenatedDebug() {
+        logger.debug("Found employee: " + employee);
+    }
+
+    @Benchmark
+    public void parameterizedDebug() {
+        logger.debug("Found employee: {}", employee);
+    }
+}
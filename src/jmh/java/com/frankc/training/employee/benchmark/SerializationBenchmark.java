@@ -0,0 +1,87 @@
+package com.frankc.training.employee.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.frankc.training.employee.entities.Department;
+import com.frankc.training.employee.entities.Employee;
+import com.frankc.training.employee.entities.Task;
+
+/**
+ * Jackson serialization and deserialization of the entities.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Employee employee;
+    private Department department;
+    private Task task;
+
+    private byte[] employeeJson;
+    private byte[] departmentJson;
+    private byte[] taskJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        employee = BenchmarkApplication.newEmployee("5c5d5a2b9f1e4a3b2c1d0e9f", 1);
+        employee.setId("5c5d5a2b9f1e4a3b2c1d0f00");
+        task = employee.getCurrentTask();
+
+        department = new Department();
+        department.setId("5c5d5a2b9f1e4a3b2c1d0e9f");
+        department.setName("Benchmarking");
+
+        employeeJson = objectMapper.writeValueAsBytes(employee);
+        departmentJson = objectMapper.writeValueAsBytes(department);
+        taskJson = objectMapper.writeValueAsBytes(task);
+    }
+
+    @Benchmark
+    public byte[] serializeEmployee() throws IOException {
+        return objectMapper.writeValueAsBytes(employee);
+    }
+
+    @Benchmark
+    public Employee deserializeEmployee() throws IOException {
+        return objectMapper.readValue(employeeJson, Employee.class);
+    }
+
+    @Benchmark
+    public byte[] serializeDepartment() throws IOException {
+        return objectMapper.writeValueAsBytes(department);
+    }
+
+    @Benchmark
+    public Department deserializeDepartment() throws IOException {
+        return objectMapper.readValue(departmentJson, Department.class);
+    }
+
+    @Benchmark
+    public byte[] serializeTask() throws IOException {
+        return objectMapper.writeValueAsBytes(task);
+    }
+
+    @Benchmark
+    public Task deserializeTask() throws IOException {
+        return objectMapper.readValue(taskJson, Task.class);
+    }
+}
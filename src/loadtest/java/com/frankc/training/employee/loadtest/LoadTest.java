@@ -0,0 +1,314 @@
+package com.frankc.training.employee.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.frankc.training.employee.RestEmployeeApplication;
+import com.frankc.training.employee.controllers.DepartmentController;
+import com.frankc.training.employee.controllers.EmployeeController;
+import com.frankc.training.employee.entities.Department;
+import com.frankc.training.employee.entities.Employee;
+import com.frankc.training.employee.entities.Task;
+import com.frankc.training.employee.util.VirtualThreads;
+
+/**
+ * HTTP load generator for the employee and department endpoints.
+ *
+ * Run with:
+ *   mvn -P loadtest test-compile exec:exec [-Dloadtest.args="--threads=32 ..."]
+ *
+ * Compare thread modes with ThreadModeComparison.
+ *
+ * Latencies are recorded per operation in HdrHistogram recorders, in
+ * microseconds, and the summary is written as JSON to the output file.
+ */
+public class LoadTest {
+
+    private final LoadTestOptions options;
+    private final RestTemplate restTemplate;
+    private final String baseUrl;
+    private final String taskDescription;
+
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+    private List<String> departmentIds = new ArrayList<>();
+    private List<String> employeeIds = new ArrayList<>();
+
+    public LoadTest(final LoadTestOptions options, final String baseUrl) {
+        this.options = options;
+        this.baseUrl = baseUrl;
+        this.restTemplate = new RestTemplate();
+        this.restTemplate.setErrorHandler(new DefaultResponseErrorHandler() {
+            @Override
+            public boolean hasError(final ClientHttpResponse response) {
+                return false;
+            }
+        });
+
+        StringBuilder description = new StringBuilder();
+        while (description.length() < options.getPayloadSize()) {
+            description.append('x');
+        }
+        this.taskDescription = description.toString();
+
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder(3));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    public static void main(final String[] args) throws Exception {
+        runAndReport(LoadTestOptions.parse(args));
+    }
+
+    /**
+     * Start the application if needed, seed it, apply the load and write
+     * the results to the output file.
+     *
+     * @return the results as written
+     */
+    static Map<String, Object> runAndReport(final LoadTestOptions options)
+                                                        throws Exception {
+        // HttpURLConnection only keeps this many idle connections per host
+        System.setProperty("http.maxConnections",
+                           String.valueOf(options.getThreads()));
+
+        ConfigurableApplicationContext context = null;
+        String baseUrl = options.getBaseUrl();
+        if (baseUrl == null) {
+            context = new SpringApplicationBuilder(RestEmployeeApplication.class)
+                            .profiles(options.getProfiles())
+                            .properties("server.port=0",
+                                        "logging.level.com.frankc=WARN")
+                            .run();
+            baseUrl = "http://localhost:"
+                      + context.getEnvironment().getProperty("local.server.port");
+        }
+
+        try {
+            LoadTest loadTest = new LoadTest(options, baseUrl);
+            loadTest.seed();
+            Map<String, Object> result = loadTest.run();
+
+            File output = new File(options.getOutput());
+            if (output.getParentFile() != null) {
+                output.getParentFile().mkdirs();
+            }
+            new ObjectMapper().writerWithDefaultPrettyPrinter()
+                              .writeValue(output, result);
+            System.out.println("Results written to " + output.getAbsolutePath());
+            return result;
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    void seed() {
+        String runId = UUID.randomUUID().toString();
+        for (int i = 0; i < options.getDepartments(); ++i) {
+            Department department = new Department();
+            department.setName("loadtest-" + runId + "-" + i);
+            departmentIds.add(restTemplate.postForObject(
+                    departmentsUrl(), department, Department.class).getId());
+        }
+
+        for (int i = 0; i < options.getEmployees(); ++i) {
+            employeeIds.add(restTemplate.postForObject(
+                    employeesUrl(), newEmployee(), Employee.class).getId());
+        }
+    }
+
+    Map<String, Object> run() throws InterruptedException {
+        ExecutorService workers = options.isVirtualClients()
+                ? VirtualThreads.newExecutor("loadtest-client-")
+                : Executors.newFixedThreadPool(options.getThreads());
+
+        long warmupEnd = System.nanoTime()
+                         + TimeUnit.SECONDS.toNanos(options.getWarmupSeconds());
+        long end = warmupEnd
+                   + TimeUnit.SECONDS.toNanos(options.getDurationSeconds());
+
+        for (int i = 0; i < options.getThreads(); ++i) {
+            workers.execute(() -> {
+                while (System.nanoTime() < end) {
+                    execute(Operation.next(options.getReadRatio()));
+                }
+            });
+        }
+
+        TimeUnit.NANOSECONDS.sleep(warmupEnd - System.nanoTime());
+        Map<Operation, Long> warmupErrors = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            recorders.get(operation).reset();
+            warmupErrors.put(operation, errors.get(operation).sum());
+        }
+        long measureStart = System.nanoTime();
+
+        workers.shutdown();
+        workers.awaitTermination(options.getDurationSeconds() + 60L,
+                                 TimeUnit.SECONDS);
+        double seconds = (System.nanoTime() - measureStart) / 1e9;
+
+        return report(seconds, warmupErrors);
+    }
+
+    private void execute(final Operation operation) {
+        long start = System.nanoTime();
+        boolean ok;
+        try {
+            ok = send(operation).getStatusCode().is2xxSuccessful();
+        } catch (RestClientException ex) {
+            ok = false;
+        }
+        recorders.get(operation).recordValue(
+                TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        if (!ok) {
+            errors.get(operation).increment();
+        }
+    }
+
+    private ResponseEntity<String> send(final Operation operation) {
+        switch (operation) {
+            case GET_EMPLOYEE:
+                return restTemplate.getForEntity(
+                        employeesUrl() + random(employeeIds), String.class);
+            case LIST_EMPLOYEES:
+                return restTemplate.getForEntity(
+                        employeesUrl() + "?size=100", String.class);
+            case GET_DEPARTMENT:
+                return restTemplate.getForEntity(
+                        departmentsUrl() + random(departmentIds), String.class);
+            case LIST_DEPARTMENTS:
+                return restTemplate.getForEntity(departmentsUrl(), String.class);
+            case CREATE_EMPLOYEE:
+                return restTemplate.postForEntity(
+                        employeesUrl(), newEmployee(), String.class);
+            case UPDATE_EMPLOYEE:
+                return restTemplate.exchange(
+                        employeesUrl() + random(employeeIds), HttpMethod.PUT,
+                        new HttpEntity<>(newEmployee()), String.class);
+            case CREATE_DEPARTMENT:
+                Department department = new Department();
+                department.setName("loadtest-" + UUID.randomUUID());
+                return restTemplate.postForEntity(
+                        departmentsUrl(), department, String.class);
+            default:
+                throw new IllegalArgumentException("Unknown operation " + operation);
+        }
+    }
+
+    private Map<String, Object> report(final double seconds,
+                                       final Map<Operation, Long> warmupErrors) {
+        Histogram total = null;
+        long totalErrors = 0;
+        Map<String, Object> operations = new LinkedHashMap<>();
+
+        System.out.println(String.format("%-18s %10s %8s %10s %10s %10s %10s",
+                "operation", "count", "errors", "req/s",
+                "p50(us)", "p99(us)", "p99.9(us)"));
+
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = recorders.get(operation).getIntervalHistogram();
+            long operationErrors = errors.get(operation).sum()
+                                   - warmupErrors.get(operation);
+
+            if (total == null) {
+                total = histogram.copy();
+            } else {
+                total.add(histogram);
+            }
+            totalErrors += operationErrors;
+
+            operations.put(operation.name(),
+                           summary(histogram, operationErrors, seconds));
+            print(operation.name(), histogram, operationErrors, seconds);
+        }
+        print("TOTAL", total, totalErrors, seconds);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("timestamp", Instant.now().toString());
+        result.put("options", options.toMap());
+        result.put("measuredSeconds", seconds);
+        result.put("total", summary(total, totalErrors, seconds));
+        result.put("operations", operations);
+        return result;
+    }
+
+    private static Map<String, Object> summary(final Histogram histogram,
+                                               final long errors,
+                                               final double seconds) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", histogram.getTotalCount());
+        summary.put("errors", errors);
+        summary.put("throughput", histogram.getTotalCount() / seconds);
+        summary.put("meanMicros", histogram.getMean());
+        summary.put("p50Micros", histogram.getValueAtPercentile(50));
+        summary.put("p90Micros", histogram.getValueAtPercentile(90));
+        summary.put("p99Micros", histogram.getValueAtPercentile(99));
+        summary.put("p999Micros", histogram.getValueAtPercentile(99.9));
+        summary.put("maxMicros", histogram.getMaxValue());
+        return summary;
+    }
+
+    private static void print(final String name, final Histogram histogram,
+                              final long errors, final double seconds) {
+        System.out.println(String.format("%-18s %10d %8d %10.1f %10d %10d %10d",
+                name, histogram.getTotalCount(), errors,
+                histogram.getTotalCount() / seconds,
+                histogram.getValueAtPercentile(50),
+                histogram.getValueAtPercentile(99),
+                histogram.getValueAtPercentile(99.9)));
+    }
+
+    private Employee newEmployee() {
+        Task task = new Task();
+        task.setTitle("Load test");
+        task.setDescription(taskDescription);
+
+        Employee employee = new Employee();
+        employee.setFullName("Load Test " + ThreadLocalRandom.current().nextInt(1000000));
+        employee.setDepartmentId(random(departmentIds));
+        employee.setCurrentTask(task);
+        return employee;
+    }
+
+    private static String random(final List<String> ids) {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    private String employeesUrl() {
+        return baseUrl + EmployeeController.BASE_PATH;
+    }
+
+    private String departmentsUrl() {
+        return baseUrl + DepartmentController.BASE_PATH;
+    }
+}
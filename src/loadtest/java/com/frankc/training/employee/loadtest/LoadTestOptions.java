@@ -0,0 +1,128 @@
+package com.frankc.training.employee.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Load test settings, parsed from --name=value arguments.
+ *
+ * If no baseUrl is given the application is started in-process on a
+ * random port, against embedded Mongo, with the given Spring profiles;
+ * profiles=embedded-store runs it on the embedded store instead.
+ * virtualClients runs each simulated client on a virtual thread (Java 21+)
+ * so that thousands of clients don't need thousands of platform threads.
+ */
+public class LoadTestOptions {
+
+    private String baseUrl;
+    private int threads = 16;
+    private int warmupSeconds = 10;
+    private int durationSeconds = 60;
+    private double readRatio = 0.8;
+    private int payloadSize = 64;
+    private int departments = 10;
+    private int employees = 1000;
+    private String output = "target/loadtest-result.json";
+    private String profiles = "";
+    private boolean virtualClients;
+
+    public static LoadTestOptions parse(final String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException(
+                        "Expected --name=value but got: " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+
+            switch (name) {
+                case "baseUrl": options.baseUrl = value; break;
+                case "threads": options.threads = Integer.parseInt(value); break;
+                case "warmup": options.warmupSeconds = Integer.parseInt(value); break;
+                case "duration": options.durationSeconds = Integer.parseInt(value); break;
+                case "readRatio": options.readRatio = Double.parseDouble(value); break;
+                case "payloadSize": options.payloadSize = Integer.parseInt(value); break;
+                case "departments": options.departments = Integer.parseInt(value); break;
+                case "employees": options.employees = Integer.parseInt(value); break;
+                case "output": options.output = value; break;
+                case "profiles": options.profiles = value; break;
+                case "virtualClients":
+                    options.virtualClients = Boolean.parseBoolean(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + name);
+            }
+        }
+
+        if (options.readRatio < 0 || options.readRatio > 1) {
+            throw new IllegalArgumentException("readRatio must be in [0, 1]");
+        }
+        if (options.threads < 1 || options.departments < 1
+                || options.employees < 1) {
+            throw new IllegalArgumentException(
+                    "threads, departments and employees must be positive");
+        }
+        return options;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("baseUrl", baseUrl == null ? "embedded" : baseUrl);
+        map.put("threads", threads);
+        map.put("warmupSeconds", warmupSeconds);
+        map.put("durationSeconds", durationSeconds);
+        map.put("readRatio", readRatio);
+        map.put("payloadSize", payloadSize);
+        map.put("departments", departments);
+        map.put("employees", employees);
+        map.put("profiles", profiles);
+        map.put("virtualClients", virtualClients);
+        return map;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public double getReadRatio() {
+        return readRatio;
+    }
+
+    public int getPayloadSize() {
+        return payloadSize;
+    }
+
+    public int getDepartments() {
+        return departments;
+    }
+
+    public int getEmployees() {
+        return employees;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    public String[] getProfiles() {
+        return profiles.isEmpty() ? new String[0] : profiles.split(",");
+    }
+
+    public boolean isVirtualClients() {
+        return virtualClients;
+    }
+}
@@ -0,0 +1,55 @@
+package com.frankc.training.employee.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The requests making up the mixed workload. Weights are relative within
+ * the read and write groups; the split between the groups comes from
+ * the readRatio option.
+ */
+public enum Operation {
+
+    GET_EMPLOYEE(true, 60),
+    LIST_EMPLOYEES(true, 20),
+    GET_DEPARTMENT(true, 15),
+    LIST_DEPARTMENTS(true, 5),
+
+    CREATE_EMPLOYEE(false, 70),
+    UPDATE_EMPLOYEE(false, 25),
+    CREATE_DEPARTMENT(false, 5);
+
+    private final boolean read;
+    private final int weight;
+
+    Operation(final boolean read, final int weight) {
+        this.read = read;
+        this.weight = weight;
+    }
+
+    public boolean isRead() {
+        return read;
+    }
+
+    public static Operation next(final double readRatio) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean read = random.nextDouble() < readRatio;
+
+        int total = 0;
+        for (Operation operation : values()) {
+            if (operation.read == read) {
+                total += operation.weight;
+            }
+        }
+
+        int choice = random.nextInt(total);
+        for (Operation operation : values()) {
+            if (operation.read == read) {
+                choice -= operation.weight;
+                if (choice < 0) {
+                    return operation;
+                }
+            }
+        }
+        throw new IllegalStateException("No operation chosen");
+    }
+}
@@ -0,0 +1,217 @@
+package com.frankc.training.employee.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.frankc.training.employee.controllers.EmployeeController;
+
+import de.flapdoodle.embed.mongo.MongodExecutable;
+import de.flapdoodle.embed.mongo.MongodStarter;
+import de.flapdoodle.embed.mongo.config.MongodConfigBuilder;
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.process.runtime.Network;
+
+/**
+ * Measures time to first successful request: from starting the JVM to
+ * the first 200 from GET /employees/.
+ *
+ * Each mode is started runs times as a separate java process on the
+ * packaged jars; the fast-startup-cds mode is skipped unless the cds
+ * build profile has produced its archive. Unless a mongoUri is given,
+ * every run uses the same embedded Mongo started here.
+ *
+ * Options, as --name=value: jar, cdsJar, cdsArchive, runs, mongoUri,
+ * timeout (seconds per run), output.
+ */
+public class StartupBenchmark {
+
+    private static final String DEFAULT_JAR = "target/rest-employees-0.0.1-SNAPSHOT.jar";
+    private static final String DEFAULT_CDS_JAR = "target/cds/rest-employees-0.0.1-SNAPSHOT-cds.jar";
+    private static final String DEFAULT_CDS_ARCHIVE = "target/cds/app.jsa";
+
+    private final Map<String, String> options = new LinkedHashMap<>();
+
+    public StartupBenchmark(final String[] args) {
+        options.put("jar", DEFAULT_JAR);
+        options.put("cdsJar", DEFAULT_CDS_JAR);
+        options.put("cdsArchive", DEFAULT_CDS_ARCHIVE);
+        options.put("runs", "5");
+        options.put("timeout", "120");
+        options.put("output", "target/startup-result.json");
+
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException(
+                        "Expected --name=value but got: " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            if (!options.containsKey(name) && !"mongoUri".equals(name)) {
+                throw new IllegalArgumentException("Unknown option: " + name);
+            }
+            options.put(name, arg.substring(arg.indexOf('=') + 1));
+        }
+    }
+
+    public static void main(final String[] args) throws Exception {
+        new StartupBenchmark(args).run();
+    }
+
+    void run() throws Exception {
+        MongodExecutable mongod = null;
+        String mongoUri = options.get("mongoUri");
+        if (mongoUri == null) {
+            int port = freePort();
+            mongod = MongodStarter.getDefaultInstance().prepare(
+                    new MongodConfigBuilder()
+                            .version(Version.Main.PRODUCTION)
+                            .net(new Net(port, Network.localhostIsIPv6()))
+                            .build());
+            mongod.start();
+            mongoUri = "mongodb://localhost:" + port + "/employees";
+        }
+
+        try {
+            Map<String, List<String>> modes = new LinkedHashMap<>();
+            modes.put("default", command(options.get("jar"), null));
+            modes.put("fast-startup", command(options.get("jar"), "fast-startup"));
+            if (new File(options.get("cdsArchive")).isFile()) {
+                List<String> cds = command(options.get("cdsJar"), "fast-startup");
+                cds.add(1, "-XX:SharedArchiveFile=" + options.get("cdsArchive"));
+                modes.put("fast-startup-cds", cds);
+            } else {
+                System.out.println("No CDS archive at " + options.get("cdsArchive")
+                                   + ", skipping fast-startup-cds");
+            }
+
+            System.out.println(String.format("%-18s %10s %10s %10s",
+                    "mode", "min(ms)", "median(ms)", "max(ms)"));
+
+            Map<String, Object> results = new LinkedHashMap<>();
+            for (Map.Entry<String, List<String>> mode : modes.entrySet()) {
+                List<Long> millis = new ArrayList<>();
+                for (int i = 0; i < Integer.parseInt(options.get("runs")); ++i) {
+                    millis.add(timeToFirstRequest(mode.getKey() + "-" + i,
+                                                  mode.getValue(), mongoUri));
+                }
+                results.put(mode.getKey(), summary(mode.getKey(), millis));
+            }
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("timestamp", Instant.now().toString());
+            result.put("javaVersion", System.getProperty("java.version"));
+            result.put("options", options);
+            result.put("modes", results);
+
+            File output = new File(options.get("output"));
+            if (output.getParentFile() != null) {
+                output.getParentFile().mkdirs();
+            }
+            new ObjectMapper().writerWithDefaultPrettyPrinter()
+                              .writeValue(output, result);
+            System.out.println("Results written to " + output.getAbsolutePath());
+        } finally {
+            if (mongod != null) {
+                mongod.stop();
+            }
+        }
+    }
+
+    private static List<String> command(final String jar, final String profile) {
+        List<String> command = new ArrayList<>(Arrays.asList(
+                System.getProperty("java.home") + File.separator + "bin"
+                + File.separator + "java", "-jar", jar));
+        if (profile != null) {
+            command.add("--spring.profiles.active=" + profile);
+        }
+        return command;
+    }
+
+    private long timeToFirstRequest(final String name, final List<String> command,
+                                    final String mongoUri) throws Exception {
+        int port = freePort();
+        List<String> run = new ArrayList<>(command);
+        run.add("--server.port=" + port);
+        run.add("--spring.data.mongodb.uri=" + mongoUri);
+
+        File log = new File("target/startup/" + name + ".log");
+        log.getParentFile().mkdirs();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(run).redirectErrorStream(true)
+                                                 .redirectOutput(log)
+                                                 .start();
+        try {
+            URL url = new URL("http://localhost:" + port + EmployeeController.BASE_PATH);
+            long deadline = start + TimeUnit.SECONDS.toNanos(
+                                        Long.parseLong(options.get("timeout")));
+
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(name + " exited with "
+                            + process.exitValue() + ", see " + log);
+                }
+                if (isOk(url)) {
+                    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                }
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            throw new IllegalStateException(name + " did not answer in time, see " + log);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static boolean isOk(final URL url) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(100);
+            connection.setReadTimeout(5000);
+            try {
+                return connection.getResponseCode() == 200;
+            } finally {
+                connection.disconnect();
+            }
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private static Map<String, Object> summary(final String mode,
+                                               final List<Long> millis) {
+        List<Long> sorted = new ArrayList<>(millis);
+        Collections.sort(sorted);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("runsMillis", millis);
+        summary.put("minMillis", sorted.get(0));
+        summary.put("medianMillis", sorted.get(sorted.size() / 2));
+        summary.put("maxMillis", sorted.get(sorted.size() - 1));
+
+        System.out.println(String.format("%-18s %10d %10d %10d", mode,
+                sorted.get(0), sorted.get(sorted.size() / 2),
+                sorted.get(sorted.size() - 1)));
+        return summary;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.frankc.training.employee.loadtest;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.frankc.training.employee.util.VirtualThreads;
+
+/**
+ * Runs the load test against the Tomcat worker pool and against virtual
+ * threads at each client count, starting a fresh in-process application
+ * for every run. Needs Java 21 or later.
+ *
+ * Run with:
+ *   mvn -P loadtest test-compile exec:exec
+ *       -Dloadtest.main=com.frankc.training.employee.loadtest.ThreadModeComparison
+ *       [-Dloadtest.args="--clients=1000,10000 --duration=60 ..."]
+ *
+ * Other options are passed through to each LoadTest run. Clients always
+ * run on virtual threads, so the load generator is the same in both
+ * modes and only the server side changes.
+ */
+public class ThreadModeComparison {
+
+    private static final Map<String, String> MODES = new LinkedHashMap<>();
+
+    static {
+        MODES.put("thread-pool", "");
+        MODES.put("virtual-threads", "virtual-threads");
+    }
+
+    public static void main(final String[] args) throws Exception {
+        if (!VirtualThreads.isSupported()) {
+            throw new IllegalStateException(
+                    "Comparing thread modes needs Java 21 or later");
+        }
+
+        List<Integer> clientCounts = Arrays.asList(1000, 10000);
+        List<String> passThrough = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--clients=")) {
+                clientCounts = new ArrayList<>();
+                for (String count : arg.substring("--clients=".length()).split(",")) {
+                    clientCounts.add(Integer.parseInt(count));
+                }
+            } else {
+                passThrough.add(arg);
+            }
+        }
+
+        // Read once by HttpURLConnection, so size it for the largest run
+        System.setProperty("http.maxConnections",
+                           String.valueOf(clientCounts.stream()
+                                   .mapToInt(Integer::intValue).max().getAsInt()));
+
+        Map<String, Object> results = new LinkedHashMap<>();
+        for (int clients : clientCounts) {
+            for (Map.Entry<String, String> mode : MODES.entrySet()) {
+                String name = mode.getKey() + "-" + clients;
+
+                List<String> runArgs = new ArrayList<>(passThrough);
+                runArgs.add("--threads=" + clients);
+                runArgs.add("--virtualClients=true");
+                runArgs.add("--profiles=" + mode.getValue());
+                runArgs.add("--output=target/thread-modes/" + name + ".json");
+
+                System.out.println("== " + name);
+                Map<String, Object> result = LoadTest.runAndReport(
+                        LoadTestOptions.parse(runArgs.toArray(new String[0])));
+                results.put(name, result.get("total"));
+            }
+        }
+
+        System.out.println();
+        System.out.println(String.format("%-24s %10s %8s %10s %10s",
+                "run", "req/s", "errors", "p50(us)", "p99(us)"));
+        for (Map.Entry<String, Object> run : results.entrySet()) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> total = (Map<String, Object>) run.getValue();
+            System.out.println(String.format("%-24s %10.1f %8d %10d %10d",
+                    run.getKey(), total.get("throughput"), total.get("errors"),
+                    total.get("p50Micros"), total.get("p99Micros")));
+        }
+
+        File output = new File("target/thread-mode-comparison.json");
+        output.getParentFile().mkdirs();
+        new ObjectMapper().writerWithDefaultPrettyPrinter()
+                          .writeValue(output, results);
+        System.out.println("Results written to " + output.getAbsolutePath());
+    }
+}
@@ -0,0 +1,38 @@
+package com.frankc.training.employee;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.frankc.training.employee.metrics.MongoCommandMetrics;
+import com.mongodb.MongoClientOptions;
+
+/**
+ * Options for the blocking Mongo client. The client takes a single
+ * MongoClientOptions bean, so the command listener from MetricsConfig is
+ * added here along with the pool tuning.
+ *
+ * mongo.pool.max-size is the connection pool size and
+ * mongo.pool.waiters-per-connection the number of threads per pooled
+ * connection allowed to wait for one. The defaults match the driver's
+ * own.
+ */
+@Configuration
+class MongoClientConfig {
+
+    @Value("${mongo.pool.max-size:100}")
+    private int poolMaxSize;
+
+    @Value("${mongo.pool.waiters-per-connection:5}")
+    private int poolWaitersPerConnection;
+
+    @Bean
+    public MongoClientOptions mongoClientOptions(MongoCommandMetrics commandMetrics) {
+        return MongoClientOptions.builder()
+                                 .addCommandListener(commandMetrics)
+                                 .connectionsPerHost(poolMaxSize)
+                                 .threadsAllowedToBlockForConnectionMultiplier(
+                                                    poolWaitersPerConnection)
+                                 .build();
+    }
+}
@@ -0,0 +1,53 @@
+package com.frankc.training.employee;
+
+import java.util.concurrent.ExecutorService;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import com.frankc.training.employee.util.VirtualThreads;
+
+/**
+ * Runs each Tomcat request on its own virtual thread instead of on the
+ * fixed worker pool. Needs Java 21 or later.
+ *
+ * Controllers, services and the blocking Mongo driver are unchanged: a
+ * request blocked on Mongo parks its virtual thread and frees the
+ * carrier, so concurrency is bounded by the Mongo connection pool rather
+ * than by server.tomcat.max-threads. application-virtual-threads
+ * raises the number of requests allowed to wait for a pooled connection
+ * to match.
+ */
+@Profile("virtual-threads & !reactive")
+@Configuration
+class VirtualThreadConfig {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    // Not a bean: the JDK's executor class isn't public, so Spring can't
+    // call its shutdown method reflectively
+    private final ExecutorService requestExecutor =
+                                    VirtualThreads.newExecutor("http-vt-");
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory>
+                                                virtualThreadCustomizer() {
+        return factory -> factory.addConnectorCustomizers(connector -> {
+            logger.info("Tomcat connector on port {} using virtual threads",
+                        connector.getPort());
+            connector.getProtocolHandler().setExecutor(requestExecutor);
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        requestExecutor.shutdown();
+    }
+}
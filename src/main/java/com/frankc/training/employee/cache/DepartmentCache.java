@@ -0,0 +1,134 @@
+package com.frankc.training.employee.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.frankc.training.employee.entities.Department;
+import com.frankc.training.employee.repositories.DepartmentRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Remembers which department ids exist, so Employee writes don't need a
+ * database round trip to validate their department.
+ *
+ * Departments change rarely, so entries live until they expire or
+ * DepartmentService invalidates them on a save or delete.
+ */
+@Component
+public class DepartmentCache implements MeterBinder {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private DepartmentRepository departmentRepo;
+
+    @Value("${department.cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${department.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private Cache<String, Boolean> existence;
+
+    @PostConstruct
+    void init() {
+        existence = Caffeine.newBuilder()
+                            .maximumSize(maxSize)
+                            .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                            .recordStats()
+                            .build();
+    }
+
+    /**
+     * @param departmentId to look up, may be null
+     * @return true if a Department with the given id exists
+     */
+    public boolean exists(String departmentId) {
+        if (departmentId == null) {
+            return false;
+        }
+        return existence.get(departmentId, departmentRepo::existsById);
+    }
+
+    /**
+     * Find which of the given department ids exist.
+     *
+     * Ids not already cached are looked up together in a single query.
+     *
+     * @param departmentIds to look up
+     * @return the subset of departmentIds that exist
+     */
+    public Set<String> existing(Collection<String> departmentIds) {
+        Map<String, Boolean> found = new HashMap<>(
+                                    existence.getAllPresent(departmentIds));
+
+        Set<String> missing = new HashSet<>(departmentIds);
+        missing.removeAll(found.keySet());
+        if (!missing.isEmpty()) {
+            Map<String, Boolean> loaded = loadAll(missing);
+            existence.putAll(loaded);
+            found.putAll(loaded);
+        }
+
+        Set<String> existing = new HashSet<>();
+        for (Map.Entry<String, Boolean> entry : found.entrySet()) {
+            if (entry.getValue()) {
+                existing.add(entry.getKey());
+            }
+        }
+        return existing;
+    }
+
+    public void invalidate(String departmentId) {
+        if (departmentId != null) {
+            existence.invalidate(departmentId);
+        }
+    }
+
+    public void invalidateAll() {
+        existence.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        CacheStats stats = existence.stats();
+        logger.debug("Department cache: {}", stats);
+        return stats;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new CaffeineCacheMetrics(existence, "departmentIds", Tags.empty())
+                                                    .bindTo(registry);
+    }
+
+    private Map<String, Boolean> loadAll(Set<String> departmentIds) {
+        Map<String, Boolean> found = new HashMap<>();
+        for (String departmentId : departmentIds) {
+            found.put(departmentId, Boolean.FALSE);
+        }
+
+        for (Department department : departmentRepo.findAllById(found.keySet())) {
+            found.put(department.getId(), Boolean.TRUE);
+        }
+        return found;
+    }
+}
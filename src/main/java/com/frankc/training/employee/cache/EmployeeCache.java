@@ -0,0 +1,81 @@
+package com.frankc.training.employee.cache;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.frankc.training.employee.entities.Employee;
+import com.frankc.training.employee.repositories.EmployeeRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Read-through cache of Employees by id.
+ *
+ * Unknown ids are cached too, so repeated lookups of a missing Employee
+ * don't reach the database either. EmployeeService invalidates entries
+ * whenever it writes. Cached Employees are shared, so callers must not
+ * modify them.
+ */
+@Component
+public class EmployeeCache implements MeterBinder {
+
+    @Autowired
+    private EmployeeRepository employeeRepo;
+
+    @Value("${employee.cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${employee.cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    private Cache<String, Optional<Employee>> employees;
+
+    @PostConstruct
+    void init() {
+        employees = Caffeine.newBuilder()
+                            .maximumSize(maxSize)
+                            .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                            .recordStats()
+                            .build();
+    }
+
+    /**
+     * @param employeeId to look up
+     * @return the Employee with the given id, loading it if not cached
+     */
+    public Optional<Employee> find(String employeeId) {
+        return employees.get(employeeId, employeeRepo::findById);
+    }
+
+    public void invalidate(String employeeId) {
+        if (employeeId != null) {
+            employees.invalidate(employeeId);
+        }
+    }
+
+    public void invalidateAll() {
+        employees.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return employees.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new CaffeineCacheMetrics(employees, "employees", Tags.empty())
+                                                    .bindTo(registry);
+    }
+}
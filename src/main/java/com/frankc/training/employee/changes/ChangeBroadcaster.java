@@ -0,0 +1,239 @@
+package com.frankc.training.employee.changes;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.frankc.training.employee.dto.EntityChange;
+import com.frankc.training.employee.util.VirtualThreads;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Pushes the changes in the ChangeLog to Server-Sent Events subscribers.
+ *
+ * Each subscriber only holds its position in the ChangeLog, and is sent
+ * what follows it on a thread of its own, so a slow subscriber neither
+ * delays writes nor other subscribers. One that falls so far behind that
+ * its next change has left the ChangeLog is sent a reset event and
+ * disconnected. A reset means changes were missed: the subscriber should
+ * read the collections afresh, then reconnect, and the reset's id
+ * resumes from where the reset was sent. A subscriber resuming from an
+ * unknown Last-Event-ID is sent a reset first too.
+ *
+ * A comment is sent every changes.heartbeat-ms so that idle connections
+ * are not closed by proxies, and dead ones are noticed.
+ */
+@Profile("!reactive")
+@Component
+public class ChangeBroadcaster implements MeterBinder {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    public static final String SUBSCRIBERS_METRIC_NAME = "changes.subscribers";
+    public static final String RESETS_METRIC_NAME = "changes.resets";
+
+    public static final String CHANGE_EVENT = "change";
+    public static final String RESET_EVENT = "reset";
+
+    private static final int BATCH_SIZE = 100;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${changes.timeout-ms:300000}")
+    private long timeoutMillis;
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void init() {
+        // Sends block while a subscriber is slow, so a thread each
+        executor = VirtualThreads.isSupported()
+                ? VirtualThreads.newExecutor("change-stream-")
+                : Executors.newCachedThreadPool(
+                            new CustomizableThreadFactory("change-stream-"));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param lastEventId id of the last event the subscriber received, or
+     *                    null to start with the next change
+     * @return SseEmitter sending the changes that follow
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+
+        Subscription subscription;
+        if (lastEventId == null) {
+            subscription = new Subscription(emitter, changeLog.latest(), false);
+        } else {
+            long sequence = changeLog.sequenceOf(lastEventId);
+            subscription = sequence < 0
+                    ? new Subscription(emitter, changeLog.latest(), true)
+                    : new Subscription(emitter, sequence, false);
+        }
+
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        subscriptions.add(subscription);
+        changeLog.addListener(subscription.listener);
+        subscription.wake();
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${changes.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Subscription subscription : subscriptions) {
+            subscription.heartbeatDue = true;
+            subscription.wake();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder(SUBSCRIBERS_METRIC_NAME, subscriptions, Set::size)
+             .description("Subscribers to the change stream")
+             .register(registry);
+    }
+
+    private class Subscription implements Runnable {
+
+        private final SseEmitter emitter;
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private final Runnable listener = this::wake;
+
+        // Sequence number of the last change sent
+        private long sent;
+
+        private boolean resetDue;
+
+        private volatile boolean heartbeatDue;
+
+        private volatile boolean closed;
+
+        Subscription(SseEmitter emitter, long sent, boolean resetDue) {
+            this.emitter = emitter;
+            this.sent = sent;
+            this.resetDue = resetDue;
+        }
+
+        /**
+         * Send whatever is due, unless already being sent.
+         */
+        void wake() {
+            if (closed || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException ex) {
+                close();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                send();
+            } catch (IOException | IllegalStateException ex) {
+                // Disconnected, or completed meanwhile
+                logger.debug("Change stream subscriber gone: {}", ex.toString());
+                close();
+            } finally {
+                scheduled.set(false);
+            }
+
+            // A change recorded while finishing found this still scheduled
+            if (!closed && (changeLog.latest() > sent || heartbeatDue)) {
+                wake();
+            }
+        }
+
+        private void send() throws IOException {
+            if (resetDue) {
+                reset();
+                resetDue = false;
+            }
+
+            List<EntityChange> changes;
+            while ((changes = changeLog.readAfter(sent, BATCH_SIZE)) != null
+                    && !changes.isEmpty()) {
+                for (EntityChange change : changes) {
+                    emitter.send(SseEmitter.event()
+                                           .id(changeLog.eventId(sent + 1))
+                                           .name(CHANGE_EVENT)
+                                           .data(change, MediaType.APPLICATION_JSON));
+                    ++sent;
+                    heartbeatDue = false;
+                }
+            }
+
+            if (changes == null) {
+                logger.warn("Change stream subscriber fell behind by more "
+                            + "than the change log holds, resetting");
+                reset();
+                emitter.complete();
+                close();
+                return;
+            }
+
+            if (heartbeatDue) {
+                heartbeatDue = false;
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            }
+        }
+
+        private void reset() throws IOException {
+            sent = changeLog.latest();
+            meterRegistry.counter(RESETS_METRIC_NAME).increment();
+            emitter.send(SseEmitter.event()
+                                   .id(changeLog.eventId(sent))
+                                   .name(RESET_EVENT)
+                                   .data(""));
+        }
+
+        void close() {
+            if (!closed) {
+                closed = true;
+                subscriptions.remove(this);
+                changeLog.removeListener(listener);
+            }
+        }
+    }
+}
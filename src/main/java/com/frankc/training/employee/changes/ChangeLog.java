@@ -0,0 +1,120 @@
+package com.frankc.training.employee.changes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.frankc.training.employee.dto.EntityChange;
+
+/**
+ * The most recent Employee and Department changes made through this
+ * instance, numbered in the order they were made.
+ *
+ * Holds the last changes.buffer-size changes in a ring, so a subscriber
+ * can resume from any of them. Event ids carry an epoch chosen at
+ * startup as well as the sequence number, so an id from before a
+ * restart, or from another instance, is recognised as unknown rather
+ * than misread as a position in this log.
+ */
+@Component
+public class ChangeLog {
+
+    @Value("${changes.buffer-size:10000}")
+    private int bufferSize;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Set<Runnable> listeners = new CopyOnWriteArraySet<>();
+
+    private EntityChange[] ring;
+
+    // Sequence number of the latest change, 0 before the first
+    private long latest;
+
+    @PostConstruct
+    void init() {
+        ring = new EntityChange[bufferSize];
+    }
+
+    public void record(String collection, EntityChange.Type type, String id,
+                       Object entity) {
+        EntityChange change = new EntityChange(collection, type, id, entity);
+        synchronized (this) {
+            ++latest;
+            ring[index(latest)] = change;
+        }
+
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    /**
+     * @return sequence number of the latest change, 0 if there is none
+     */
+    public synchronized long latest() {
+        return latest;
+    }
+
+    /**
+     * @param after sequence number of the last change already seen
+     * @param max most changes to return
+     * @return the changes following it, in order, or null if some of
+     *         them are no longer held
+     */
+    public synchronized List<EntityChange> readAfter(long after, int max) {
+        if (after < latest - ring.length) {
+            return null;
+        }
+
+        List<EntityChange> changes = new ArrayList<>();
+        for (long sequence = after + 1;
+                sequence <= latest && changes.size() < max; ++sequence) {
+            changes.add(ring[index(sequence)]);
+        }
+        return changes;
+    }
+
+    public String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    /**
+     * @param eventId given by eventId
+     * @return the sequence number of the event, or -1 if the event id
+     *         wasn't given by this log
+     */
+    public long sequenceOf(String eventId) {
+        if (eventId == null || !eventId.startsWith(epoch + "-")) {
+            return -1;
+        }
+
+        try {
+            long sequence = Long.parseLong(eventId.substring(epoch.length() + 1));
+            return sequence >= 0 && sequence <= latest() ? sequence : -1;
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * @param listener run after each change is recorded, must not block
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    private int index(long sequence) {
+        return (int) ((sequence - 1) % ring.length);
+    }
+}
@@ -0,0 +1,227 @@
+package com.frankc.training.employee.coherence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.frankc.training.employee.cache.DepartmentCache;
+import com.frankc.training.employee.cache.EmployeeCache;
+import com.frankc.training.employee.coherence.ChangeEvent.Type;
+import com.frankc.training.employee.entities.Employee;
+import com.frankc.training.employee.index.EmployeeIndex;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Keeps the local caches coherent with writes made by other instances.
+ *
+ * Turned on with cache.coherence.enabled. Once the application is ready
+ * a thread per collection follows the ChangeFeed of employees and
+ * departments, invalidating the cached entries of each written document
+ * and applying the write to the EmployeeIndex. Each cursor is reopened
+ * from the last event seen if it fails; if the feed can't resume, or
+ * was invalidated, every cache of the collection is dropped and the
+ * index reloaded, as writes may have been missed.
+ *
+ * cache.coherence.lag is how far behind the writes the last applied
+ * event was, zero once caught up. If it exceeds cache.coherence.max-lag-ms
+ * the caches are dropped as well, at most once per max-lag-ms, so that
+ * stale entries are bounded in age even while the feed catches up.
+ */
+@Component
+@ConditionalOnProperty("cache.coherence.enabled")
+public class CacheCoherence {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    public static final String EMPLOYEES = "employees";
+    public static final String DEPARTMENTS = "departments";
+
+    public static final String LAG_METRIC_NAME = "cache.coherence.lag";
+    public static final String EVENTS_METRIC_NAME = "cache.coherence.events";
+    public static final String RESYNCS_METRIC_NAME = "cache.coherence.resyncs";
+
+    private static final long STOP_TIMEOUT_MILLIS = 5000;
+
+    @Autowired
+    private ChangeFeed changeFeed;
+
+    @Autowired
+    private EmployeeCache employeeCache;
+
+    @Autowired
+    private DepartmentCache departmentCache;
+
+    @Autowired
+    private EmployeeIndex employeeIndex;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${cache.coherence.max-lag-ms:10000}")
+    private long maxLagMillis;
+
+    @Value("${cache.coherence.poll-interval-ms:100}")
+    private long pollIntervalMillis;
+
+    @Value("${cache.coherence.retry-delay-ms:1000}")
+    private long retryDelayMillis;
+
+    private final List<Thread> followers = new ArrayList<>();
+
+    private volatile boolean running;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+
+        for (String collection : new String[] {EMPLOYEES, DEPARTMENTS}) {
+            AtomicLong lag = meterRegistry.gauge(LAG_METRIC_NAME,
+                                                 Tags.of("collection", collection),
+                                                 new AtomicLong());
+            Thread follower = new Thread(() -> follow(collection, lag),
+                                         "cache-coherence-" + collection);
+            follower.setDaemon(true);
+            follower.start();
+            followers.add(follower);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        running = false;
+        for (Thread follower : followers) {
+            follower.interrupt();
+        }
+        for (Thread follower : followers) {
+            follower.join(STOP_TIMEOUT_MILLIS);
+        }
+        followers.clear();
+    }
+
+    private void follow(String collection, AtomicLong lag) {
+        Object resumeToken = null;
+        // Reason to resync once the cursor is open, null if none
+        String resync = null;
+        long lastLagResync = 0;
+
+        while (running) {
+            ChangeFeed.Cursor cursor;
+            try {
+                cursor = changeFeed.open(collection, resumeToken);
+            } catch (RuntimeException ex) {
+                if (resumeToken != null) {
+                    logger.warn("Unable to resume following {}", collection, ex);
+                    resumeToken = null;
+                    resync = "interrupted";
+                } else {
+                    logger.warn("Unable to follow {}", collection, ex);
+                    pause(retryDelayMillis);
+                }
+                continue;
+            }
+
+            try {
+                // Only once the cursor is open, so no write is missed
+                if (resync != null) {
+                    resync(collection, resync);
+                    resync = null;
+                }
+
+                while (running) {
+                    ChangeEvent event = cursor.tryNext();
+                    if (event == null) {
+                        lag.set(0);
+                        pause(pollIntervalMillis);
+                        continue;
+                    }
+
+                    if (event.getType() == Type.INVALIDATE) {
+                        logger.warn("Change feed of {} invalidated", collection);
+                        resumeToken = null;
+                        resync = "invalidated";
+                        break;
+                    }
+
+                    apply(collection, event);
+                    resumeToken = event.getResumeToken();
+
+                    long now = System.currentTimeMillis();
+                    lag.set(Math.max(0, now - event.getTimeMillis()));
+                    if (lag.get() > maxLagMillis
+                            && now - lastLagResync > maxLagMillis) {
+                        resync(collection, "lag");
+                        lastLagResync = now;
+                    }
+                }
+            } catch (RuntimeException ex) {
+                logger.warn("Change feed of {} interrupted", collection, ex);
+                if (resumeToken == null) {
+                    resync = "interrupted";
+                }
+                pause(retryDelayMillis);
+            } finally {
+                cursor.close();
+            }
+        }
+    }
+
+    private void apply(String collection, ChangeEvent event) {
+        if (EMPLOYEES.equals(collection)) {
+            employeeCache.invalidate(event.getId());
+
+            if (event.getType() == Type.DELETE) {
+                Employee deleted = new Employee();
+                deleted.setId(event.getId());
+                employeeIndex.update(deleted, null);
+            } else if (event.getDocument() instanceof Employee) {
+                employeeIndex.update(null, (Employee) event.getDocument());
+            }
+        } else {
+            departmentCache.invalidate(event.getId());
+        }
+
+        meterRegistry.counter(EVENTS_METRIC_NAME, "collection", collection)
+                     .increment();
+    }
+
+    private void resync(String collection, String reason) {
+        logger.warn("Resyncing caches of {}, {}", collection, reason);
+
+        if (EMPLOYEES.equals(collection)) {
+            employeeCache.invalidateAll();
+            employeeIndex.load();
+        } else {
+            departmentCache.invalidateAll();
+        }
+
+        // Counted once done, so a resync seen in the metrics has happened
+        meterRegistry.counter(RESYNCS_METRIC_NAME,
+                              "collection", collection, "reason", reason)
+                     .increment();
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            // Stopping, the loop checks running
+            Thread.currentThread().interrupt();
+        }
+    }
+}
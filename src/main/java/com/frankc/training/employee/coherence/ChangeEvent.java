@@ -0,0 +1,82 @@
+package com.frankc.training.employee.coherence;
+
+/**
+ * One write to a collection, as seen by a ChangeFeed.
+ */
+public class ChangeEvent {
+
+    public enum Type {
+        /** Inserted, updated or replaced; the document is its new state. */
+        UPSERT,
+        /** Deleted. */
+        DELETE,
+        /** The feed can no longer follow the collection, e.g. it was dropped. */
+        INVALIDATE
+    }
+
+    private final String collection;
+
+    private final Type type;
+
+    private final String id;
+
+    private final Object document;
+
+    private final long timeMillis;
+
+    private final Object resumeToken;
+
+    public ChangeEvent(String collection, Type type, String id,
+                       Object document, long timeMillis, Object resumeToken) {
+        this.collection = collection;
+        this.type = type;
+        this.id = id;
+        this.document = document;
+        this.timeMillis = timeMillis;
+        this.resumeToken = resumeToken;
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return id of the written document, null for INVALIDATE
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the document after an UPSERT, mapped to its entity class,
+     *         or null if it is not known
+     */
+    public Object getDocument() {
+        return document;
+    }
+
+    /**
+     * @return when the write happened, in epoch milliseconds
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * @return token to open a new cursor just after this event, or null
+     *         if the feed can't resume
+     */
+    public Object getResumeToken() {
+        return resumeToken;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeEvent [collection=" + collection + ", type=" + type
+               + ", id=" + id + ", timeMillis=" + timeMillis + "]";
+    }
+}
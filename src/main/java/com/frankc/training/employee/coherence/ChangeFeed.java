@@ -0,0 +1,35 @@
+package com.frankc.training.employee.coherence;
+
+import java.io.Closeable;
+
+/**
+ * Source of the writes made to a collection by any instance.
+ */
+public interface ChangeFeed {
+
+    /**
+     * Cursor over the events of one collection, in the order they were
+     * written.
+     */
+    interface Cursor extends Closeable {
+
+        /**
+         * @return the next event, or null if there is none yet
+         * @throws RuntimeException if the feed was interrupted and events
+         *         may have been lost
+         */
+        ChangeEvent tryNext();
+
+        @Override
+        void close();
+    }
+
+    /**
+     * @param collection to follow
+     * @param resumeToken of the last event seen, or null to start from
+     *                    now
+     * @return Cursor over events after the resume token
+     * @throws RuntimeException if the feed can't resume from the token
+     */
+    Cursor open(String collection, Object resumeToken);
+}
@@ -0,0 +1,98 @@
+package com.frankc.training.employee.coherence;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import com.frankc.training.employee.coherence.ChangeEvent.Type;
+
+/**
+ * ChangeFeed of the writes published in this process, standing in for
+ * the oplog when there is no Mongo.
+ *
+ * Each cursor buffers up to queueCapacity events. A cursor that falls
+ * further behind is interrupted, as a Mongo change stream is when its
+ * position drops off the oplog, and its events can't be resumed.
+ */
+public class LocalChangeFeed implements ChangeFeed {
+
+    private final int queueCapacity;
+
+    private final Map<String, List<LocalCursor>> cursors = new ConcurrentHashMap<>();
+
+    public LocalChangeFeed(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * @param collection that was written
+     * @param id of the written document
+     * @param document its new state, or null if it was deleted
+     */
+    public void publish(String collection, String id, Object document) {
+        ChangeEvent event = new ChangeEvent(collection,
+                                            document == null ? Type.DELETE
+                                                             : Type.UPSERT,
+                                            id, document,
+                                            System.currentTimeMillis(), null);
+
+        for (LocalCursor cursor : cursors.getOrDefault(
+                                collection, Collections.emptyList())) {
+            cursor.offer(event);
+        }
+    }
+
+    @Override
+    public Cursor open(String collection, Object resumeToken) {
+        if (resumeToken != null) {
+            throw new DataAccessResourceFailureException(
+                            "The local change feed can't resume");
+        }
+
+        LocalCursor cursor = new LocalCursor(collection);
+        cursors.computeIfAbsent(collection, name -> new CopyOnWriteArrayList<>())
+               .add(cursor);
+        return cursor;
+    }
+
+    private class LocalCursor implements Cursor {
+
+        private final String collection;
+
+        private final BlockingQueue<ChangeEvent> events =
+                                new ArrayBlockingQueue<>(queueCapacity);
+
+        private volatile boolean overflowed;
+
+        LocalCursor(String collection) {
+            this.collection = collection;
+        }
+
+        void offer(ChangeEvent event) {
+            if (!events.offer(event)) {
+                overflowed = true;
+            }
+        }
+
+        @Override
+        public ChangeEvent tryNext() {
+            if (overflowed) {
+                throw new DataAccessResourceFailureException(
+                        "More than " + queueCapacity + " unread changes to "
+                        + collection);
+            }
+            return events.poll();
+        }
+
+        @Override
+        public void close() {
+            cursors.get(collection).remove(this);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.frankc.training.employee.coherence;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import com.frankc.training.employee.coherence.ChangeEvent.Type;
+import com.frankc.training.employee.entities.Department;
+import com.frankc.training.employee.entities.Employee;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+
+/**
+ * ChangeFeed over Mongo change streams, which need a replica set.
+ *
+ * Updates look up the current document, so an UPSERT carries the latest
+ * state of the document rather than the state the update left it in.
+ * Event times come from the cluster time of the write, which has a
+ * resolution of one second.
+ */
+@Profile("!embedded-store")
+@Component
+public class MongoChangeFeed implements ChangeFeed {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${cache.coherence.poll-interval-ms:100}")
+    private long maxAwaitMillis;
+
+    @Override
+    public Cursor open(String collection, Object resumeToken) {
+        ChangeStreamIterable<Document> stream =
+                mongoTemplate.getCollection(collection)
+                             .watch()
+                             .fullDocument(FullDocument.UPDATE_LOOKUP)
+                             .maxAwaitTime(maxAwaitMillis, TimeUnit.MILLISECONDS);
+        if (resumeToken != null) {
+            stream = stream.resumeAfter((BsonDocument) resumeToken);
+        }
+
+        MongoCursor<ChangeStreamDocument<Document>> cursor = stream.iterator();
+        Class<?> entityClass = entityClass(collection);
+
+        return new Cursor() {
+            @Override
+            public ChangeEvent tryNext() {
+                ChangeStreamDocument<Document> change;
+                while ((change = cursor.tryNext()) != null) {
+                    ChangeEvent event = toEvent(collection, entityClass, change);
+                    if (event != null) {
+                        return event;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public void close() {
+                cursor.close();
+            }
+        };
+    }
+
+    /**
+     * @return the event, or null for changes that don't affect documents
+     */
+    private ChangeEvent toEvent(String collection, Class<?> entityClass,
+                                ChangeStreamDocument<Document> change) {
+        long timeMillis = change.getClusterTime() == null
+                            ? System.currentTimeMillis()
+                            : change.getClusterTime().getTime() * 1000L;
+
+        switch (change.getOperationType()) {
+            case INSERT:
+            case UPDATE:
+            case REPLACE:
+                Object document = change.getFullDocument() == null
+                        ? null
+                        : mongoTemplate.getConverter().read(
+                                    entityClass, change.getFullDocument());
+                return new ChangeEvent(collection, Type.UPSERT,
+                                       id(change.getDocumentKey()), document,
+                                       timeMillis, change.getResumeToken());
+            case DELETE:
+                return new ChangeEvent(collection, Type.DELETE,
+                                       id(change.getDocumentKey()), null,
+                                       timeMillis, change.getResumeToken());
+            case INVALIDATE:
+            case DROP:
+            case DROP_DATABASE:
+            case RENAME:
+                return new ChangeEvent(collection, Type.INVALIDATE, null, null,
+                                       timeMillis, null);
+            default:
+                return null;
+        }
+    }
+
+    private static Class<?> entityClass(String collection) {
+        switch (collection) {
+            case CacheCoherence.EMPLOYEES:
+                return Employee.class;
+            case CacheCoherence.DEPARTMENTS:
+                return Department.class;
+            default:
+                throw new IllegalArgumentException(
+                                "No entity stored in " + collection);
+        }
+    }
+
+    private static String id(BsonDocument documentKey) {
+        BsonValue id = documentKey.get("_id");
+        if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        return id.isString() ? id.asString().getValue() : id.toString();
+    }
+}
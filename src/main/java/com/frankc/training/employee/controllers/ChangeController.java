@@ -0,0 +1,54 @@
+package com.frankc.training.employee.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.frankc.training.employee.changes.ChangeBroadcaster;
+
+/**
+ * Streams Employee and Department changes as Server-Sent Events, so
+ * clients can follow them instead of polling the collections.
+ *
+ * Only changes made through this instance are streamed; see
+ * ChangeBroadcaster for resuming and resets.
+ */
+@Profile("!reactive")
+@RestController
+@RequestMapping(ChangeController.BASE_PATH)
+public class ChangeController {
+
+    public static final String BASE_PATH = "/changes/";
+
+    public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
+    @Autowired
+    private ChangeBroadcaster changeBroadcaster;
+
+    /**
+     * Subscribe to changes. Each is a change event whose data is an
+     * EntityChange in JSON.
+     *
+     * @param lastEventIdHeader id of the last event received, sent by
+     *                          EventSource when it reconnects
+     * @param lastEventId the same, for clients that can't set headers
+     * @return SseEmitter of the changes after lastEventId, or of those
+     *         from now on if not given
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(
+            @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false)
+                                            final String lastEventIdHeader,
+            @RequestParam(value = "lastEventId", required = false)
+                                            final String lastEventId) {
+        return changeBroadcaster.subscribe(lastEventIdHeader != null
+                                                ? lastEventIdHeader
+                                                : lastEventId);
+    }
+}
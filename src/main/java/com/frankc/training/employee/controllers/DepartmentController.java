@@ -1,29 +1,47 @@
 package com.frankc.training.employee.controllers;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.frankc.training.employee.dto.DepartmentEmployees;
+import com.frankc.training.employee.dto.DepartmentSummary;
 import com.frankc.training.employee.entities.Department;
+import com.frankc.training.employee.entities.Employee;
 import com.frankc.training.employee.services.DepartmentService;
+import com.frankc.training.employee.services.EmployeeService;
+import com.frankc.training.employee.util.ContinuationToken;
+import com.frankc.training.employee.util.ETags;
+import com.frankc.training.employee.util.NdjsonWriter;
 
 /**
  * Implements interface from RESTful HTTP/JSON to Department Repository.
  *
  * @author Frank Callaly
  */
+@Profile("!reactive")
 @RestController
 @RequestMapping(DepartmentController.BASE_PATH)
 public class DepartmentController {
@@ -35,30 +53,139 @@ public class DepartmentController {
     @Autowired
     private DepartmentService departmentService;
 
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * Get a collection of all Departments in the repository.
      *
+     * The ETag combines the versions of the Department collection and of
+     * the Employee collection, whose writes change the Departments' stats,
+     * so a matching If-None-Match gets 304 Not Modified without any
+     * Departments being read.
+     *
      * @return HttpEntity containing the full List of Departments
      */
     @GetMapping
-    public HttpEntity<List<Department>> findAllDepartments() {
+    public HttpEntity<List<Department>> findAllDepartments(final WebRequest request) {
+        String eTag = ETags.forCollection(DepartmentService.COLLECTION,
+                                          departmentService.collectionVersion(),
+                                          EmployeeService.COLLECTION,
+                                          employeeService.collectionVersion());
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+
         return new ResponseEntity<List<Department>>(
                                     departmentService.findAllDepartments(),
                                     HttpStatus.OK);
     }
 
+    /**
+     * Export every Department in the repository as newline delimited JSON.
+     *
+     * Departments are written to the response as they are read from a
+     * database cursor, so memory use stays flat however many there are.
+     *
+     * @return ResponseEntity streaming one Department per line
+     */
+    @GetMapping("export")
+    public ResponseEntity<StreamingResponseBody> exportDepartments() {
+        logger.debug("exportDepartments");
+
+        StreamingResponseBody body = outputStream -> {
+            try (Stream<Department> departments = departmentService.streamAllDepartments()) {
+                long count = NdjsonWriter.write(objectMapper, departments,
+                                                outputStream);
+                logger.info("exportDepartments: wrote {} departments", count);
+            }
+        };
+
+        return ResponseEntity.ok()
+                             .contentType(NdjsonWriter.APPLICATION_NDJSON)
+                             .body(body);
+    }
+
     /**
      * Get a single particular Department from the repository.
      *
+     * The response carries an ETag naming the Department's version and its
+     * counts; a request whose If-None-Match matches it gets 304 Not
+     * Modified and no body, and it can be sent as If-Match to update this
+     * version only.
+     *
      * @param id of Department to return, taken from path
      * @return HttpEntity containing the Department corresponding to the given id
      */
     @GetMapping("{id}")
     public HttpEntity<Department> getDepartment(@PathVariable("id") final String id) {
-        logger.info("getDepartment: " + id);
+        logger.debug("getDepartment: {}", id);
+
+        Department department = departmentService.findDepartment(id);
 
-        return new ResponseEntity<Department>(departmentService.findDepartment(id),
-                                              HttpStatus.OK);
+        return ResponseEntity.ok()
+                             .eTag(ETags.forVersion(department.getVersion(),
+                                                    department.getStats()))
+                             .body(department);
+    }
+
+    /**
+     * Get a Department with a page of its Employees, ordered by id.
+     *
+     * Paged the same way as the Employee listing: if more Employees follow,
+     * the response carries an X-Continuation-Token header to pass back as
+     * the continuationToken parameter.
+     *
+     * @param id of Department to return, taken from path
+     * @param size maximum number of Employees to return
+     * @param continuationToken token from the previous page, if any
+     * @return HttpEntity containing the Department and its Employees
+     */
+    @GetMapping("{id}/employees")
+    public HttpEntity<DepartmentEmployees> getDepartmentEmployees(
+            @PathVariable("id") final String id,
+            @RequestParam(value = "size", required = false) final Integer size,
+            @RequestParam(value = "continuationToken", required = false)
+                                            final String continuationToken) {
+        logger.debug("getDepartmentEmployees: {}", id);
+
+        Department department = departmentService.findDepartment(id);
+        Slice<Employee> page = employeeService.findDepartmentEmployeesPage(
+                                    id,
+                                    ContinuationToken.decode(continuationToken),
+                                    size);
+
+        HttpHeaders headers = new HttpHeaders();
+        if (page.hasNext()) {
+            List<Employee> employees = page.getContent();
+            headers.set(EmployeeController.CONTINUATION_TOKEN_HEADER,
+                        ContinuationToken.encode(
+                            employees.get(employees.size() - 1).getId()));
+        }
+
+        return new ResponseEntity<DepartmentEmployees>(
+                        new DepartmentEmployees(department, page.getContent()),
+                        headers,
+                        HttpStatus.OK);
+    }
+
+    /**
+     * Get the headcount and task statistics of a Department.
+     *
+     * @param id of Department to summarize, taken from path
+     * @return HttpEntity containing the DepartmentSummary
+     */
+    @GetMapping("{id}/summary")
+    public HttpEntity<DepartmentSummary> getDepartmentSummary(
+                                        @PathVariable("id") final String id) {
+        logger.debug("getDepartmentSummary: {}", id);
+
+        return new ResponseEntity<DepartmentSummary>(
+                        departmentService.summarizeDepartment(id),
+                        HttpStatus.OK);
     }
 
     /**
@@ -69,20 +196,54 @@ public class DepartmentController {
      */
     @PostMapping
     public HttpEntity<Department> createDepartment(@RequestBody final Department newDepartment) {
-        logger.info("createDepartment: " + newDepartment);
+        logger.debug("createDepartment: {}", newDepartment);
         return new ResponseEntity<Department>(departmentService.saveDepartment(newDepartment),
                                               HttpStatus.CREATED);
     }
 
     /**
-     * Delete a Department from the repository.
+     * Update a Department record.
+     *
+     * Versions are checked as for Employee updates: a stale If-Match gives
+     * 412 Precondition Failed, a stale version in the body or another
+     * update landing first gives 409 Conflict.
+     *
+     * The Department is returned with its counts and the same ETag a GET
+     * would give it.
+     *
+     * @param id of Department to update
+     * @param ifMatch ETag of the version being replaced, if any
+     * @return HttpEntity containing updated Department on success
+     */
+    @PutMapping("{id}")
+    public HttpEntity<Department> updateDepartment(@PathVariable("id") final String id,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH,
+                                                                  required = false)
+                                                            final String ifMatch,
+                                                   @RequestBody final Department department) {
+        // Id from the path takes priority
+        department.setId(id);
+        logger.debug("updateDepartment: {} If-Match {}", department, ifMatch);
+
+        Department updated = departmentService.updateDepartment(
+                                department, ETags.ifMatchVersion(ifMatch));
+
+        return ResponseEntity.ok()
+                             .eTag(ETags.forVersion(updated.getVersion(),
+                                                    updated.getStats()))
+                             .body(updated);
+    }
+
+    /**
+     * Delete a Department from the repository. A Department that
+     * Employees still belong to is not deleted and gives CONFLICT.
      *
      * @param id of the Department to delete
      * @return HttpEntity containing NO_CONTENT
      */
     @DeleteMapping("{id}")
     public HttpEntity<Department> deleteDepartment(@PathVariable("id") final String id) {
-        logger.info("deleteDepartment: " + id);
+        logger.debug("deleteDepartment: {}", id);
 
         departmentService.deleteDepartment(id);
 
@@ -1,30 +1,64 @@
 package com.frankc.training.employee.controllers;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.frankc.training.employee.dto.BulkImportError;
+import com.frankc.training.employee.dto.BulkImportResult;
+import com.frankc.training.employee.dto.EmployeePatch;
+import com.frankc.training.employee.dto.EmployeeSearch;
+import com.frankc.training.employee.dto.EmployeeSearch.NameMatch;
 import com.frankc.training.employee.entities.Employee;
+import com.frankc.training.employee.exceptions.InvalidEntityFieldException;
+import com.frankc.training.employee.exceptions.InvalidSearchException;
+import com.frankc.training.employee.services.AsyncEmployeeService;
 import com.frankc.training.employee.services.EmployeeService;
+import com.frankc.training.employee.util.ContinuationToken;
+import com.frankc.training.employee.util.ETags;
+import com.frankc.training.employee.util.NdjsonWriter;
 
 /**
  * Implements interface from RESTful HTTP/JSON to Employee Repository.
  *
  * @author Frank Callaly
  */
+@Profile("!reactive")
 @RestController
 @RequestMapping(EmployeeController.BASE_PATH)
 public class EmployeeController {
@@ -33,33 +67,140 @@ public class EmployeeController {
 
     public static final String BASE_PATH = "/employees/";
 
+    public static final String CONTINUATION_TOKEN_HEADER = "X-Continuation-Token";
+
+    public static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+
     @Autowired
     private EmployeeService employeeService;
 
+    @Autowired
+    private AsyncEmployeeService asyncEmployeeService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
-     * Get a collection of all Employees in the repository.
+     * Get a page of Employees from the repository, ordered by id.
+     *
+     * If more Employees follow, the response carries an X-Continuation-Token
+     * header; pass it back as the continuationToken parameter to get the
+     * next page.
+     *
+     * The ETag is the version of the whole Employee collection, so a
+     * matching If-None-Match gets 304 Not Modified without any Employees
+     * being read.
      *
+     * @param size maximum number of Employees to return
+     * @param continuationToken token from the previous page, if any
      * @return HttpEntity containing List of Employees
      */
     @GetMapping
-    public HttpEntity<List<Employee>> findAllEmployees() {
-        return new ResponseEntity<List<Employee>>(
-                                    employeeService.findAllEmployees(),
-                                    HttpStatus.OK);
+    public HttpEntity<List<Employee>> findAllEmployees(
+            @RequestParam(value = "size", required = false) final Integer size,
+            @RequestParam(value = "continuationToken", required = false)
+                                            final String continuationToken,
+            final WebRequest request) {
+        String eTag = ETags.forCollection(EmployeeService.COLLECTION,
+                                          employeeService.collectionVersion());
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+
+        return pageResponse(employeeService.findEmployeesPage(
+                                ContinuationToken.decode(continuationToken),
+                                size));
+    }
+
+    /**
+     * Search for Employees by fullName, ordered by id.
+     *
+     * The match parameter is exact (the default), prefix or ignore_case.
+     * Results may be limited to a department, and to the fields listed in
+     * the fields parameter. Paged the same way as findAllEmployees.
+     *
+     * @param fullName name, or start of the name, to search for
+     * @param match how fullName is compared
+     * @param departmentId department to search within, if any
+     * @param fields Employee fields to return, all if not given
+     * @param size maximum number of Employees to return
+     * @param continuationToken token from the previous page, if any
+     * @return HttpEntity containing List of matching Employees
+     */
+    @GetMapping("search")
+    public HttpEntity<List<Employee>> searchEmployees(
+            @RequestParam("fullName") final String fullName,
+            @RequestParam(value = "match", defaultValue = "exact")
+                                            final String match,
+            @RequestParam(value = "departmentId", required = false)
+                                            final String departmentId,
+            @RequestParam(value = "fields", required = false)
+                                            final List<String> fields,
+            @RequestParam(value = "size", required = false) final Integer size,
+            @RequestParam(value = "continuationToken", required = false)
+                                            final String continuationToken,
+            final WebRequest request) {
+        String eTag = ETags.forCollection(EmployeeService.COLLECTION,
+                                          employeeService.collectionVersion());
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+
+        EmployeeSearch search = new EmployeeSearch(
+                fullName, nameMatch(match), departmentId,
+                fields == null ? Collections.<String>emptyList() : fields);
+        logger.debug("searchEmployees: {}", search);
+
+        return pageResponse(employeeService.searchEmployees(
+                                search,
+                                ContinuationToken.decode(continuationToken),
+                                size));
+    }
+
+    /**
+     * Export every Employee in the repository as newline delimited JSON.
+     *
+     * Employees are written to the response as they are read from a
+     * database cursor, so memory use stays flat however many there are.
+     *
+     * @return ResponseEntity streaming one Employee per line
+     */
+    @GetMapping("export")
+    public ResponseEntity<StreamingResponseBody> exportEmployees() {
+        logger.debug("exportEmployees");
+
+        StreamingResponseBody body = outputStream -> {
+            try (Stream<Employee> employees = employeeService.streamAllEmployees()) {
+                long count = NdjsonWriter.write(objectMapper, employees,
+                                                outputStream);
+                logger.info("exportEmployees: wrote {} employees", count);
+            }
+        };
+
+        return ResponseEntity.ok()
+                             .contentType(NdjsonWriter.APPLICATION_NDJSON)
+                             .body(body);
     }
 
     /**
      * Get a single particular Employee from the repository.
      *
+     * The response carries an ETag naming the Employee's version; a
+     * request whose If-None-Match matches it gets 304 Not Modified and no
+     * body, and it can be sent as If-Match to update this version only.
+     *
      * @param id of Employee to return, taken from path
      * @return HttpEntity containing Employee corresponding to the given id
      */
     @GetMapping("{id}")
     public HttpEntity<Employee> getEmployee(@PathVariable("id") final String id) {
-        logger.info("getEmployee: " + id);
+        logger.debug("getEmployee: {}", id);
+
+        Employee employee = employeeService.findEmployee(id);
 
-        return new ResponseEntity<Employee>(employeeService.findEmployee(id),
-                                            HttpStatus.OK);
+        return ResponseEntity.ok()
+                             .eTag(ETags.forVersion(employee.getVersion()))
+                             .body(employee);
     }
 
     /**
@@ -70,28 +211,131 @@ public class EmployeeController {
      */
     @PostMapping
     public HttpEntity<Employee> createEmployee(@RequestBody final Employee newEmployee) {
-        logger.info("createEmployee: " + newEmployee);
+        logger.debug("createEmployee: {}", newEmployee);
 
         return new ResponseEntity<Employee>(employeeService.saveEmployee(newEmployee),
                                             HttpStatus.CREATED);
     }
 
+    /**
+     * Create many new Employees in one request.
+     *
+     * The body is either a JSON array of Employees or newline delimited
+     * JSON with one Employee per line. It is parsed as it is read and saved
+     * in batches, so large imports are never held in memory all at once.
+     *
+     * A body that can't be parsed at all gives BAD_REQUEST. Malformed
+     * content partway through ends the import with the result so far,
+     * including an error for the record that couldn't be read, as the
+     * Employees before it have already been saved.
+     *
+     * @param body request body stream
+     * @return HttpEntity containing counts and an error for each Employee
+     *         that could not be saved
+     */
+    @PostMapping(value = "bulk",
+                 consumes = {MediaType.APPLICATION_JSON_VALUE,
+                             NdjsonWriter.APPLICATION_NDJSON_VALUE})
+    public HttpEntity<BulkImportResult> importEmployees(final InputStream body)
+                                                        throws IOException {
+        logger.info("importEmployees");
+
+        try (MappingIterator<Employee> employees = objectMapper
+                                .readerFor(Employee.class)
+                                .readValues(body)) {
+            return new ResponseEntity<BulkImportResult>(
+                                employeeService.importEmployees(employees),
+                                HttpStatus.OK);
+        } catch (JsonProcessingException ex) {
+            throw new InvalidEntityFieldException("Unable to read employees: "
+                                                  + ex.getMessage());
+        }
+    }
     
+    /**
+     * Check many new Employees the way the bulk import would, without
+     * saving any.
+     *
+     * Department and employee id lookups for the whole list run
+     * concurrently, off the request thread.
+     *
+     * @param employees JSON array of Employees to check
+     * @return HttpEntity containing an error for each problem found,
+     *         indexed by position in the array; empty if all are valid
+     */
+    @PostMapping("bulk/validate")
+    public CompletableFuture<HttpEntity<List<BulkImportError>>> validateEmployees(
+                                @RequestBody final List<Employee> employees) {
+        logger.debug("validateEmployees: {} employees", employees.size());
+
+        return asyncEmployeeService.validateEmployees(employees)
+                .thenApply(errors -> new ResponseEntity<List<BulkImportError>>(
+                                                    errors, HttpStatus.OK));
+    }
+
     /**
      * Update an Employee record.
      *
+     * With an If-Match header the update is made only if the Employee is
+     * still at that version, else 412 Precondition Failed. Without one, a
+     * version in the body is checked the same way but gives 409 Conflict.
+     * With neither, the update replaces whatever version is current.
+     *
      * @param id of employee to update
+     * @param ifMatch ETag of the version being replaced, if any
      * @return HttpEntity containing updated Employee on success
      */
     @PutMapping("{id}")
     public HttpEntity<Employee> updateEmployee(@PathVariable("id") final String id,
+                                               @RequestHeader(value = HttpHeaders.IF_MATCH,
+                                                              required = false)
+                                                        final String ifMatch,
                                                @RequestBody final Employee employee) {
         // Id from the path takes priority
         employee.setId(id);
-        logger.info("updateEmployee: " + employee);
+        logger.debug("updateEmployee: {} If-Match {}", employee, ifMatch);
+
+        Employee updated = employeeService.updateEmployee(
+                                employee, ETags.ifMatchVersion(ifMatch));
+
+        return ResponseEntity.ok()
+                             .eTag(ETags.forVersion(updated.getVersion()))
+                             .body(updated);
+    }
 
-        return new ResponseEntity<Employee>(employeeService.updateEmployee(employee),
-                                            HttpStatus.OK);
+    /**
+     * Change some fields of an Employee record.
+     *
+     * The body is a JSON merge patch: fields present are set, fields set
+     * to null are removed and fields left out are unchanged. currentTask
+     * is merged the same way, field by field. Only the fields present are
+     * validated, and they
+     * are written in one atomic update without reading the Employee first.
+     * An If-Match header limits the update to that version, else 412
+     * Precondition Failed.
+     *
+     * @param id of employee to change
+     * @param ifMatch ETag of the version being changed, if any
+     * @param patch JSON object of fields to change
+     * @return HttpEntity containing the changed Employee on success
+     */
+    @PatchMapping(value = "{id}",
+                  consumes = {MERGE_PATCH_JSON_VALUE,
+                              MediaType.APPLICATION_JSON_VALUE})
+    public HttpEntity<Employee> patchEmployee(@PathVariable("id") final String id,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH,
+                                                             required = false)
+                                                        final String ifMatch,
+                                              @RequestBody final ObjectNode patch) {
+        logger.debug("patchEmployee: {} {} If-Match {}", id, patch, ifMatch);
+
+        Employee patched = employeeService.patchEmployee(
+                                id, employeePatch(patch),
+                                ETags.ifMatchVersion(ifMatch));
+
+        return ResponseEntity.ok()
+                             .eTag(ETags.forVersion(patched.getVersion()))
+                             .body(patched);
     }
 
     /**
@@ -102,10 +346,71 @@ public class EmployeeController {
      */
     @DeleteMapping("{id}")
     public HttpEntity<Employee> deleteEmployee(@PathVariable("id") final String id) {
-        logger.info("deleteEmployee: " + id);
+        logger.debug("deleteEmployee: {}", id);
 
         employeeService.deleteEmployee(id);
 
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
+
+    private HttpEntity<List<Employee>> pageResponse(final Slice<Employee> page) {
+        HttpHeaders headers = new HttpHeaders();
+        if (page.hasNext()) {
+            List<Employee> employees = page.getContent();
+            headers.set(CONTINUATION_TOKEN_HEADER, ContinuationToken.encode(
+                            employees.get(employees.size() - 1).getId()));
+        }
+
+        return new ResponseEntity<List<Employee>>(page.getContent(),
+                                                  headers,
+                                                  HttpStatus.OK);
+    }
+
+    private EmployeePatch employeePatch(final ObjectNode json) {
+        EmployeePatch patch = new EmployeePatch();
+
+        Iterator<Map.Entry<String, JsonNode>> fields = json.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String name = field.getKey();
+            JsonNode value = field.getValue();
+
+            if (value.isNull()) {
+                patch.set(name, null);
+            } else if (EmployeePatch.CURRENT_TASK.equals(name)) {
+                if (!value.isObject()) {
+                    throw new InvalidEntityFieldException(
+                                    "Invalid employee currentTask: " + value);
+                }
+                // Merged into the current task, as RFC 7396 requires
+                Iterator<Map.Entry<String, JsonNode>> taskFields = value.fields();
+                while (taskFields.hasNext()) {
+                    Map.Entry<String, JsonNode> taskField = taskFields.next();
+                    String path = name + "." + taskField.getKey();
+                    if (taskField.getValue().isNull()) {
+                        patch.set(path, null);
+                    } else if (taskField.getValue().isTextual()) {
+                        patch.set(path, taskField.getValue().textValue());
+                    } else {
+                        throw new InvalidEntityFieldException(
+                                    "Invalid value for employee field: " + path);
+                    }
+                }
+            } else if (value.isTextual()) {
+                patch.set(name, value.textValue());
+            } else {
+                throw new InvalidEntityFieldException(
+                                "Invalid value for employee field: " + name);
+            }
+        }
+        return patch;
+    }
+
+    private static NameMatch nameMatch(final String match) {
+        try {
+            return NameMatch.valueOf(match.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidSearchException("Invalid match: " + match);
+        }
+    }
 }
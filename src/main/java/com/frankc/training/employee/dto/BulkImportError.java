@@ -0,0 +1,40 @@
+package com.frankc.training.employee.dto;
+
+/**
+ * Reports why one record in a bulk import was not saved.
+ */
+public class BulkImportError {
+
+    private int index;
+
+    private String message;
+
+    public BulkImportError() {
+    }
+
+    public BulkImportError(int index, String message) {
+        this.index = index;
+        this.message = message;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkImportError [index=" + index + ", message=" + message + "]";
+    }
+}
@@ -0,0 +1,51 @@
+package com.frankc.training.employee.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import: how many records were received and saved,
+ * and an error for each record that was not saved.
+ */
+public class BulkImportResult {
+
+    private int received;
+
+    private int inserted;
+
+    private List<BulkImportError> errors = new ArrayList<>();
+
+    public int getReceived() {
+        return received;
+    }
+
+    public void setReceived(int received) {
+        this.received = received;
+    }
+
+    public int getInserted() {
+        return inserted;
+    }
+
+    public void setInserted(int inserted) {
+        this.inserted = inserted;
+    }
+
+    public List<BulkImportError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<BulkImportError> errors) {
+        this.errors = errors;
+    }
+
+    public void addError(int index, String message) {
+        errors.add(new BulkImportError(index, message));
+    }
+
+    @Override
+    public String toString() {
+        return "BulkImportResult [received=" + received + ", inserted="
+               + inserted + ", errors=" + errors.size() + "]";
+    }
+}
@@ -0,0 +1,46 @@
+package com.frankc.training.employee.dto;
+
+import java.util.List;
+
+import com.frankc.training.employee.entities.Department;
+import com.frankc.training.employee.entities.Employee;
+
+/**
+ * A Department together with one page of its Employees.
+ */
+public class DepartmentEmployees {
+
+    private Department department;
+
+    private List<Employee> employees;
+
+    public DepartmentEmployees() {
+    }
+
+    public DepartmentEmployees(Department department, List<Employee> employees) {
+        this.department = department;
+        this.employees = employees;
+    }
+
+    public Department getDepartment() {
+        return department;
+    }
+
+    public void setDepartment(Department department) {
+        this.department = department;
+    }
+
+    public List<Employee> getEmployees() {
+        return employees;
+    }
+
+    public void setEmployees(List<Employee> employees) {
+        this.employees = employees;
+    }
+
+    @Override
+    public String toString() {
+        return "DepartmentEmployees [department=" + department
+               + ", employees=" + employees + "]";
+    }
+}
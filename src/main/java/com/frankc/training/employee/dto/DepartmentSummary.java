@@ -0,0 +1,70 @@
+package com.frankc.training.employee.dto;
+
+/**
+ * Headcount and task statistics for a Department.
+ */
+public class DepartmentSummary {
+
+    private String departmentId;
+
+    private String name;
+
+    private long headcount;
+
+    private long withTask;
+
+    private long withoutTask;
+
+    public String getDepartmentId() {
+        return departmentId;
+    }
+
+    public void setDepartmentId(String departmentId) {
+        this.departmentId = departmentId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getHeadcount() {
+        return headcount;
+    }
+
+    public void setHeadcount(long headcount) {
+        this.headcount = headcount;
+    }
+
+    /**
+     * @return number of Employees with a currentTask
+     */
+    public long getWithTask() {
+        return withTask;
+    }
+
+    public void setWithTask(long withTask) {
+        this.withTask = withTask;
+    }
+
+    /**
+     * @return number of Employees without a currentTask
+     */
+    public long getWithoutTask() {
+        return withoutTask;
+    }
+
+    public void setWithoutTask(long withoutTask) {
+        this.withoutTask = withoutTask;
+    }
+
+    @Override
+    public String toString() {
+        return "DepartmentSummary [departmentId=" + departmentId + ", name="
+               + name + ", headcount=" + headcount + ", withTask=" + withTask
+               + ", withoutTask=" + withoutTask + "]";
+    }
+}
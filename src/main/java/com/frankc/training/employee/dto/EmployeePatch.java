@@ -0,0 +1,62 @@
+package com.frankc.training.employee.dto;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Changes to some of an Employee's fields, as sent in a merge patch.
+ *
+ * Only the fields present are changed. A null value removes the field.
+ * currentTask can be replaced whole, or its own fields changed through
+ * their dotted paths, such as currentTask.title, which merge into it.
+ */
+public class EmployeePatch {
+
+    public static final String FULL_NAME = "fullName";
+    public static final String DEPARTMENT_ID = "departmentId";
+    public static final String CURRENT_TASK = "currentTask";
+    public static final String CURRENT_TASK_TITLE = "currentTask.title";
+    public static final String CURRENT_TASK_DESCRIPTION =
+                                                "currentTask.description";
+
+    /** Fields that may be patched; the id never changes. */
+    public static final Set<String> FIELDS = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList(FULL_NAME, DEPARTMENT_ID,
+                                        CURRENT_TASK, CURRENT_TASK_TITLE,
+                                        CURRENT_TASK_DESCRIPTION)));
+
+    private final Map<String, Object> changes = new LinkedHashMap<>();
+
+    public EmployeePatch set(String field, Object value) {
+        changes.put(field, value);
+        return this;
+    }
+
+    public boolean touches(String field) {
+        return changes.containsKey(field);
+    }
+
+    public Object get(String field) {
+        return changes.get(field);
+    }
+
+    /**
+     * @return new value of each touched field, null for removed fields
+     */
+    public Map<String, Object> getChanges() {
+        return Collections.unmodifiableMap(changes);
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "EmployeePatch " + changes;
+    }
+}
@@ -0,0 +1,82 @@
+package com.frankc.training.employee.dto;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Criteria for searching Employees by name.
+ */
+public class EmployeeSearch {
+
+    /**
+     * How fullName is compared with the search term.
+     */
+    public enum NameMatch {
+        /** Equal, using the fullName index. */
+        EXACT,
+        /** Starts with, an anchored regex scanning part of the index. */
+        PREFIX,
+        /** Equal ignoring case, using the case insensitive fullName index. */
+        IGNORE_CASE
+    }
+
+    private String fullName;
+
+    private NameMatch match = NameMatch.EXACT;
+
+    private String departmentId;
+
+    private List<String> fields = Collections.emptyList();
+
+    public EmployeeSearch() {
+    }
+
+    public EmployeeSearch(String fullName, NameMatch match,
+                          String departmentId, List<String> fields) {
+        this.fullName = fullName;
+        this.match = match;
+        this.departmentId = departmentId;
+        this.fields = fields;
+    }
+
+    public String getFullName() {
+        return fullName;
+    }
+
+    public void setFullName(String fullName) {
+        this.fullName = fullName;
+    }
+
+    public NameMatch getMatch() {
+        return match;
+    }
+
+    public void setMatch(NameMatch match) {
+        this.match = match;
+    }
+
+    public String getDepartmentId() {
+        return departmentId;
+    }
+
+    public void setDepartmentId(String departmentId) {
+        this.departmentId = departmentId;
+    }
+
+    /**
+     * @return Employee fields to return, all fields if empty
+     */
+    public List<String> getFields() {
+        return fields;
+    }
+
+    public void setFields(List<String> fields) {
+        this.fields = fields;
+    }
+
+    @Override
+    public String toString() {
+        return "EmployeeSearch [fullName=" + fullName + ", match=" + match
+               + ", departmentId=" + departmentId + ", fields=" + fields + "]";
+    }
+}
@@ -0,0 +1,77 @@
+package com.frankc.training.employee.dto;
+
+/**
+ * An Employee or Department being created, updated or deleted, as pushed
+ * to subscribers of the change stream.
+ */
+public class EntityChange {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private String collection;
+
+    private Type type;
+
+    private String id;
+
+    private Object entity;
+
+    public EntityChange() {
+    }
+
+    public EntityChange(String collection, Type type, String id,
+                        Object entity) {
+        this.collection = collection;
+        this.type = type;
+        this.id = id;
+        this.entity = entity;
+    }
+
+    /**
+     * @return employees or departments
+     */
+    public String getCollection() {
+        return collection;
+    }
+
+    public void setCollection(String collection) {
+        this.collection = collection;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    /**
+     * @return the Employee or Department as written, null if deleted
+     */
+    public Object getEntity() {
+        return entity;
+    }
+
+    public void setEntity(Object entity) {
+        this.entity = entity;
+    }
+
+    @Override
+    public String toString() {
+        return "EntityChange [collection=" + collection + ", type=" + type
+               + ", id=" + id + "]";
+    }
+}
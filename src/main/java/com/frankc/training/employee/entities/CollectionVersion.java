@@ -0,0 +1,40 @@
+package com.frankc.training.employee.entities;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Counter bumped on every write to a collection.
+ *
+ * Lets the current state of a whole collection be identified, e.g. for
+ * an ETag, without reading the collection itself.
+ */
+@Document(collection="collectionVersions")
+public class CollectionVersion {
+
+    @Id
+    private String id;
+
+    private long version;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    @Override
+    public String toString() {
+        return "CollectionVersion [id=" + id + ", version=" + version + "]";
+    }
+}
@@ -1,9 +1,13 @@
 package com.frankc.training.employee.entities;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 @Document(collection="departments")
 public class Department {
 
@@ -13,6 +17,13 @@ public class Department {
     @Indexed(unique=true)
     private String name;
 
+    @Version
+    private Long version;
+
+    @Transient
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private DepartmentStats stats;
+
     public String getId() {
         return id;
     }
@@ -29,8 +40,33 @@ public class Department {
         this.name = name;
     }
 
+    /**
+     * @return number of times the Department has been written, checked on
+     *         every update so concurrent updates can't overwrite each other
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    /**
+     * @return Employee counts, filled in when the Department is read, not
+     *         stored with it
+     */
+    public DepartmentStats getStats() {
+        return stats;
+    }
+
+    public void setStats(DepartmentStats stats) {
+        this.stats = stats;
+    }
+
     @Override
     public String toString() {
-        return "Department [id=" + id + ", name=" + name + "]";
+        return "Department [id=" + id + ", name=" + name
+               + ", version=" + version + ", stats=" + stats + "]";
     }
 }
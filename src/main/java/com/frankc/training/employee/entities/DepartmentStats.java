@@ -0,0 +1,70 @@
+package com.frankc.training.employee.entities;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Employee counts for one Department, kept up to date by EmployeeService
+ * as Employees are written rather than recounted on every read.
+ *
+ * The id is the id of the Department.
+ */
+@Document(collection="departmentStats")
+public class DepartmentStats {
+
+    @Id
+    private String id;
+
+    private long headcount;
+
+    private long withTask;
+
+    public DepartmentStats() {
+    }
+
+    public DepartmentStats(String id, long headcount, long withTask) {
+        this.id = id;
+        this.headcount = headcount;
+        this.withTask = withTask;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public long getHeadcount() {
+        return headcount;
+    }
+
+    public void setHeadcount(long headcount) {
+        this.headcount = headcount;
+    }
+
+    /**
+     * @return number of Employees with a currentTask
+     */
+    public long getWithTask() {
+        return withTask;
+    }
+
+    public void setWithTask(long withTask) {
+        this.withTask = withTask;
+    }
+
+    /**
+     * @return number of Employees without a currentTask
+     */
+    public long getWithoutTask() {
+        return headcount - withTask;
+    }
+
+    @Override
+    public String toString() {
+        return "DepartmentStats [id=" + id + ", headcount=" + headcount
+               + ", withTask=" + withTask + "]";
+    }
+}
@@ -1,10 +1,19 @@
 package com.frankc.training.employee.entities;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection="employees")
+@CompoundIndexes({
+    @CompoundIndex(name="departmentId_fullName",
+                   def="{'departmentId': 1, 'fullName': 1}"),
+    @CompoundIndex(name="departmentId_id",
+                   def="{'departmentId': 1, '_id': 1}")
+})
 public class Employee {
 
     @Id
@@ -17,6 +26,9 @@ public class Employee {
 
     private Task currentTask;
 
+    @Version
+    private Long version;
+
     public Task getCurrentTask() {
         return currentTask;
     }
@@ -49,10 +61,22 @@ public class Employee {
         this.departmentId = departmentId;
     }
 
+    /**
+     * @return number of times the Employee has been written, checked on
+     *         every update so concurrent updates can't overwrite each other
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Employee [id=" + id + ", fullName=" + fullName
                + ", departmentId=" + departmentId + ", currentTask="
-               + currentTask + "]";
+               + currentTask + ", version=" + version + "]";
     }
 }
@@ -0,0 +1,19 @@
+package com.frankc.training.employee.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception for when attempt to delete a department that employees
+ * still belong to.
+ * 
+ * Sets HTTP status code to 409 with sensible message.
+ */
+@ResponseStatus(code = HttpStatus.CONFLICT)
+public class DepartmentNotEmptyException extends RuntimeException {
+    private static final long serialVersionUID = 3307512938460154921L;
+
+    public DepartmentNotEmptyException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,18 @@
+package com.frankc.training.employee.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception for when a page size or continuation token is not valid.
+ * 
+ * Sets HTTP status code to 400 with sensible message.
+ */
+@ResponseStatus(code = HttpStatus.BAD_REQUEST)
+public class InvalidPageRequestException extends RuntimeException {
+    private static final long serialVersionUID = 3978204650318835276L;
+
+    public InvalidPageRequestException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,18 @@
+package com.frankc.training.employee.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception for when search criteria are missing or not valid.
+ * 
+ * Sets HTTP status code to 400 with sensible message.
+ */
+@ResponseStatus(code = HttpStatus.BAD_REQUEST)
+public class InvalidSearchException extends RuntimeException {
+    private static final long serialVersionUID = -6158318029125745301L;
+
+    public InvalidSearchException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,19 @@
+package com.frankc.training.employee.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception for when an If-Match header does not match the current
+ * version of an Entity.
+ * 
+ * Sets HTTP status code to 412 with sensible message.
+ */
+@ResponseStatus(code = HttpStatus.PRECONDITION_FAILED)
+public class PreconditionFailedException extends RuntimeException {
+    private static final long serialVersionUID = 2871530945637392874L;
+
+    public PreconditionFailedException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,18 @@
+package com.frankc.training.employee.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception for when there is no capacity left to queue more work.
+ * 
+ * Sets HTTP status code to 503 with sensible message.
+ */
+@ResponseStatus(code = HttpStatus.SERVICE_UNAVAILABLE)
+public class ServiceBusyException extends RuntimeException {
+    private static final long serialVersionUID = 7205914387315583904L;
+
+    public ServiceBusyException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,19 @@
+package com.frankc.training.employee.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception for when an Entity was changed by another request between
+ * being read and written.
+ * 
+ * Sets HTTP status code to 409 with sensible message.
+ */
+@ResponseStatus(code = HttpStatus.CONFLICT)
+public class VersionConflictException extends RuntimeException {
+    private static final long serialVersionUID = -4402719164372098116L;
+
+    public VersionConflictException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,366 @@
+package com.frankc.training.employee.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.frankc.training.employee.dto.DepartmentSummary;
+import com.frankc.training.employee.entities.DepartmentStats;
+import com.frankc.training.employee.entities.Employee;
+import com.frankc.training.employee.repositories.EmployeeRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * In-memory replica of every Employee for read-heavy deployments, held
+ * in an OffHeapEmployeeTable so that a directory of millions of
+ * Employees doesn't lengthen garbage collection pauses.
+ *
+ * Turned on with employee.index.enabled. Once the application is ready
+ * the index is loaded from the repository in the background; until then
+ * every lookup goes to the given fallback. EmployeeService updates it on
+ * each write, so it only sees writes made through this instance.
+ *
+ * Only ObjectId ids are indexed. Lookups of any other id go to the
+ * fallback, and if an Employee with such an id is stored the index turns
+ * itself off, as it could no longer list departments completely.
+ */
+@Component
+public class EmployeeIndex implements MeterBinder {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    public static final String SIZE_METRIC_NAME = "employee.index.size";
+    public static final String BYTES_METRIC_NAME = "employee.index.offheap.bytes";
+
+    @Autowired
+    private EmployeeRepository employeeRepo;
+
+    @Value("${employee.index.enabled:false}")
+    private boolean enabled;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Null until loaded, or once turned off
+    private OffHeapEmployeeTable table;
+
+    // Latest state of Employees written while loading, null if deleted
+    private Map<String, Employee> writtenWhileLoading;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        if (enabled) {
+            Thread loader = new Thread(this::load, "employee-index-loader");
+            loader.setDaemon(true);
+            loader.start();
+        }
+    }
+
+    /**
+     * Load every Employee from the repository, replacing the current
+     * index once done. Writes made meanwhile are applied at the end.
+     */
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            writtenWhileLoading = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long start = System.nanoTime();
+        OffHeapEmployeeTable loading = new OffHeapEmployeeTable();
+        try (Stream<Employee> employees = employeeRepo.streamAllBy()) {
+            Iterator<Employee> iterator = employees.iterator();
+            while (iterator.hasNext()) {
+                if (!store(loading, iterator.next())) {
+                    turnOff();
+                    return;
+                }
+            }
+        } catch (RuntimeException ex) {
+            logger.error("Unable to load employee index", ex);
+            turnOff();
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (writtenWhileLoading == null) {
+                // Turned off by a write while loading
+                return;
+            }
+            Map<String, Employee> written = writtenWhileLoading;
+            writtenWhileLoading = null;
+            for (Map.Entry<String, Employee> write : written.entrySet()) {
+                if (write.getValue() == null) {
+                    loading.remove(write.getKey());
+                } else if (!store(loading, write.getValue())) {
+                    return;
+                }
+            }
+            table = loading;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        logger.info("Loaded {} employees into the index in {} ms, {} bytes off heap",
+                    loading.size(), (System.nanoTime() - start) / 1_000_000,
+                    loading.offHeapBytes());
+    }
+
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return table != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Record an Employee being written, either of which may be null for a
+     * create or a delete.
+     */
+    public void update(Employee previous, Employee current) {
+        if (!enabled) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (writtenWhileLoading != null) {
+                if (current != null) {
+                    writtenWhileLoading.put(current.getId(), current);
+                } else if (previous != null) {
+                    writtenWhileLoading.put(previous.getId(), null);
+                }
+            }
+            // A reload keeps serving from the current index meanwhile
+            if (table != null) {
+                if (current != null) {
+                    if (!store(table, current)) {
+                        turnOff();
+                    }
+                } else if (previous != null
+                           && OffHeapEmployeeTable.isObjectId(previous.getId())) {
+                    table.remove(previous.getId());
+                }
+            }
+        } catch (RuntimeException ex) {
+            // The write itself has succeeded, only the index is lost
+            logger.error("Turning off the employee index", ex);
+            turnOff();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param employeeId to look up
+     * @param fallback finds the Employee if the index can't
+     * @return the Employee with the given id
+     */
+    public Optional<Employee> find(String employeeId,
+                                   Function<String, Optional<Employee>> fallback) {
+        if (!OffHeapEmployeeTable.isObjectId(employeeId)) {
+            return fallback.apply(employeeId);
+        }
+
+        ByteBuffer document;
+        lock.readLock().lock();
+        try {
+            if (table == null) {
+                document = null;
+            } else {
+                document = table.get(employeeId);
+                if (document == null) {
+                    return Optional.empty();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // The fallback is only called outside the lock
+        return document == null ? fallback.apply(employeeId)
+                                : Optional.of(decode(document));
+    }
+
+    /**
+     * Find a page of a Department's Employees ordered by id, as
+     * EmployeeRepository.findByDepartmentIdAndIdGreaterThan does.
+     *
+     * @param departmentId of the Department
+     * @param afterId id of the last Employee on the previous page, or null
+     * @param size maximum number of Employees to return
+     * @param fallback finds the page if the index can't
+     * @return Slice of Employees, hasNext() tells if another page follows
+     */
+    public Slice<Employee> findDepartmentPage(String departmentId,
+                                              String afterId, int size,
+                                              Supplier<Slice<Employee>> fallback) {
+        if (afterId != null && !OffHeapEmployeeTable.isObjectId(afterId)) {
+            return fallback.get();
+        }
+
+        List<ByteBuffer> documents = null;
+        lock.readLock().lock();
+        try {
+            if (table != null) {
+                // One extra tells if another page follows
+                documents = table.departmentPage(departmentId, afterId, size + 1);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (documents == null) {
+            return fallback.get();
+        }
+
+        boolean hasNext = documents.size() > size;
+        List<Employee> employees = new ArrayList<>(size);
+        for (ByteBuffer document : documents.subList(0, Math.min(size, documents.size()))) {
+            employees.add(decode(document));
+        }
+        return new SliceImpl<>(employees, PageRequest.of(0, size, Sort.by("id")),
+                               hasNext);
+    }
+
+    /**
+     * @param departmentId of the Department to summarize
+     * @param fallback summarizes the Department if the index can't
+     * @return headcount and task statistics; the name is not filled in
+     */
+    public DepartmentSummary summarize(String departmentId,
+                                       Supplier<DepartmentSummary> fallback) {
+        DepartmentStats stats = stats(departmentId, () -> null);
+        if (stats == null) {
+            return fallback.get();
+        }
+
+        DepartmentSummary summary = new DepartmentSummary();
+        summary.setDepartmentId(departmentId);
+        summary.setHeadcount(stats.getHeadcount());
+        summary.setWithTask(stats.getWithTask());
+        summary.setWithoutTask(stats.getWithoutTask());
+        return summary;
+    }
+
+    /**
+     * @param departmentId of the Department
+     * @param fallback gets the stored counters if the index can't count
+     * @return the Department's Employee counts
+     */
+    public DepartmentStats stats(String departmentId,
+                                 Supplier<DepartmentStats> fallback) {
+        lock.readLock().lock();
+        try {
+            if (table != null) {
+                return new DepartmentStats(departmentId,
+                                           table.headcount(departmentId),
+                                           table.withTask(departmentId));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return fallback.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder(SIZE_METRIC_NAME, this,
+                      index -> index.measure(OffHeapEmployeeTable::size))
+             .description("Employees held in the employee index")
+             .register(registry);
+        Gauge.builder(BYTES_METRIC_NAME, this,
+                      index -> index.measure(OffHeapEmployeeTable::offHeapBytes))
+             .description("Memory allocated outside the heap by the employee index")
+             .baseUnit("bytes")
+             .register(registry);
+    }
+
+    private double measure(Function<OffHeapEmployeeTable, Number> measurement) {
+        lock.readLock().lock();
+        try {
+            return table == null ? 0 : measurement.apply(table).doubleValue();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return false if the Employee can't be indexed
+     */
+    private boolean store(OffHeapEmployeeTable target, Employee employee) {
+        if (!OffHeapEmployeeTable.isObjectId(employee.getId())) {
+            logger.warn("Turning off the employee index, employee id {} "
+                        + "is not an ObjectId", employee.getId());
+            return false;
+        }
+
+        try {
+            target.put(employee.getId(), employee.getDepartmentId(),
+                       employee.getCurrentTask() != null,
+                       objectMapper.writeValueAsBytes(employee));
+            return true;
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(
+                            "Unable to index employee " + employee.getId(), ex);
+        }
+    }
+
+    private void turnOff() {
+        lock.writeLock().lock();
+        try {
+            table = null;
+            writtenWhileLoading = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Employee decode(ByteBuffer document) {
+        try {
+            return objectMapper.readValue(
+                        new ByteBufferBackedInputStream(document), Employee.class);
+        } catch (IOException ex) {
+            throw new DataRetrievalFailureException(
+                            "Unable to decode indexed employee", ex);
+        }
+    }
+}
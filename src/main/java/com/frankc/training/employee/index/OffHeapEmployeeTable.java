@@ -0,0 +1,443 @@
+package com.frankc.training.employee.index;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Employee documents keyed by ObjectId, held outside the Java heap.
+ *
+ * Each ObjectId is kept as a long and an int rather than a String. The
+ * entries, the open-addressing hash table over them and the encoded
+ * documents all live in direct buffers, and each department's Employees
+ * are an int array of entry numbers sorted by id. However many
+ * Employees are held, the heap only sees a handful of buffers and one
+ * array per department, so the garbage collector has almost nothing to
+ * trace.
+ *
+ * Documents are appended to the data buffer and never overwritten in
+ * place; replaced documents are left as garbage until the buffer has to
+ * grow, when only the live ones are copied to the new buffer. A view
+ * returned by get() therefore stays valid after later writes. The data
+ * buffer is limited to 2GB.
+ *
+ * Not thread safe.
+ */
+public final class OffHeapEmployeeTable {
+
+    private static final int ENTRY_SIZE = 32;
+    private static final int HI = 0;
+    private static final int LO = 8;
+    private static final int DEPARTMENT = 12;
+    private static final int DATA_OFFSET = 16;
+    private static final int DATA_LENGTH = 20;
+    private static final int FLAGS = 24;
+
+    private static final int HAS_TASK = 1;
+    private static final int NO_DEPARTMENT = -1;
+
+    private static final int INITIAL_ENTRIES = 1024;
+    private static final int INITIAL_DATA_BYTES = 1 << 20;
+    private static final int MAX_DATA_BYTES = Integer.MAX_VALUE - 8;
+
+    /**
+     * A department's Employees, as entry numbers in id order.
+     */
+    private static final class Postings {
+        int[] entries = new int[8];
+        int size;
+        long withTask;
+    }
+
+    private ByteBuffer entries = ByteBuffer.allocateDirect(INITIAL_ENTRIES * ENTRY_SIZE);
+    private int entryCount;
+    private int[] freeEntries = new int[16];
+    private int freeCount;
+
+    // Entry number + 1 of each slot, 0 for an empty slot
+    private IntBuffer slots = ByteBuffer.allocateDirect(INITIAL_ENTRIES * 2 * 4)
+                                        .asIntBuffer();
+    private int size;
+
+    private ByteBuffer data = ByteBuffer.allocateDirect(INITIAL_DATA_BYTES);
+    private int dataEnd;
+    private long liveDataBytes;
+
+    private final Map<String, Integer> departmentOrdinals = new HashMap<>();
+    private final List<Postings> postings = new ArrayList<>();
+
+    /**
+     * @return whether the id is an ObjectId as Mongo generates it: 24
+     *         lower case hex digits
+     */
+    public static boolean isObjectId(String id) {
+        if (id == null || id.length() != 24) {
+            return false;
+        }
+        for (int i = 0; i < 24; ++i) {
+            char c = id.charAt(i);
+            if (!(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Store a document, replacing any with the same id.
+     *
+     * @param id of the Employee, must be an ObjectId
+     * @param departmentId of the Employee, or null
+     * @param hasTask whether the Employee has a currentTask
+     * @param document encoded Employee
+     */
+    public void put(String id, String departmentId, boolean hasTask,
+                    byte[] document) {
+        long hi = hi(id);
+        int lo = lo(id);
+        int department = departmentId == null
+                            ? NO_DEPARTMENT
+                            : departmentOrdinal(departmentId);
+
+        int slot = findSlot(hi, lo);
+        int entry = slots.get(slot) - 1;
+        if (entry < 0) {
+            entry = newEntry(hi, lo);
+            slots.put(slot, entry + 1);
+            ++size;
+        } else {
+            unpost(entry);
+            liveDataBytes -= entries.getInt(entry * ENTRY_SIZE + DATA_LENGTH);
+            // Not worth moving if the data buffer is reallocated
+            entries.putInt(entry * ENTRY_SIZE + DATA_LENGTH, 0);
+        }
+
+        int base = entry * ENTRY_SIZE;
+        entries.putInt(base + DEPARTMENT, department);
+        entries.putInt(base + FLAGS, hasTask ? HAS_TASK : 0);
+        entries.putInt(base + DATA_OFFSET, append(document));
+        entries.putInt(base + DATA_LENGTH, document.length);
+        liveDataBytes += document.length;
+        post(entry);
+
+        if (size > slots.capacity() * 6L / 10) {
+            resizeSlots(slots.capacity() * 2);
+        }
+    }
+
+    /**
+     * @param id of the Employee to remove, must be an ObjectId
+     * @return whether there was an Employee with the id
+     */
+    public boolean remove(String id) {
+        long hi = hi(id);
+        int lo = lo(id);
+
+        int slot = findSlot(hi, lo);
+        int entry = slots.get(slot) - 1;
+        if (entry < 0) {
+            return false;
+        }
+
+        unpost(entry);
+        liveDataBytes -= entries.getInt(entry * ENTRY_SIZE + DATA_LENGTH);
+        clearSlot(slot);
+        --size;
+
+        if (freeCount == freeEntries.length) {
+            freeEntries = Arrays.copyOf(freeEntries, freeCount * 2);
+        }
+        freeEntries[freeCount++] = entry;
+        return true;
+    }
+
+    /**
+     * @param id of the Employee, must be an ObjectId
+     * @return read-only view of the encoded Employee, or null if there is
+     *         none
+     */
+    public ByteBuffer get(String id) {
+        int entry = slots.get(findSlot(hi(id), lo(id))) - 1;
+        return entry < 0 ? null : document(entry);
+    }
+
+    /**
+     * Find a page of a department's Employees in id order.
+     *
+     * @param departmentId of the department
+     * @param afterId only Employees with greater ids, or null for all;
+     *                must be an ObjectId
+     * @param limit maximum number of Employees
+     * @return read-only views of the encoded Employees
+     */
+    public List<ByteBuffer> departmentPage(String departmentId, String afterId,
+                                           int limit) {
+        List<ByteBuffer> page = new ArrayList<>();
+        Postings list = postings(departmentId);
+        if (list == null) {
+            return page;
+        }
+
+        int from = afterId == null
+                    ? 0
+                    : insertionPoint(list, hi(afterId), lo(afterId), true);
+        for (int i = from; i < list.size && page.size() < limit; ++i) {
+            page.add(document(list.entries[i]));
+        }
+        return page;
+    }
+
+    /**
+     * @return number of Employees in the department
+     */
+    public long headcount(String departmentId) {
+        Postings list = postings(departmentId);
+        return list == null ? 0 : list.size;
+    }
+
+    /**
+     * @return number of Employees in the department with a currentTask
+     */
+    public long withTask(String departmentId) {
+        Postings list = postings(departmentId);
+        return list == null ? 0 : list.withTask;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return bytes allocated outside the heap
+     */
+    public long offHeapBytes() {
+        return (long) entries.capacity() + slots.capacity() * 4L
+               + data.capacity();
+    }
+
+    private Postings postings(String departmentId) {
+        Integer ordinal = departmentOrdinals.get(departmentId);
+        return ordinal == null ? null : postings.get(ordinal);
+    }
+
+    private int departmentOrdinal(String departmentId) {
+        Integer ordinal = departmentOrdinals.get(departmentId);
+        if (ordinal == null) {
+            ordinal = postings.size();
+            departmentOrdinals.put(departmentId, ordinal);
+            postings.add(new Postings());
+        }
+        return ordinal;
+    }
+
+    private void post(int entry) {
+        int base = entry * ENTRY_SIZE;
+        int department = entries.getInt(base + DEPARTMENT);
+        if (department == NO_DEPARTMENT) {
+            return;
+        }
+
+        Postings list = postings.get(department);
+        // New ObjectIds are increasing, so this is usually the end
+        int at = insertionPoint(list, entries.getLong(base + HI),
+                                entries.getInt(base + LO), false);
+        if (list.size == list.entries.length) {
+            list.entries = Arrays.copyOf(list.entries, list.size * 2);
+        }
+        System.arraycopy(list.entries, at, list.entries, at + 1,
+                         list.size - at);
+        list.entries[at] = entry;
+        ++list.size;
+        list.withTask += entries.getInt(base + FLAGS) & HAS_TASK;
+    }
+
+    private void unpost(int entry) {
+        int base = entry * ENTRY_SIZE;
+        int department = entries.getInt(base + DEPARTMENT);
+        if (department == NO_DEPARTMENT) {
+            return;
+        }
+
+        Postings list = postings.get(department);
+        int at = insertionPoint(list, entries.getLong(base + HI),
+                                entries.getInt(base + LO), false);
+        System.arraycopy(list.entries, at + 1, list.entries, at,
+                         list.size - at - 1);
+        --list.size;
+        list.withTask -= entries.getInt(base + FLAGS) & HAS_TASK;
+    }
+
+    /**
+     * Binary search of a department's Employees by id.
+     *
+     * @param after whether to skip an Employee with the given id
+     * @return index of the first Employee with an id not less than, or
+     *         if after is set greater than, the given id
+     */
+    private int insertionPoint(Postings list, long hi, int lo, boolean after) {
+        int low = 0;
+        int high = list.size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(list.entries[mid], hi, lo);
+            if (cmp < 0 || (after && cmp == 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int compare(int entry, long hi, int lo) {
+        int base = entry * ENTRY_SIZE;
+        int cmp = Long.compareUnsigned(entries.getLong(base + HI), hi);
+        return cmp != 0 ? cmp
+                        : Integer.compareUnsigned(entries.getInt(base + LO), lo);
+    }
+
+    private ByteBuffer document(int entry) {
+        int base = entry * ENTRY_SIZE;
+        int offset = entries.getInt(base + DATA_OFFSET);
+
+        ByteBuffer view = data.asReadOnlyBuffer();
+        view.limit(offset + entries.getInt(base + DATA_LENGTH));
+        view.position(offset);
+        return view;
+    }
+
+    private int newEntry(long hi, int lo) {
+        int entry;
+        if (freeCount > 0) {
+            entry = freeEntries[--freeCount];
+        } else {
+            if ((entryCount + 1) * ENTRY_SIZE > entries.capacity()) {
+                ByteBuffer grown = ByteBuffer.allocateDirect(entries.capacity() * 2);
+                entries.clear();
+                grown.put(entries);
+                entries = grown;
+            }
+            entry = entryCount++;
+        }
+
+        int base = entry * ENTRY_SIZE;
+        entries.putLong(base + HI, hi);
+        entries.putInt(base + LO, lo);
+        entries.putInt(base + DEPARTMENT, NO_DEPARTMENT);
+        entries.putInt(base + DATA_OFFSET, 0);
+        entries.putInt(base + DATA_LENGTH, 0);
+        return entry;
+    }
+
+    /**
+     * Append a document to the data buffer, moving the live documents to
+     * a new buffer first if there is no room.
+     *
+     * @return offset of the document
+     */
+    private int append(byte[] document) {
+        if (dataEnd + (long) document.length > data.capacity()) {
+            long needed = liveDataBytes + document.length;
+            if (needed > MAX_DATA_BYTES) {
+                throw new IllegalStateException(
+                        "Employee index is full at " + liveDataBytes + " bytes");
+            }
+            reallocateData((int) Math.min(MAX_DATA_BYTES,
+                                          Math.max(needed * 2, data.capacity())));
+        }
+
+        int offset = dataEnd;
+        ByteBuffer target = data.duplicate();
+        target.position(offset);
+        target.put(document);
+        dataEnd += document.length;
+        return offset;
+    }
+
+    private void reallocateData(int capacity) {
+        ByteBuffer moved = ByteBuffer.allocateDirect(capacity);
+
+        for (int slot = 0; slot < slots.capacity(); ++slot) {
+            int entry = slots.get(slot) - 1;
+            if (entry >= 0) {
+                int base = entry * ENTRY_SIZE;
+                int offset = moved.position();
+                moved.put(document(entry));
+                entries.putInt(base + DATA_OFFSET, offset);
+            }
+        }
+
+        // Views of the old buffer keep it reachable until they are gone
+        data = moved;
+        dataEnd = moved.position();
+    }
+
+    private int findSlot(long hi, int lo) {
+        int mask = slots.capacity() - 1;
+        for (int slot = hash(hi, lo) & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots.get(slot) - 1;
+            if (entry < 0) {
+                return slot;
+            }
+            int base = entry * ENTRY_SIZE;
+            if (entries.getLong(base + HI) == hi && entries.getInt(base + LO) == lo) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * Empty a slot, moving later entries of the same probe sequence back
+     * so that lookups never need tombstones.
+     */
+    private void clearSlot(int slot) {
+        int mask = slots.capacity() - 1;
+        int hole = slot;
+
+        for (int next = (hole + 1) & mask; ; next = (next + 1) & mask) {
+            int entry = slots.get(next) - 1;
+            if (entry < 0) {
+                break;
+            }
+            int base = entry * ENTRY_SIZE;
+            int home = hash(entries.getLong(base + HI),
+                            entries.getInt(base + LO)) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                slots.put(hole, entry + 1);
+                hole = next;
+            }
+        }
+        slots.put(hole, 0);
+    }
+
+    private void resizeSlots(int capacity) {
+        IntBuffer old = slots;
+        slots = ByteBuffer.allocateDirect(capacity * 4).asIntBuffer();
+
+        for (int i = 0; i < old.capacity(); ++i) {
+            int entry = old.get(i) - 1;
+            if (entry >= 0) {
+                int base = entry * ENTRY_SIZE;
+                slots.put(findSlot(entries.getLong(base + HI),
+                                   entries.getInt(base + LO)), entry + 1);
+            }
+        }
+    }
+
+    private static int hash(long hi, int lo) {
+        long h = (hi ^ (lo * 0x9E3779B97F4A7C15L)) * 0xC2B2AE3D27D4EB4FL;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static long hi(String objectId) {
+        return Long.parseUnsignedLong(objectId.substring(0, 16), 16);
+    }
+
+    private static int lo(String objectId) {
+        return Integer.parseUnsignedInt(objectId.substring(16), 16);
+    }
+}
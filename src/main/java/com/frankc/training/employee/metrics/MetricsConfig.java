@@ -0,0 +1,35 @@
+package com.frankc.training.employee.metrics;
+
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Enables @Timed on service methods and registers the Mongo command
+ * listener with the reactive Mongo client. MongoClientConfig adds it to
+ * the blocking one.
+ *
+ * HTTP request timings come from Spring Boot's own instrumentation.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    @Bean
+    public MongoCommandMetrics mongoCommandMetrics(MeterRegistry registry) {
+        return new MongoCommandMetrics(registry);
+    }
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoMetricsCustomizer(
+                                        MongoCommandMetrics commandMetrics) {
+        return settings -> settings.addCommandListener(commandMetrics);
+    }
+}
@@ -0,0 +1,51 @@
+package com.frankc.training.employee.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Mongo driver command listener recording the latency of every command
+ * sent to the server, tagged with the command name and its status.
+ */
+public class MongoCommandMetrics implements CommandListener {
+
+    public static final String METRIC_NAME = "mongodb.driver.commands";
+
+    private final MeterRegistry registry;
+
+    public MongoCommandMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        record(event.getCommandName(), "SUCCESS",
+               event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        record(event.getCommandName(), "FAILED",
+               event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    private void record(String command, String status, long nanos) {
+        Timer.builder(METRIC_NAME)
+             .description("Latency of Mongo commands")
+             .tag("command", command)
+             .tag("status", status)
+             .register(registry)
+             .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,37 @@
+package com.frankc.training.employee.reactive;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.frankc.training.employee.entities.CollectionVersion;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of CollectionVersionRepository.increment(), so
+ * writes made in reactive mode still change the collection ETags served by
+ * the servlet controllers.
+ */
+@Profile("reactive")
+@Component
+public class ReactiveCollectionVersions {
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    public Mono<Long> increment(String collection) {
+        return mongoTemplate.findAndModify(
+                    query(where("id").is(collection)),
+                    new Update().inc("version", 1),
+                    FindAndModifyOptions.options().upsert(true).returnNew(true),
+                    CollectionVersion.class)
+                .map(CollectionVersion::getVersion);
+    }
+}
@@ -0,0 +1,105 @@
+package com.frankc.training.employee.reactive;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.frankc.training.employee.entities.Department;
+import com.frankc.training.employee.exceptions.DepartmentNotEmptyException;
+import com.frankc.training.employee.exceptions.DuplicateDepartmentException;
+import com.frankc.training.employee.exceptions.EntityNotFoundException;
+import com.frankc.training.employee.repositories.ReactiveDepartmentRepository;
+import com.frankc.training.employee.repositories.ReactiveEmployeeRepository;
+import com.frankc.training.employee.services.DepartmentService;
+import com.frankc.training.employee.util.NdjsonWriter;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking handlers for the Department API, mirroring
+ * DepartmentController.
+ *
+ * @author Frank Callaly
+ */
+@Profile("reactive")
+@Component
+public class ReactiveDepartmentHandler {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private ReactiveDepartmentRepository departmentRepo;
+
+    @Autowired
+    private ReactiveEmployeeRepository employeeRepo;
+
+    @Autowired
+    private ReactiveCollectionVersions collectionVersions;
+
+    @Autowired
+    private ReactiveDepartmentStats departmentStats;
+
+    public Mono<ServerResponse> findAllDepartments(ServerRequest request) {
+        return ServerResponse.ok()
+                             .contentType(MediaType.APPLICATION_JSON)
+                             .body(departmentRepo.findAll(), Department.class);
+    }
+
+    public Mono<ServerResponse> exportDepartments(ServerRequest request) {
+        logger.debug("exportDepartments");
+
+        return ServerResponse.ok()
+                             .contentType(NdjsonWriter.APPLICATION_NDJSON)
+                             .body(departmentRepo.findAll(), Department.class);
+    }
+
+    public Mono<ServerResponse> getDepartment(ServerRequest request) {
+        String id = request.pathVariable("id");
+        logger.debug("getDepartment: {}", id);
+
+        return departmentRepo.findById(id)
+                .switchIfEmpty(Mono.error(new EntityNotFoundException(
+                                            "Invalid department id: " + id)))
+                .flatMap(department -> ServerResponse.ok()
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .syncBody(department));
+    }
+
+    public Mono<ServerResponse> createDepartment(ServerRequest request) {
+        return request.bodyToMono(Department.class)
+                .doOnNext(department -> logger.debug("createDepartment: {}",
+                                                     department))
+                .flatMap(departmentRepo::save)
+                .onErrorMap(DuplicateKeyException.class,
+                            ex -> new DuplicateDepartmentException())
+                .flatMap(saved -> collectionVersions
+                                    .increment(DepartmentService.COLLECTION)
+                                    .thenReturn(saved))
+                .flatMap(saved -> ServerResponse.status(HttpStatus.CREATED)
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .syncBody(saved));
+    }
+
+    public Mono<ServerResponse> deleteDepartment(ServerRequest request) {
+        String id = request.pathVariable("id");
+        logger.debug("deleteDepartment: {}", id);
+
+        return employeeRepo.existsByDepartmentId(id)
+                .flatMap(inUse -> inUse
+                        ? Mono.<Department>error(new DepartmentNotEmptyException(
+                                "Department " + id + " still has employees"))
+                        : departmentStats.removeDepartment(id))
+                .switchIfEmpty(Mono.error(new EntityNotFoundException(
+                                            "Invalid department id: " + id)))
+                .flatMap(removed -> collectionVersions
+                                    .increment(DepartmentService.COLLECTION))
+                .then(ServerResponse.noContent().build());
+    }
+}
@@ -0,0 +1,95 @@
+package com.frankc.training.employee.reactive;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.Objects;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.frankc.training.employee.entities.Department;
+import com.frankc.training.employee.entities.DepartmentStats;
+import com.frankc.training.employee.entities.Employee;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of the Department counters EmployeeService
+ * keeps, so that Employees written in reactive mode are counted the same
+ * way as those written through the servlet controllers.
+ */
+@Profile("reactive")
+@Component
+public class ReactiveDepartmentStats {
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    /**
+     * Remove an Employee and take it off its Department's counters.
+     *
+     * @return the removed Employee, or empty if there was none
+     */
+    public Mono<Employee> removeEmployee(String id) {
+        return mongoTemplate.findAndRemove(query(where("id").is(id)),
+                                           Employee.class)
+                .flatMap(removed -> countChange(removed, null)
+                                        .thenReturn(removed));
+    }
+
+    /**
+     * Remove a Department along with its counters.
+     *
+     * @return the removed Department, or empty if there was none
+     */
+    public Mono<Department> removeDepartment(String id) {
+        return mongoTemplate.findAndRemove(query(where("id").is(id)),
+                                           Department.class)
+                .flatMap(removed -> mongoTemplate.remove(
+                                            query(where("id").is(id)),
+                                            DepartmentStats.class)
+                                        .thenReturn(removed));
+    }
+
+    /**
+     * Update the Department counters for an Employee being replaced,
+     * either of which may be null for a create or a delete.
+     */
+    public Mono<Void> countChange(Employee previous, Employee current) {
+        if (previous != null && current != null
+                && Objects.equals(previous.getDepartmentId(),
+                                  current.getDepartmentId())) {
+            return adjust(current.getDepartmentId(), 0,
+                          withTask(current) - withTask(previous));
+        }
+
+        Mono<Void> removed = previous == null
+                ? Mono.empty()
+                : adjust(previous.getDepartmentId(), -1, -withTask(previous));
+        Mono<Void> added = current == null
+                ? Mono.empty()
+                : adjust(current.getDepartmentId(), 1, withTask(current));
+        return removed.then(added);
+    }
+
+    private Mono<Void> adjust(String departmentId, long headcount,
+                              long withTask) {
+        if (departmentId == null || (headcount == 0 && withTask == 0)) {
+            return Mono.empty();
+        }
+
+        return mongoTemplate.upsert(query(where("id").is(departmentId)),
+                                    new Update().inc("headcount", headcount)
+                                                .inc("withTask", withTask),
+                                    DepartmentStats.class)
+                            .then();
+    }
+
+    private static long withTask(Employee employee) {
+        return employee.getCurrentTask() == null ? 0 : 1;
+    }
+}
@@ -0,0 +1,272 @@
+package com.frankc.training.employee.reactive;
+
+import java.util.List;
+
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.frankc.training.employee.controllers.EmployeeController;
+import com.frankc.training.employee.entities.Employee;
+import com.frankc.training.employee.exceptions.EntityNotFoundException;
+import com.frankc.training.employee.exceptions.InvalidEntityFieldException;
+import com.frankc.training.employee.exceptions.InvalidPageRequestException;
+import com.frankc.training.employee.exceptions.PreconditionFailedException;
+import com.frankc.training.employee.exceptions.VersionConflictException;
+import com.frankc.training.employee.repositories.ReactiveDepartmentRepository;
+import com.frankc.training.employee.repositories.ReactiveEmployeeRepository;
+import com.frankc.training.employee.services.EmployeeService;
+import com.frankc.training.employee.util.ContinuationToken;
+import com.frankc.training.employee.util.ETags;
+import com.frankc.training.employee.util.EntityFieldValidator;
+import com.frankc.training.employee.util.NdjsonWriter;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking handlers for the Employee API, mirroring EmployeeController.
+ *
+ * Only active with the reactive profile, where ReactiveRoutes maps them to
+ * the servlet controller's URIs. Writes keep the collection versions and
+ * Department counters up to date as EmployeeService does. The caches,
+ * EmployeeIndex and ChangeLog are not updated: they only serve the
+ * servlet controllers, and servlet instances sharing the database keep
+ * theirs coherent with cache.coherence.
+ *
+ * @author Frank Callaly
+ */
+@Profile("reactive")
+@Component
+public class ReactiveEmployeeHandler {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private ReactiveEmployeeRepository employeeRepo;
+
+    @Autowired
+    private ReactiveDepartmentRepository departmentRepo;
+
+    @Autowired
+    private ReactiveCollectionVersions collectionVersions;
+
+    @Autowired
+    private ReactiveDepartmentStats departmentStats;
+
+    @Autowired
+    private EntityFieldValidator employeeValidator;
+
+    @Value("${employee.page.default-size:100}")
+    private int defaultPageSize;
+
+    @Value("${employee.page.max-size:1000}")
+    private int maxPageSize;
+
+    public Mono<ServerResponse> findAllEmployees(ServerRequest request) {
+        String afterId = ContinuationToken.decode(
+                    request.queryParam("continuationToken").orElse(null));
+        int size = pageSize(request.queryParam("size").orElse(null));
+
+        // Fetch one extra to find out if another page follows
+        PageRequest pageRequest = PageRequest.of(0, size + 1, Sort.by("id"));
+        Flux<Employee> employees;
+        if (afterId == null) {
+            employees = employeeRepo.findAllBy(pageRequest);
+        } else if (!ObjectId.isValid(afterId)) {
+            employees = employeeRepo.findAfterNonObjectId(afterId, pageRequest);
+        } else {
+            employees = employeeRepo.findByIdGreaterThan(afterId, pageRequest);
+        }
+
+        return employees.collectList().flatMap(page -> {
+            ServerResponse.BodyBuilder response = ServerResponse.ok()
+                                    .contentType(MediaType.APPLICATION_JSON);
+
+            List<Employee> content = page;
+            if (page.size() > size) {
+                content = page.subList(0, size);
+                response.header(EmployeeController.CONTINUATION_TOKEN_HEADER,
+                                ContinuationToken.encode(
+                                        content.get(size - 1).getId()));
+            }
+            return response.syncBody(content);
+        });
+    }
+
+    public Mono<ServerResponse> exportEmployees(ServerRequest request) {
+        logger.debug("exportEmployees");
+
+        return ServerResponse.ok()
+                             .contentType(NdjsonWriter.APPLICATION_NDJSON)
+                             .body(employeeRepo.findAll(), Employee.class);
+    }
+
+    public Mono<ServerResponse> getEmployee(ServerRequest request) {
+        String id = request.pathVariable("id");
+        logger.debug("getEmployee: {}", id);
+
+        return employeeRepo.findById(id)
+                .switchIfEmpty(Mono.error(new EntityNotFoundException(
+                                            "Invalid employee id: " + id)))
+                .flatMap(employee -> ServerResponse.ok()
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .eTag(ETags.forVersion(employee.getVersion()))
+                                    .syncBody(employee));
+    }
+
+    /**
+     * A client supplied id may replace an existing Employee, as in
+     * EmployeeService.saveEmployee.
+     */
+    public Mono<ServerResponse> createEmployee(ServerRequest request) {
+        return request.bodyToMono(Employee.class)
+                .doOnNext(employee -> logger.debug("createEmployee: {}",
+                                                   employee))
+                .flatMap(employee -> findPrevious(employee)
+                        .flatMap(previous -> {
+                            if (employee.getVersion() == null) {
+                                employee.setVersion(previous.getVersion());
+                            }
+                            return saveEmployee(employee, previous);
+                        })
+                        .switchIfEmpty(Mono.defer(() -> {
+                            employee.setVersion(null);
+                            return saveEmployee(employee, null);
+                        }))
+                        // Lost a race with another write of the same id
+                        .onErrorMap(ex -> ex instanceof OptimisticLockingFailureException
+                                          || ex instanceof DuplicateKeyException,
+                                    ex -> new VersionConflictException(
+                                            "Employee " + employee.getId()
+                                            + " was changed by another request")))
+                .flatMap(saved -> ServerResponse.status(HttpStatus.CREATED)
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .syncBody(saved));
+    }
+
+    /**
+     * Versions are checked as in EmployeeService.updateEmployee.
+     */
+    public Mono<ServerResponse> updateEmployee(ServerRequest request) {
+        String id = request.pathVariable("id");
+        Long expectedVersion = ETags.ifMatchVersion(
+                request.headers().asHttpHeaders().getFirst(HttpHeaders.IF_MATCH));
+
+        return request.bodyToMono(Employee.class)
+                .doOnNext(employee -> {
+                    // Id from the path takes priority
+                    employee.setId(id);
+                    logger.debug("updateEmployee: {}", employee);
+                })
+                .flatMap(employee -> employeeRepo.findById(id)
+                        .switchIfEmpty(Mono.error(new EntityNotFoundException(
+                                            "Invalid employee id: " + id)))
+                        .flatMap(previous -> {
+                            Long currentVersion = previous.getVersion();
+                            if (expectedVersion != null) {
+                                if (!expectedVersion.equals(currentVersion)) {
+                                    return Mono.error(new PreconditionFailedException(
+                                            "Employee " + id + " is at version "
+                                            + currentVersion));
+                                }
+                                employee.setVersion(expectedVersion);
+                            } else if (employee.getVersion() == null) {
+                                employee.setVersion(currentVersion);
+                            }
+                            return saveEmployee(employee, previous);
+                        }))
+                .onErrorMap(OptimisticLockingFailureException.class, ex -> {
+                    String message = "Employee " + id
+                                     + " was changed by another request";
+                    return expectedVersion != null
+                            ? new PreconditionFailedException(message)
+                            : new VersionConflictException(message);
+                })
+                .flatMap(saved -> ServerResponse.ok()
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .eTag(ETags.forVersion(saved.getVersion()))
+                                    .syncBody(saved));
+    }
+
+    public Mono<ServerResponse> deleteEmployee(ServerRequest request) {
+        String id = request.pathVariable("id");
+        logger.debug("deleteEmployee: {}", id);
+
+        return departmentStats.removeEmployee(id)
+                .switchIfEmpty(Mono.error(new EntityNotFoundException(
+                                            "Invalid employee id: " + id)))
+                .flatMap(removed -> collectionVersions
+                                    .increment(EmployeeService.COLLECTION))
+                .then(ServerResponse.noContent().build());
+    }
+
+    private Mono<Employee> findPrevious(Employee employee) {
+        return employee.getId() == null ? Mono.empty()
+                                        : employeeRepo.findById(employee.getId());
+    }
+
+    /**
+     * @param previous the Employee being replaced, null for a create
+     */
+    private Mono<Employee> saveEmployee(Employee employee, Employee previous) {
+        if (employee.getDepartmentId() == null) {
+            return Mono.error(new EntityNotFoundException(
+                                        "Invalid department id: null"));
+        }
+
+        return departmentRepo.existsById(employee.getDepartmentId())
+                .flatMap(exists -> {
+                    if (!exists) {
+                        return Mono.error(new EntityNotFoundException(
+                                            "Invalid department id: "
+                                            + employee.getDepartmentId()));
+                    }
+
+                    if (!employeeValidator.validateFullName(
+                                                employee.getFullName())) {
+                        return Mono.error(new InvalidEntityFieldException(
+                                            "Invalid employee name: "
+                                            + employee.getFullName()));
+                    }
+
+                    return employeeRepo.save(employee);
+                })
+                .flatMap(saved -> collectionVersions
+                                    .increment(EmployeeService.COLLECTION)
+                                    .then(departmentStats.countChange(previous,
+                                                                      saved))
+                                    .thenReturn(saved));
+    }
+
+    private int pageSize(String size) {
+        if (size == null) {
+            return defaultPageSize;
+        }
+
+        int requested;
+        try {
+            requested = Integer.parseInt(size);
+        } catch (NumberFormatException ex) {
+            throw new InvalidPageRequestException("Invalid page size: " + size);
+        }
+
+        if (requested < 1) {
+            throw new InvalidPageRequestException("Invalid page size: " + size);
+        }
+        return Math.min(requested, maxPageSize);
+    }
+}
@@ -0,0 +1,89 @@
+package com.frankc.training.employee.reactive;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.DELETE;
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RequestPredicates.PUT;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+import java.util.Arrays;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.frankc.training.employee.controllers.DepartmentController;
+import com.frankc.training.employee.controllers.EmployeeController;
+import com.frankc.training.employee.util.NdjsonWriter;
+
+/**
+ * Routes for the reactive profile.
+ *
+ * Maps the core CRUD and export URIs of EmployeeController and
+ * DepartmentController onto the non-blocking handlers. Errors are
+ * signalled with the usual exception classes, so their @ResponseStatus
+ * gives the same HTTP status codes.
+ *
+ * These servlet endpoints have no reactive route: employee search, bulk
+ * import and its validation, PATCH of an Employee, PUT of a Department,
+ * a Department's employees and summary, and the change stream. Lists
+ * carry no collection ETags, and Departments are returned without their
+ * stats.
+ */
+@Profile("reactive")
+@Configuration
+public class ReactiveRoutes implements WebFluxConfigurer {
+
+    private final ObjectMapper objectMapper;
+
+    public ReactiveRoutes(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> employeeRoutes(
+                                        ReactiveEmployeeHandler handler) {
+        String base = EmployeeController.BASE_PATH;
+
+        return route(GET(base), handler::findAllEmployees)
+                .andRoute(GET(base + "export"), handler::exportEmployees)
+                .andRoute(GET(base + "{id}"), handler::getEmployee)
+                .andRoute(POST(base), handler::createEmployee)
+                .andRoute(PUT(base + "{id}"), handler::updateEmployee)
+                .andRoute(DELETE(base + "{id}"), handler::deleteEmployee);
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> departmentRoutes(
+                                        ReactiveDepartmentHandler handler) {
+        String base = DepartmentController.BASE_PATH;
+
+        return route(GET(base), handler::findAllDepartments)
+                .andRoute(GET(base + "export"), handler::exportDepartments)
+                .andRoute(GET(base + "{id}"), handler::getDepartment)
+                .andRoute(POST(base), handler::createDepartment)
+                .andRoute(DELETE(base + "{id}"), handler::deleteDepartment);
+    }
+
+    /**
+     * Let Jackson write NDJSON, one document per line as each is emitted.
+     */
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        Jackson2JsonEncoder encoder = new Jackson2JsonEncoder(objectMapper,
+                                        MediaType.APPLICATION_JSON,
+                                        new MediaType("application", "*+json"),
+                                        NdjsonWriter.APPLICATION_NDJSON);
+        encoder.setStreamingMediaTypes(Arrays.asList(
+                                        MediaType.APPLICATION_STREAM_JSON,
+                                        NdjsonWriter.APPLICATION_NDJSON));
+        configurer.defaultCodecs().jackson2JsonEncoder(encoder);
+    }
+}
@@ -0,0 +1,11 @@
+package com.frankc.training.employee.repositories;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import com.frankc.training.employee.entities.CollectionVersion;
+
+public interface CollectionVersionRepository
+                    extends MongoRepository<CollectionVersion, String>,
+                            CollectionVersionRepositoryCustom {
+
+}
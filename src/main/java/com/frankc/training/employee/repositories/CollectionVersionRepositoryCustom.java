@@ -0,0 +1,16 @@
+package com.frankc.training.employee.repositories;
+
+/**
+ * CollectionVersion repository operations that go straight to MongoTemplate.
+ */
+public interface CollectionVersionRepositoryCustom {
+
+    /**
+     * Atomically increment the version of a collection, creating the
+     * counter if it does not exist yet.
+     *
+     * @param collection name of the collection that was written
+     * @return the new version
+     */
+    long increment(String collection);
+}
@@ -0,0 +1,33 @@
+package com.frankc.training.employee.repositories;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.frankc.training.employee.entities.CollectionVersion;
+
+/**
+ * Implements CollectionVersionRepositoryCustom, picked up by Spring Data as
+ * a fragment of CollectionVersionRepository.
+ */
+public class CollectionVersionRepositoryImpl
+                            implements CollectionVersionRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public long increment(String collection) {
+        CollectionVersion updated = mongoTemplate.findAndModify(
+                query(where("id").is(collection)),
+                new Update().inc("version", 1),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                CollectionVersion.class);
+
+        return updated.getVersion();
+    }
+}
@@ -1,5 +1,7 @@
 package com.frankc.training.employee.repositories;
 
+import java.util.stream.Stream;
+
 import org.springframework.data.mongodb.repository.MongoRepository;
 
 import com.frankc.training.employee.entities.Department;
@@ -8,4 +10,14 @@ public interface DepartmentRepository extends MongoRepository<Department, String
 
     Department findByName(String name);
 
+    Stream<Department> streamAllBy();
+
+    /**
+     * Delete a Department with a single findAndRemove.
+     *
+     * @param id of the Department to delete
+     * @return the deleted Department, or null if there was none
+     */
+    Department removeById(String id);
+
 }
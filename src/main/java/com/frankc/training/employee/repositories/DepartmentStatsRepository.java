@@ -0,0 +1,11 @@
+package com.frankc.training.employee.repositories;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import com.frankc.training.employee.entities.DepartmentStats;
+
+public interface DepartmentStatsRepository
+                    extends MongoRepository<DepartmentStats, String>,
+                            DepartmentStatsRepositoryCustom {
+
+}
@@ -0,0 +1,29 @@
+package com.frankc.training.employee.repositories;
+
+import java.util.Collection;
+
+import com.frankc.training.employee.entities.DepartmentStats;
+
+/**
+ * DepartmentStats repository operations that go straight to MongoTemplate.
+ */
+public interface DepartmentStatsRepositoryCustom {
+
+    /**
+     * Atomically add to the counters of a Department, creating them if
+     * they do not exist yet.
+     *
+     * @param departmentId of the Department whose Employees changed
+     * @param headcount change in the number of Employees
+     * @param withTask change in the number of Employees with a currentTask
+     */
+    void adjust(String departmentId, long headcount, long withTask);
+
+    /**
+     * Add to the counters of several Departments with a single unordered
+     * bulk write, each adjusted atomically as by adjust().
+     *
+     * @param changes the change to each Department's counters, by id
+     */
+    void adjustAll(Collection<DepartmentStats> changes);
+}
@@ -0,0 +1,60 @@
+package com.frankc.training.employee.repositories;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.Collection;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.frankc.training.employee.entities.DepartmentStats;
+
+/**
+ * Implements DepartmentStatsRepositoryCustom, picked up by Spring Data as
+ * a fragment of DepartmentStatsRepository.
+ */
+public class DepartmentStatsRepositoryImpl
+                            implements DepartmentStatsRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void adjust(String departmentId, long headcount, long withTask) {
+        if (departmentId == null || (headcount == 0 && withTask == 0)) {
+            return;
+        }
+
+        mongoTemplate.upsert(query(where("id").is(departmentId)),
+                             new Update().inc("headcount", headcount)
+                                         .inc("withTask", withTask),
+                             DepartmentStats.class);
+    }
+
+    @Override
+    public void adjustAll(Collection<DepartmentStats> changes) {
+        BulkOperations bulkOps = null;
+        for (DepartmentStats change : changes) {
+            if (change.getId() == null || (change.getHeadcount() == 0
+                                           && change.getWithTask() == 0)) {
+                continue;
+            }
+
+            if (bulkOps == null) {
+                bulkOps = mongoTemplate.bulkOps(BulkMode.UNORDERED,
+                                                DepartmentStats.class);
+            }
+            bulkOps.upsert(query(where("id").is(change.getId())),
+                           new Update().inc("headcount", change.getHeadcount())
+                                       .inc("withTask", change.getWithTask()));
+        }
+
+        if (bulkOps != null) {
+            bulkOps.execute();
+        }
+    }
+}
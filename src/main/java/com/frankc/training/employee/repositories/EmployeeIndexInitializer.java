@@ -0,0 +1,42 @@
+package com.frankc.training.employee.repositories;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.query.Collation.ComparisonLevel;
+import org.springframework.stereotype.Component;
+
+import com.frankc.training.employee.entities.Employee;
+
+/**
+ * Creates the Employee indexes that can't be declared with annotations.
+ */
+@Profile("!embedded-store")
+@Component
+public class EmployeeIndexInitializer {
+
+    /**
+     * Collation comparing strings without regard to case. Queries must use
+     * the same collation as an index for it to be used.
+     */
+    public static final Collation CASE_INSENSITIVE =
+            Collation.of("en").strength(ComparisonLevel.secondary());
+
+    public static final String FULL_NAME_CASE_INSENSITIVE_INDEX = "fullName_ci";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @PostConstruct
+    void createIndexes() {
+        mongoTemplate.indexOps(Employee.class).ensureIndex(
+                new Index().on("fullName", Sort.Direction.ASC)
+                           .named(FULL_NAME_CASE_INSENSITIVE_INDEX)
+                           .collation(CASE_INSENSITIVE));
+    }
+}
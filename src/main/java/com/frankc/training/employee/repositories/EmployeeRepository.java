@@ -1,9 +1,52 @@
 package com.frankc.training.employee.repositories;
 
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
 import com.frankc.training.employee.entities.Employee;
 
-public interface EmployeeRepository extends MongoRepository<Employee, String>{
+public interface EmployeeRepository extends MongoRepository<Employee, String>,
+                                            EmployeeRepositoryCustom {
+
+    Slice<Employee> findAllBy(Pageable pageable);
+
+    Slice<Employee> findByIdGreaterThan(String id, Pageable pageable);
+
+    /**
+     * Find the Employees after an id that is not an ObjectId.
+     *
+     * Mongo compares an id only with ids of the same type and orders
+     * strings before ObjectIds, so findByIdGreaterThan would leave out
+     * every ObjectId id that follows.
+     *
+     * @param id of the last Employee on the previous page, not an ObjectId
+     * @param pageable the page size and id order
+     * @return Slice of Employees, hasNext() tells if another page follows
+     */
+    @Query("{ '$or': [ { '_id': { '$gt': ?0 } },"
+           + " { '_id': { '$type': 'objectId' } } ] }")
+    Slice<Employee> findAfterNonObjectId(String id, Pageable pageable);
+
+    Slice<Employee> findByDepartmentId(String departmentId, Pageable pageable);
+
+    Slice<Employee> findByDepartmentIdAndIdGreaterThan(String departmentId,
+                                                       String id,
+                                                       Pageable pageable);
+
+    /**
+     * As findAfterNonObjectId, for one Department's Employees.
+     */
+    @Query("{ 'departmentId': ?0, '$or': [ { '_id': { '$gt': ?1 } },"
+           + " { '_id': { '$type': 'objectId' } } ] }")
+    Slice<Employee> findByDepartmentIdAfterNonObjectId(String departmentId,
+                                                       String id,
+                                                       Pageable pageable);
+
+    Stream<Employee> streamAllBy();
 
+    boolean existsByDepartmentId(String departmentId);
 }
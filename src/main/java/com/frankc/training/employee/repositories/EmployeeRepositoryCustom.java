@@ -0,0 +1,90 @@
+package com.frankc.training.employee.repositories;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.data.domain.Slice;
+
+import com.frankc.training.employee.dto.DepartmentSummary;
+import com.frankc.training.employee.dto.EmployeeSearch;
+import com.frankc.training.employee.entities.Employee;
+
+/**
+ * Employee repository operations that go straight to MongoTemplate.
+ */
+public interface EmployeeRepositoryCustom {
+
+    /**
+     * Insert Employees with a single unordered bulk write.
+     *
+     * A failure on one Employee does not stop the others being inserted.
+     * Every Employee is inserted at version 0.
+     *
+     * @param employees to insert
+     * @return error message for each Employee that was not inserted, keyed
+     *         by its index in the given List
+     */
+    Map<Integer, String> insertUnordered(List<Employee> employees);
+
+    /**
+     * Find a page of Employees matching the search, ordered by id.
+     *
+     * @param search name, match type, department and fields to return
+     * @param afterId id of the last Employee on the previous page, or null
+     * @param size maximum number of Employees to return
+     * @return Slice of Employees, hasNext() tells if another page follows
+     */
+    Slice<Employee> search(EmployeeSearch search, String afterId, int size);
+
+    /**
+     * Count a Department's Employees, with and without a current task, in
+     * one aggregation over the departmentId index.
+     *
+     * @param departmentId of the Department to summarize
+     * @return headcount and task statistics; the name is not filled in
+     */
+    DepartmentSummary summarizeDepartment(String departmentId);
+
+    /**
+     * Count the Employees of every Department in one aggregation over the
+     * whole collection.
+     *
+     * @return headcount and task statistics for each departmentId that has
+     *         Employees; names are not filled in
+     */
+    List<DepartmentSummary> summarizeDepartments();
+
+    /**
+     * Delete an Employee, returning what was deleted in the same round
+     * trip.
+     *
+     * @param id of the Employee to delete
+     * @return the deleted Employee, or null if there was none
+     */
+    Employee removeById(String id);
+
+    /**
+     * Set and unset fields of one Employee with a single atomic update,
+     * without reading or rewriting the rest of the document. The version
+     * is incremented by the same update.
+     *
+     * @param id of the Employee to update
+     * @param version the Employee must be at, or null for any version
+     * @param changes new value of each field, null to remove the field;
+     *                must not be empty
+     * @return the Employee as it was before the update, or null if there
+     *         was none at the given version
+     */
+    Employee patch(String id, Long version, Map<String, Object> changes);
+
+    /**
+     * Find which of the given ids belong to stored Employees, reading only
+     * the _id index.
+     *
+     * @param ids to look for
+     * @return the ids that exist
+     */
+    Set<String> findExistingIds(Collection<String> ids);
+}
@@ -0,0 +1,239 @@
+package com.frankc.training.employee.repositories;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.DataTypeOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.frankc.training.employee.dto.DepartmentSummary;
+import com.frankc.training.employee.dto.EmployeeSearch;
+import com.frankc.training.employee.entities.Employee;
+import com.mongodb.BulkWriteError;
+
+/**
+ * Implements EmployeeRepositoryCustom, picked up by Spring Data as a
+ * fragment of EmployeeRepository.
+ */
+public class EmployeeRepositoryImpl implements EmployeeRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public Map<Integer, String> insertUnordered(List<Employee> employees) {
+        if (employees.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        // Bulk inserts don't initialize the version as save() does, nor
+        // write the generated id back to the Employee
+        for (Employee employee : employees) {
+            employee.setVersion(0L);
+            if (employee.getId() == null) {
+                employee.setId(new ObjectId().toHexString());
+            }
+        }
+
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkMode.UNORDERED,
+                                                       Employee.class);
+        bulkOps.insert(employees);
+
+        try {
+            bulkOps.execute();
+            return Collections.emptyMap();
+        } catch (BulkOperationException ex) {
+            Map<Integer, String> failures = new TreeMap<>();
+            for (BulkWriteError error : ex.getErrors()) {
+                failures.put(error.getIndex(), error.getMessage());
+            }
+            return failures;
+        }
+    }
+
+    @Override
+    public Slice<Employee> search(EmployeeSearch search, String afterId,
+                                  int size) {
+        Query query = new Query();
+
+        switch (search.getMatch()) {
+            case PREFIX:
+                query.addCriteria(Criteria.where("fullName")
+                        .regex("^" + escapeRegex(search.getFullName())));
+                break;
+            case IGNORE_CASE:
+                query.addCriteria(Criteria.where("fullName")
+                                          .is(search.getFullName()));
+                query.collation(EmployeeIndexInitializer.CASE_INSENSITIVE);
+                break;
+            default:
+                query.addCriteria(Criteria.where("fullName")
+                                          .is(search.getFullName()));
+        }
+
+        if (search.getDepartmentId() != null) {
+            query.addCriteria(Criteria.where("departmentId")
+                                      .is(search.getDepartmentId()));
+        }
+        if (afterId != null) {
+            query.addCriteria(afterIdCriteria(afterId));
+        }
+        for (String field : search.getFields()) {
+            query.fields().include(field);
+        }
+
+        Sort sort = Sort.by("id");
+        // One extra tells if another page follows
+        query.with(sort).limit(size + 1);
+
+        List<Employee> employees = new ArrayList<>(
+                                mongoTemplate.find(query, Employee.class));
+        boolean hasNext = employees.size() > size;
+        if (hasNext) {
+            employees.remove(size);
+        }
+        return new SliceImpl<>(employees, PageRequest.of(0, size, sort),
+                               hasNext);
+    }
+
+    @Override
+    public DepartmentSummary summarizeDepartment(String departmentId) {
+        List<DepartmentSummary> summaries = summarize(
+                            Criteria.where("departmentId").is(departmentId));
+
+        // No Employees means no group at all
+        DepartmentSummary summary = summaries.isEmpty()
+                                        ? new DepartmentSummary()
+                                        : summaries.get(0);
+        summary.setDepartmentId(departmentId);
+        return summary;
+    }
+
+    @Override
+    public List<DepartmentSummary> summarizeDepartments() {
+        return summarize(null);
+    }
+
+    @Override
+    public Employee removeById(String id) {
+        return mongoTemplate.findAndRemove(query(where("id").is(id)),
+                                           Employee.class);
+    }
+
+    @Override
+    public Employee patch(String id, Long version,
+                          Map<String, Object> changes) {
+        Query query = query(where("id").is(id));
+        if (version != null) {
+            query.addCriteria(where("version").is(version));
+        }
+
+        Update update = new Update().inc("version", 1);
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            if (change.getValue() == null) {
+                update.unset(change.getKey());
+            } else {
+                update.set(change.getKey(), change.getValue());
+            }
+        }
+
+        return mongoTemplate.findAndModify(query, update, Employee.class);
+    }
+
+    @Override
+    public Set<String> findExistingIds(Collection<String> ids) {
+        Query query = query(where("id").in(ids));
+        query.fields().include("id");
+
+        Set<String> existing = new HashSet<>();
+        for (Employee employee : mongoTemplate.find(query, Employee.class)) {
+            existing.add(employee.getId());
+        }
+        return existing;
+    }
+
+    private List<DepartmentSummary> summarize(Criteria match) {
+        AggregationExpression hasTask = ConditionalOperators
+                .when(ComparisonOperators.Eq
+                        .valueOf(DataTypeOperators.Type.typeOf("currentTask"))
+                        .equalToValue("object"))
+                .then(1)
+                .otherwise(0);
+
+        List<AggregationOperation> pipeline = new ArrayList<>();
+        if (match != null) {
+            pipeline.add(Aggregation.match(match));
+        }
+        pipeline.add(Aggregation.group("departmentId")
+                                .count().as("headcount")
+                                .sum(hasTask).as("withTask"));
+        pipeline.add(Aggregation.project("headcount", "withTask")
+                                .and("departmentId").previousOperation()
+                                .and(ArithmeticOperators.Subtract
+                                        .valueOf("headcount")
+                                        .subtract("withTask"))
+                                .as("withoutTask"));
+
+        return mongoTemplate.aggregate(
+                        Aggregation.newAggregation(Employee.class, pipeline),
+                        DepartmentSummary.class)
+                    .getMappedResults();
+    }
+
+    /**
+     * Escape regex metacharacters with a backslash, rather than quoting
+     * with \Q..\E, so the server still sees a literal prefix it can
+     * turn into index bounds.
+     */
+    private static String escapeRegex(String literal) {
+        StringBuilder escaped = new StringBuilder(literal.length() + 8);
+        for (char c : literal.toCharArray()) {
+            if (!Character.isLetterOrDigit(c) && c != ' ') {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Ids following afterId in _id order. Mongo compares an id only with
+     * ids of the same type and orders strings before ObjectIds, so every
+     * ObjectId follows an id that is not one.
+     */
+    private static Criteria afterIdCriteria(String afterId) {
+        if (ObjectId.isValid(afterId)) {
+            return Criteria.where("id").gt(afterId);
+        }
+        // BSON type 7 is ObjectId
+        return new Criteria().orOperator(Criteria.where("id").gt(afterId),
+                                         Criteria.where("id").type(7));
+    }
+}
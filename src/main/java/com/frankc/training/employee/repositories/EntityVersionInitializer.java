@@ -0,0 +1,53 @@
+package com.frankc.training.employee.repositories;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.frankc.training.employee.entities.Department;
+import com.frankc.training.employee.entities.Employee;
+
+/**
+ * Gives Employees and Departments stored before they were versioned a
+ * version of 0.
+ *
+ * A versioned update only matches the version it expects, so documents
+ * without one could never be updated. Once every document has a version
+ * this finds nothing to do.
+ */
+@Profile("!embedded-store")
+@Component
+public class EntityVersionInitializer {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @PostConstruct
+    void initializeVersions() {
+        initializeVersions(Employee.class);
+        initializeVersions(Department.class);
+    }
+
+    private void initializeVersions(Class<?> entityClass) {
+        long updated = mongoTemplate.updateMulti(
+                                query(where("version").exists(false)),
+                                new Update().set("version", 0L),
+                                entityClass)
+                            .getModifiedCount();
+        if (updated > 0) {
+            logger.info("Initialized version of {} {} documents",
+                        updated, entityClass.getSimpleName());
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.frankc.training.employee.repositories;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+import com.frankc.training.employee.entities.Department;
+
+public interface ReactiveDepartmentRepository extends ReactiveMongoRepository<Department, String>{
+
+}
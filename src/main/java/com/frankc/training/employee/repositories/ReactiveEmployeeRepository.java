@@ -0,0 +1,26 @@
+package com.frankc.training.employee.repositories;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+import com.frankc.training.employee.entities.Employee;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveEmployeeRepository extends ReactiveMongoRepository<Employee, String>{
+
+    Flux<Employee> findAllBy(Pageable pageable);
+
+    Flux<Employee> findByIdGreaterThan(String id, Pageable pageable);
+
+    /**
+     * As EmployeeRepository.findAfterNonObjectId.
+     */
+    @Query("{ '$or': [ { '_id': { '$gt': ?0 } },"
+           + " { '_id': { '$type': 'objectId' } } ] }")
+    Flux<Employee> findAfterNonObjectId(String id, Pageable pageable);
+
+    Mono<Boolean> existsByDepartmentId(String departmentId);
+}
@@ -0,0 +1,217 @@
+package com.frankc.training.employee.services;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import com.frankc.training.employee.cache.DepartmentCache;
+import com.frankc.training.employee.dto.BulkImportError;
+import com.frankc.training.employee.entities.Employee;
+import com.frankc.training.employee.exceptions.EntityNotFoundException;
+import com.frankc.training.employee.exceptions.ServiceBusyException;
+import com.frankc.training.employee.repositories.EmployeeRepository;
+import com.frankc.training.employee.util.EntityFieldValidator;
+
+/**
+ * Employee lookups and saves as CompletableFutures on a bounded executor.
+ *
+ * Independent checks, such as whether a department exists and whether an
+ * employee id is taken, are started together and run concurrently, so a
+ * caller composing them waits for the slowest rather than for the sum.
+ * When the executor's queue is full the futures fail with
+ * ServiceBusyException.
+ */
+@Service
+public class AsyncEmployeeService {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private EmployeeRepository employeeRepo;
+
+    @Autowired
+    private DepartmentCache departmentCache;
+
+    @Autowired
+    private EntityFieldValidator employeeValidator;
+
+    @Autowired
+    @Qualifier(AsyncServiceConfig.EXECUTOR)
+    private ExecutorService executor;
+
+    public CompletableFuture<Boolean> departmentExists(String departmentId) {
+        return submit(() -> departmentCache.exists(departmentId));
+    }
+
+    public CompletableFuture<Boolean> employeeExists(String employeeId) {
+        if (employeeId == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return submit(() -> employeeRepo.existsById(employeeId));
+    }
+
+    /**
+     * Save an Employee as EmployeeService.saveEmployee does, looking up
+     * its department and any stored Employee with the same id
+     * concurrently rather than one after the other.
+     *
+     * The department check warms DepartmentCache, so the save doesn't
+     * look the department up again.
+     *
+     * @param employee to save
+     * @return the saved Employee, or failing with EntityNotFoundException
+     *         if its department doesn't exist
+     */
+    public CompletableFuture<Employee> saveEmployee(Employee employee) {
+        CompletableFuture<Boolean> department =
+                                departmentExists(employee.getDepartmentId());
+        CompletableFuture<Employee> previous = employee.getId() == null
+                ? CompletableFuture.completedFuture(null)
+                : submit(() -> employeeRepo.findById(employee.getId())
+                                           .orElse(null));
+
+        return department.thenCombine(previous, (departmentFound, stored) -> {
+            if (!departmentFound) {
+                throw new EntityNotFoundException("Invalid department id: "
+                                                  + employee.getDepartmentId());
+            }
+            return stored;
+        }).thenCompose(stored -> submit(
+                        () -> employeeService.saveEmployee(employee, stored)));
+    }
+
+    /**
+     * Check a new Employee the way a bulk import would, running the
+     * department and id lookups concurrently.
+     *
+     * @param employee to check
+     * @return reasons the Employee would be rejected, empty if none
+     */
+    public CompletableFuture<List<String>> validateEmployee(Employee employee) {
+        CompletableFuture<Boolean> department =
+                                departmentExists(employee.getDepartmentId());
+        CompletableFuture<Boolean> idTaken = employeeExists(employee.getId());
+
+        return department.thenCombine(idTaken, (departmentFound, taken) -> {
+            List<String> errors = new ArrayList<>();
+            if (!departmentFound) {
+                errors.add("Invalid department id: "
+                           + employee.getDepartmentId());
+            }
+            if (!employeeValidator.validateFullName(employee.getFullName())) {
+                errors.add("Invalid employee name: " + employee.getFullName());
+            }
+            if (taken) {
+                errors.add("Employee id already exists: " + employee.getId());
+            }
+            return errors;
+        });
+    }
+
+    /**
+     * Check many new Employees the way a bulk import would, without
+     * saving any.
+     *
+     * All department ids are checked with at most one query and all
+     * employee ids with another, the two running concurrently. Ids
+     * repeated within the list are reported too.
+     *
+     * @param employees to check
+     * @return an error for each problem found, indexed by list position
+     */
+    public CompletableFuture<List<BulkImportError>> validateEmployees(
+                                                List<Employee> employees) {
+        Set<String> departmentIds = new HashSet<>();
+        Set<String> ids = new HashSet<>();
+        for (Employee employee : employees) {
+            if (employee.getDepartmentId() != null) {
+                departmentIds.add(employee.getDepartmentId());
+            }
+            if (employee.getId() != null) {
+                ids.add(employee.getId());
+            }
+        }
+
+        CompletableFuture<Set<String>> knownDepartmentIds =
+                submit(() -> departmentCache.existing(departmentIds));
+        CompletableFuture<Set<String>> takenIds = ids.isEmpty()
+                ? CompletableFuture.completedFuture(new HashSet<>())
+                : submit(() -> employeeRepo.findExistingIds(ids));
+
+        return knownDepartmentIds.thenCombine(takenIds, (known, taken) -> {
+            List<BulkImportError> errors = new ArrayList<>();
+            Set<String> seen = new HashSet<>();
+
+            for (int i = 0; i < employees.size(); ++i) {
+                Employee employee = employees.get(i);
+
+                if (!known.contains(employee.getDepartmentId())) {
+                    errors.add(new BulkImportError(i,
+                            "Invalid department id: "
+                            + employee.getDepartmentId()));
+                }
+                if (!employeeValidator.validateFullName(
+                                                employee.getFullName())) {
+                    errors.add(new BulkImportError(i,
+                            "Invalid employee name: "
+                            + employee.getFullName()));
+                }
+                if (employee.getId() != null) {
+                    if (taken.contains(employee.getId())) {
+                        errors.add(new BulkImportError(i,
+                                "Employee id already exists: "
+                                + employee.getId()));
+                    } else if (!seen.add(employee.getId())) {
+                        errors.add(new BulkImportError(i,
+                                "Employee id repeated: " + employee.getId()));
+                    }
+                }
+            }
+
+            logger.debug("Validated {} employees: {} errors",
+                         employees.size(), errors.size());
+            return errors;
+        });
+    }
+
+    /**
+     * Run a lookup on the executor, carrying the caller's logging context.
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> lookup) {
+        Map<String, String> context = MDC.getCopyOfContextMap();
+
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                if (context != null) {
+                    MDC.setContextMap(context);
+                }
+                try {
+                    return lookup.get();
+                } finally {
+                    MDC.clear();
+                }
+            }, executor);
+        } catch (RejectedExecutionException ex) {
+            CompletableFuture<T> busy = new CompletableFuture<>();
+            busy.completeExceptionally(new ServiceBusyException(
+                                "Too many pending lookups, try again later"));
+            return busy;
+        }
+    }
+}
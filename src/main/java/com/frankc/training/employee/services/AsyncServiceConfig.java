@@ -0,0 +1,47 @@
+package com.frankc.training.employee.services;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * The bounded executor AsyncEmployeeService runs lookups on.
+ *
+ * Both the thread count and the queue are fixed, so a burst of requests
+ * can't create unbounded threads or queued work; once the queue is full
+ * further lookups are rejected. Pool and queue metrics are published as
+ * executor.* with name service.async.
+ */
+@Configuration
+public class AsyncServiceConfig {
+
+    public static final String EXECUTOR = "serviceExecutor";
+
+    @Value("${service.async.threads:16}")
+    private int threads;
+
+    @Value("${service.async.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Bean(name = EXECUTOR, destroyMethod = "shutdown")
+    public ExecutorService serviceExecutor(MeterRegistry meterRegistry) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("service-async-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor,
+                                              "service.async");
+    }
+}
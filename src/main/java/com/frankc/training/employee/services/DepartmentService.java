@@ -1,31 +1,110 @@
 package com.frankc.training.employee.services;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
+import com.frankc.training.employee.cache.DepartmentCache;
+import com.frankc.training.employee.changes.ChangeLog;
+import com.frankc.training.employee.dto.DepartmentSummary;
+import com.frankc.training.employee.dto.EntityChange;
+import com.frankc.training.employee.entities.CollectionVersion;
 import com.frankc.training.employee.entities.Department;
+import com.frankc.training.employee.entities.DepartmentStats;
+import com.frankc.training.employee.exceptions.DepartmentNotEmptyException;
 import com.frankc.training.employee.exceptions.DuplicateDepartmentException;
 import com.frankc.training.employee.exceptions.EntityNotFoundException;
+import com.frankc.training.employee.exceptions.PreconditionFailedException;
+import com.frankc.training.employee.exceptions.VersionConflictException;
+import com.frankc.training.employee.index.EmployeeIndex;
+import com.frankc.training.employee.repositories.CollectionVersionRepository;
 import com.frankc.training.employee.repositories.DepartmentRepository;
+import com.frankc.training.employee.repositories.DepartmentStatsRepository;
+import com.frankc.training.employee.repositories.EmployeeRepository;
+
+import io.micrometer.core.annotation.Timed;
 
 @Service
 public class DepartmentService {
 
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
+    public static final String METRIC_NAME = "department.service";
+
+    public static final String COLLECTION = "departments";
+
     @Autowired
     private DepartmentRepository departmentRepo;
 
+    @Autowired
+    private EmployeeRepository employeeRepo;
+
+    @Autowired
+    private DepartmentStatsRepository departmentStatsRepo;
+
+    @Autowired
+    private CollectionVersionRepository collectionVersionRepo;
+
+    @Autowired
+    private DepartmentCache departmentCache;
+
+    @Autowired
+    private EmployeeIndex employeeIndex;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    /**
+     * Get the version of the Department collection.
+     *
+     * @return current collection version, changed by every write made
+     *         through this service
+     */
+    @Timed(value = METRIC_NAME, histogram = true)
+    public long collectionVersion() {
+        return collectionVersionRepo.findById(COLLECTION)
+                                    .map(CollectionVersion::getVersion)
+                                    .orElse(0L);
+    }
+
+    @Timed(value = METRIC_NAME, histogram = true)
     public List<Department> findAllDepartments() {
-        return departmentRepo.findAll();
+        List<Department> departments = departmentRepo.findAll();
+
+        Map<String, DepartmentStats> stats = departmentStatsRepo.findAll()
+                .stream()
+                .collect(Collectors.toMap(DepartmentStats::getId,
+                                          Function.identity()));
+        for (Department department : departments) {
+            department.setStats(stats.getOrDefault(
+                    department.getId(),
+                    new DepartmentStats(department.getId(), 0, 0)));
+        }
+        return departments;
     }
 
+    /**
+     * Stream every Department from a database cursor.
+     *
+     * The caller must close the Stream to release the cursor.
+     *
+     * @return Stream of all Departments
+     */
+    public Stream<Department> streamAllDepartments() {
+        return departmentRepo.streamAllBy();
+    }
+
+    @Timed(value = METRIC_NAME, histogram = true)
     public Department findDepartment(String departmentId) {
         Optional<Department> department =
                             departmentRepo.findById(departmentId);
@@ -35,26 +114,135 @@ public class DepartmentService {
                                               + departmentId);
         }
 
-        logger.info("Found department: " + department.get());
+        withStats(department.get());
+
+        logger.debug("Found department: {}", department.get());
         return department.get();
     }
 
+    /**
+     * Summarize a Department's Employees with a server side aggregation,
+     * so no Employees are sent back to be counted, or from the employee
+     * index once it is loaded.
+     *
+     * @param departmentId of the Department to summarize
+     * @return headcount and task statistics for the Department
+     */
+    @Timed(value = METRIC_NAME, histogram = true)
+    public DepartmentSummary summarizeDepartment(String departmentId) {
+        Department department = findDepartment(departmentId);
+
+        DepartmentSummary summary = employeeIndex.summarize(departmentId,
+                () -> employeeRepo.summarizeDepartment(departmentId));
+        summary.setName(department.getName());
+        return summary;
+    }
+
+    @Timed(value = METRIC_NAME, histogram = true)
     public Department saveDepartment(Department department) {
-        logger.info("Saving department: " + department);
+        // A client supplied id may replace an existing Department
+        if (department.getId() != null && department.getVersion() == null) {
+            department.setVersion(departmentRepo.findById(department.getId())
+                                                .map(Department::getVersion)
+                                                .orElse(null));
+        }
 
-        try {
-            return departmentRepo.save(department);
-        } catch (DuplicateKeyException ex) {
-            logger.error("Unable to save department: " + ex);
-            throw new DuplicateDepartmentException();
+        return write(department, false);
+    }
+
+    /**
+     * Replace a Department, failing rather than overwriting a change made
+     * by someone else. The expected version is chosen as for
+     * EmployeeService.updateEmployee.
+     *
+     * @param department new state of the Department
+     * @param expectedVersion version from an If-Match header, or null
+     * @return the saved Department, with its new version
+     * @throws PreconditionFailedException if not at expectedVersion
+     * @throws VersionConflictException if changed since it was read
+     */
+    @Timed(value = METRIC_NAME, histogram = true)
+    public Department updateDepartment(Department department,
+                                       Long expectedVersion) {
+        Optional<Department> previous = department.getId() == null
+                                            ? Optional.empty()
+                                            : departmentRepo.findById(
+                                                        department.getId());
+
+        if (!previous.isPresent()) {
+            throw new EntityNotFoundException("Invalid department id: "
+                                              + department.getId());
+        }
+
+        Long currentVersion = previous.get().getVersion();
+        if (expectedVersion != null) {
+            if (!expectedVersion.equals(currentVersion)) {
+                throw new PreconditionFailedException(
+                                "Department " + department.getId()
+                                + " is at version " + currentVersion);
+            }
+            department.setVersion(expectedVersion);
+        } else if (department.getVersion() == null) {
+            department.setVersion(currentVersion);
+        } else if (!department.getVersion().equals(currentVersion)) {
+            throw new VersionConflictException(
+                            "Department " + department.getId()
+                            + " is at version " + currentVersion);
         }
+
+        // The same counts as findDepartment, so the ETags agree
+        return withStats(write(department, expectedVersion != null));
     }
 
+    @Timed(value = METRIC_NAME, histogram = true)
     public void deleteDepartment(String id) {
-        try {
-            departmentRepo.deleteById(id);
-        } catch (IllegalArgumentException ex) {
+        if (employeeRepo.existsByDepartmentId(id)) {
+            throw new DepartmentNotEmptyException(
+                            "Department " + id + " still has employees");
+        }
+
+        Department removed = departmentRepo.removeById(id);
+        departmentCache.invalidate(id);
+
+        if (removed == null) {
             throw new EntityNotFoundException("Invalid department id: " + id);
         }
+
+        departmentStatsRepo.deleteById(id);
+        collectionVersionRepo.increment(COLLECTION);
+        changeLog.record(COLLECTION, EntityChange.Type.DELETED, id, null);
+    }
+
+    private Department withStats(Department department) {
+        String departmentId = department.getId();
+        department.setStats(employeeIndex.stats(departmentId,
+                () -> departmentStatsRepo.findById(departmentId)
+                        .orElse(new DepartmentStats(departmentId, 0, 0))));
+        return department;
+    }
+
+    private Department write(Department department, boolean conditional) {
+        logger.debug("Saving department: {}", department);
+
+        try {
+            Department saved = departmentRepo.save(department);
+            departmentCache.invalidate(saved.getId());
+            collectionVersionRepo.increment(COLLECTION);
+            // Spring Data starts the version of a new Department at 0
+            changeLog.record(COLLECTION,
+                             Long.valueOf(0).equals(saved.getVersion())
+                                    ? EntityChange.Type.CREATED
+                                    : EntityChange.Type.UPDATED,
+                             saved.getId(), saved);
+            return saved;
+        } catch (DuplicateKeyException ex) {
+            logger.error("Unable to save department: {}", ex.getMessage());
+            throw new DuplicateDepartmentException();
+        } catch (OptimisticLockingFailureException ex) {
+            String message = "Department " + department.getId()
+                             + " was changed by another request";
+            throw conditional ? new PreconditionFailedException(message)
+                              : new VersionConflictException(message);
+        }
     }
 }
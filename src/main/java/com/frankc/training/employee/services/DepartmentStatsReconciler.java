@@ -0,0 +1,120 @@
+package com.frankc.training.employee.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.frankc.training.employee.dto.DepartmentSummary;
+import com.frankc.training.employee.entities.Department;
+import com.frankc.training.employee.entities.DepartmentStats;
+import com.frankc.training.employee.repositories.CollectionVersionRepository;
+import com.frankc.training.employee.repositories.DepartmentRepository;
+import com.frankc.training.employee.repositories.DepartmentStatsRepository;
+import com.frankc.training.employee.repositories.EmployeeRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Rebuilds the Department counters from the Employees themselves.
+ *
+ * The counters are adjusted incrementally by EmployeeService, so writes
+ * that bypass it, failures between a write and its counter update, or
+ * concurrent moves can leave them wrong. This recounts every Department
+ * in one aggregation, overwrites counters that differ and reports them.
+ * Writes made while it runs may be overwritten; the next run repairs
+ * them.
+ */
+@Component
+public class DepartmentStatsReconciler {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    public static final String DRIFT_METRIC_NAME = "department.stats.drift";
+
+    @Autowired
+    private DepartmentRepository departmentRepo;
+
+    @Autowired
+    private EmployeeRepository employeeRepo;
+
+    @Autowired
+    private DepartmentStatsRepository departmentStatsRepo;
+
+    @Autowired
+    private CollectionVersionRepository collectionVersionRepo;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Scheduled(initialDelayString = "${department.stats.reconcile-initial-delay-ms:60000}",
+               fixedDelayString = "${department.stats.reconcile-interval-ms:3600000}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    /**
+     * @return the corrected counters of every Department that had drifted
+     */
+    public List<DepartmentStats> reconcile() {
+        Map<String, DepartmentSummary> counted = new HashMap<>();
+        for (DepartmentSummary summary : employeeRepo.summarizeDepartments()) {
+            counted.put(summary.getDepartmentId(), summary);
+        }
+
+        Map<String, DepartmentStats> stored = new HashMap<>();
+        for (DepartmentStats stats : departmentStatsRepo.findAll()) {
+            stored.put(stats.getId(), stats);
+        }
+
+        List<DepartmentStats> drifted = new ArrayList<>();
+        Set<String> departmentIds = new HashSet<>();
+        for (Department department : departmentRepo.findAll()) {
+            departmentIds.add(department.getId());
+
+            DepartmentSummary summary = counted.get(department.getId());
+            DepartmentStats expected = summary == null
+                    ? new DepartmentStats(department.getId(), 0, 0)
+                    : new DepartmentStats(department.getId(),
+                                          summary.getHeadcount(),
+                                          summary.getWithTask());
+
+            // No counters yet reads as zero
+            DepartmentStats current = stored.getOrDefault(
+                    department.getId(),
+                    new DepartmentStats(department.getId(), 0, 0));
+            if (current.getHeadcount() != expected.getHeadcount()
+                    || current.getWithTask() != expected.getWithTask()) {
+                logger.warn("Department stats drifted: was {}, counted {}",
+                            current, expected);
+                drifted.add(expected);
+            }
+        }
+
+        departmentStatsRepo.saveAll(drifted);
+        if (!drifted.isEmpty()) {
+            // Departments are listed with their stats, so the list changed
+            collectionVersionRepo.increment(DepartmentService.COLLECTION);
+        }
+
+        // Counters left behind by deleted Departments
+        for (String id : stored.keySet()) {
+            if (!departmentIds.contains(id)) {
+                departmentStatsRepo.deleteById(id);
+            }
+        }
+
+        meterRegistry.counter(DRIFT_METRIC_NAME).increment(drifted.size());
+        logger.info("Reconciled stats of {} departments, {} had drifted",
+                    departmentIds.size(), drifted.size());
+        return drifted;
+    }
+}
@@ -1,53 +1,474 @@
 package com.frankc.training.employee.services;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import com.frankc.training.employee.cache.DepartmentCache;
+import com.frankc.training.employee.cache.EmployeeCache;
+import com.frankc.training.employee.changes.ChangeLog;
+import com.frankc.training.employee.dto.BulkImportResult;
+import com.frankc.training.employee.dto.EmployeePatch;
+import com.frankc.training.employee.dto.EmployeeSearch;
+import com.frankc.training.employee.dto.EntityChange;
+import com.frankc.training.employee.entities.CollectionVersion;
+import com.frankc.training.employee.entities.DepartmentStats;
 import com.frankc.training.employee.entities.Employee;
+import com.frankc.training.employee.entities.Task;
 import com.frankc.training.employee.exceptions.EntityNotFoundException;
 import com.frankc.training.employee.exceptions.InvalidEntityFieldException;
-import com.frankc.training.employee.repositories.DepartmentRepository;
+import com.frankc.training.employee.exceptions.InvalidPageRequestException;
+import com.frankc.training.employee.exceptions.InvalidSearchException;
+import com.frankc.training.employee.exceptions.PreconditionFailedException;
+import com.frankc.training.employee.exceptions.VersionConflictException;
+import com.frankc.training.employee.index.EmployeeIndex;
+import com.frankc.training.employee.repositories.CollectionVersionRepository;
+import com.frankc.training.employee.repositories.DepartmentStatsRepository;
 import com.frankc.training.employee.repositories.EmployeeRepository;
 import com.frankc.training.employee.util.EntityFieldValidator;
 
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+
 @Service
 public class EmployeeService {
 
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
+    public static final String METRIC_NAME = "employee.service";
+
+    public static final String IMPORT_METRIC_NAME = "employee.import.records";
+
+    public static final String COLLECTION = "employees";
+
+    private static final Set<String> SEARCH_FIELDS = new HashSet<>(
+            Arrays.asList("id", "fullName", "departmentId", "currentTask"));
+
     @Autowired
     private EmployeeRepository employeeRepo;
 
     @Autowired
-    private DepartmentRepository departmentRepo;
+    private CollectionVersionRepository collectionVersionRepo;
+
+    @Autowired
+    private DepartmentStatsRepository departmentStatsRepo;
+
+    @Autowired
+    private DepartmentCache departmentCache;
+
+    @Autowired
+    private EmployeeCache employeeCache;
+
+    @Autowired
+    private EmployeeIndex employeeIndex;
+
+    @Autowired
+    private ChangeLog changeLog;
 
     @Autowired
     private EntityFieldValidator employeeValidator;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${employee.page.default-size:100}")
+    private int defaultPageSize;
+
+    @Value("${employee.page.max-size:1000}")
+    private int maxPageSize;
+
+    @Value("${employee.import.batch-size:1000}")
+    private int importBatchSize;
+
+    /**
+     * Get the version of the Employee collection.
+     *
+     * The version changes whenever an Employee is written through this
+     * service, so it identifies the state of the collection without
+     * reading any Employees.
+     *
+     * @return current collection version
+     */
+    @Timed(value = METRIC_NAME, histogram = true)
+    public long collectionVersion() {
+        return collectionVersionRepo.findById(COLLECTION)
+                                    .map(CollectionVersion::getVersion)
+                                    .orElse(0L);
+    }
+
+    @Timed(value = METRIC_NAME, histogram = true)
     public List<Employee> findAllEmployees() {
         return employeeRepo.findAll();
     }
 
+    /**
+     * Stream every Employee from a database cursor.
+     *
+     * The caller must close the Stream to release the cursor.
+     *
+     * @return Stream of all Employees
+     */
+    public Stream<Employee> streamAllEmployees() {
+        return employeeRepo.streamAllBy();
+    }
+
+    /**
+     * Find a page of Employees ordered by id.
+     *
+     * Uses keyset pagination, so each page is a bounded scan of the _id
+     * index starting after the last id of the previous page. Ids that are
+     * not ObjectIds sort before all those that are.
+     *
+     * @param afterId id of the last Employee on the previous page, or null
+     *                for the first page
+     * @param size requested page size, or null for the default
+     * @return Slice of Employees, hasNext() tells if another page follows
+     */
+    @Timed(value = METRIC_NAME, histogram = true)
+    public Slice<Employee> findEmployeesPage(String afterId, Integer size) {
+        PageRequest pageRequest = PageRequest.of(0, pageSize(size),
+                                                 Sort.by("id"));
+
+        if (afterId == null) {
+            return employeeRepo.findAllBy(pageRequest);
+        }
+        if (!ObjectId.isValid(afterId)) {
+            return employeeRepo.findAfterNonObjectId(afterId, pageRequest);
+        }
+        return employeeRepo.findByIdGreaterThan(afterId, pageRequest);
+    }
+
+    /**
+     * Find a page of one Department's Employees ordered by id, from the
+     * employee index once it is loaded, otherwise using the departmentId
+     * + _id index.
+     *
+     * @param departmentId of the Department
+     * @param afterId id of the last Employee on the previous page, or null
+     *                for the first page
+     * @param size requested page size, or null for the default
+     * @return Slice of Employees, hasNext() tells if another page follows
+     */
+    @Timed(value = METRIC_NAME, histogram = true)
+    public Slice<Employee> findDepartmentEmployeesPage(String departmentId,
+                                                       String afterId,
+                                                       Integer size) {
+        PageRequest pageRequest = PageRequest.of(0, pageSize(size),
+                                                 Sort.by("id"));
+
+        return employeeIndex.findDepartmentPage(
+                departmentId, afterId, pageRequest.getPageSize(),
+                () -> findDepartmentEmployeesPage(departmentId, afterId,
+                                                  pageRequest));
+    }
+
+    /**
+     * Search for a page of Employees by fullName, ordered by id.
+     *
+     * Exact and prefix matches use the fullName index, case insensitive
+     * matches use the case insensitive fullName index, so none of them
+     * scan the whole collection.
+     *
+     * @param search name, match type, optional department and fields to
+     *               return
+     * @param afterId id of the last Employee on the previous page, or null
+     *                for the first page
+     * @param size requested page size, or null for the default
+     * @return Slice of Employees, hasNext() tells if another page follows
+     */
+    @Timed(value = METRIC_NAME, histogram = true)
+    public Slice<Employee> searchEmployees(EmployeeSearch search,
+                                           String afterId, Integer size) {
+        if (search.getFullName() == null || search.getFullName().isEmpty()) {
+            throw new InvalidSearchException("fullName is required");
+        }
+
+        for (String field : search.getFields()) {
+            if (!SEARCH_FIELDS.contains(field)) {
+                throw new InvalidSearchException("Invalid field: " + field);
+            }
+        }
+
+        return employeeRepo.search(search, afterId, pageSize(size));
+    }
+
+    @Timed(value = METRIC_NAME, histogram = true)
     public Employee findEmployee(String employeeId) {
-        Optional<Employee> employee = employeeRepo.findById(employeeId);
+        Optional<Employee> employee = employeeIndex.find(employeeId,
+                                                         employeeCache::find);
 
         if (!employee.isPresent()) {
             throw new EntityNotFoundException(
                                 "Invalid employee id: " + employeeId);
         }
 
-        logger.info("Found employee: " + employee.get());
+        logger.debug("Found employee: {}", employee.get());
         return employee.get();
     }
 
+    @Timed(value = METRIC_NAME, histogram = true)
     public Employee saveEmployee(Employee employee) {
-        if (employee.getDepartmentId() == null ||
-            !departmentRepo.existsById(employee.getDepartmentId())) {
+        // A client supplied id may replace an existing Employee
+        Employee previous = employee.getId() == null
+                                ? null
+                                : employeeRepo.findById(employee.getId())
+                                              .orElse(null);
+
+        return saveEmployee(employee, previous);
+    }
+
+    /**
+     * Save an Employee whose stored version the caller has already looked
+     * up, as AsyncEmployeeService does alongside its department check.
+     *
+     * @param employee to save
+     * @param previous the stored Employee with the same id, null if none
+     * @return the saved Employee
+     */
+    @Timed(value = METRIC_NAME, histogram = true)
+    public Employee saveEmployee(Employee employee, Employee previous) {
+        if (previous == null) {
+            employee.setVersion(null);
+        } else if (employee.getVersion() == null) {
+            employee.setVersion(previous.getVersion());
+        }
+
+        return write(employee, previous);
+    }
+
+    /**
+     * Save many new Employees, a batch at a time.
+     *
+     * Each batch checks its department ids with at most one query and is
+     * written with one unordered bulk insert. Employees that fail
+     * validation or the insert are reported in the result rather than
+     * aborting the import.
+     *
+     * A record that can't be read ends the import. The Employees before
+     * it are still saved and it is reported as an error, so the result
+     * shows how far the import got.
+     *
+     * @param employees to save, read lazily so the input can be streamed
+     * @return counts and per-Employee errors, indexed by input position
+     */
+    @Timed(value = METRIC_NAME, histogram = true)
+    public BulkImportResult importEmployees(Iterator<Employee> employees) {
+        BulkImportResult result = new BulkImportResult();
+        List<Employee> batch = new ArrayList<>(importBatchSize);
+
+        while (true) {
+            try {
+                if (!employees.hasNext()) {
+                    break;
+                }
+                batch.add(employees.next());
+            } catch (RuntimeException ex) {
+                if (!batch.isEmpty()) {
+                    importBatch(batch, result);
+                    batch.clear();
+                }
+
+                int index = result.getReceived();
+                result.setReceived(index + 1);
+                result.addError(index, "Unable to read employee: "
+                                       + ex.getMessage());
+                break;
+            }
+
+            if (batch.size() == importBatchSize) {
+                importBatch(batch, result);
+                batch.clear();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            importBatch(batch, result);
+        }
+
+        meterRegistry.counter(IMPORT_METRIC_NAME, "result", "inserted")
+                     .increment(result.getInserted());
+        meterRegistry.counter(IMPORT_METRIC_NAME, "result", "rejected")
+                     .increment(result.getErrors().size());
+
+        logger.info("Imported employees: {}", result);
+        return result;
+    }
+
+    @Timed(value = METRIC_NAME, histogram = true)
+    public Employee updateEmployee(Employee employee) {
+        return updateEmployee(employee, null);
+    }
+
+    /**
+     * Replace an Employee, failing rather than overwriting a change made
+     * by someone else.
+     *
+     * Every field is written by one atomic update that only matches an
+     * existing Employee, so existence needs no separate read. The
+     * department is checked through the department cache. If a version is
+     * given, either as expectedVersion or in the Employee, the update only
+     * matches that version; without one the update is unconditional.
+     *
+     * @param employee new state of the Employee
+     * @param expectedVersion version from an If-Match header, or null
+     * @return the saved Employee, with its new version
+     * @throws PreconditionFailedException if not at expectedVersion
+     * @throws VersionConflictException if not at the Employee's version
+     */
+    @Timed(value = METRIC_NAME, histogram = true)
+    public Employee updateEmployee(Employee employee, Long expectedVersion) {
+        if (employee.getId() == null) {
+            throw new EntityNotFoundException("Invalid employee id: null");
+        }
+
+        EmployeePatch replacement = new EmployeePatch()
+                .set(EmployeePatch.FULL_NAME, employee.getFullName())
+                .set(EmployeePatch.DEPARTMENT_ID, employee.getDepartmentId())
+                .set(EmployeePatch.CURRENT_TASK, employee.getCurrentTask());
+
+        if (expectedVersion != null) {
+            return modify(employee.getId(), replacement, expectedVersion, true);
+        }
+        return modify(employee.getId(), replacement, employee.getVersion(),
+                      false);
+    }
+
+    /**
+     * Change some fields of an Employee with one atomic update.
+     *
+     * Only the fields in the patch are validated and written, so no read
+     * of the Employee is needed first; the previous document comes back
+     * from the update itself to keep the Department counters right.
+     *
+     * @param id of the Employee to change
+     * @param patch fields to set or remove
+     * @return the Employee after the patch
+     */
+    @Timed(value = METRIC_NAME, histogram = true)
+    public Employee patchEmployee(String id, EmployeePatch patch) {
+        return patchEmployee(id, patch, null);
+    }
+
+    /**
+     * Change some fields of an Employee if it is at the expected version.
+     *
+     * @param id of the Employee to change
+     * @param patch fields to set or remove
+     * @param expectedVersion version from an If-Match header, or null
+     * @return the Employee after the patch
+     * @throws PreconditionFailedException if not at expectedVersion
+     */
+    @Timed(value = METRIC_NAME, histogram = true)
+    public Employee patchEmployee(String id, EmployeePatch patch,
+                                  Long expectedVersion) {
+        if (patch.isEmpty()) {
+            Employee employee = findEmployee(id);
+            if (expectedVersion != null
+                    && !expectedVersion.equals(employee.getVersion())) {
+                throw new PreconditionFailedException(
+                                "Employee " + id + " is at version "
+                                + employee.getVersion());
+            }
+            return employee;
+        }
+
+        for (String field : patch.getChanges().keySet()) {
+            if (!EmployeePatch.FIELDS.contains(field)) {
+                throw new InvalidEntityFieldException(
+                                "Invalid employee field: " + field);
+            }
+        }
+
+        return modify(id, patch, expectedVersion, true);
+    }
+
+    @Timed(value = METRIC_NAME, histogram = true)
+    public void deleteEmployee(String id) {
+        Employee removed = employeeRepo.removeById(id);
+        employeeCache.invalidate(id);
+
+        if (removed == null) {
+            throw new EntityNotFoundException("Invalid employee id: " + id);
+        }
+
+        employeeIndex.update(removed, null);
+        collectionVersionRepo.increment(COLLECTION);
+        countChange(removed, null);
+        changeLog.record(COLLECTION, EntityChange.Type.DELETED, id, null);
+    }
+
+    /**
+     * Validate the fields a patch touches and apply it with one atomic
+     * update, which returns the previous Employee for the counters.
+     *
+     * @param version the Employee must be at, or null for any
+     * @param conditional whether a version mismatch is a failed
+     *                    precondition (412) rather than a conflict (409)
+     */
+    private Employee modify(String id, EmployeePatch patch, Long version,
+                            boolean conditional) {
+        if (patch.touches(EmployeePatch.DEPARTMENT_ID)
+                && !departmentCache.exists(
+                        (String) patch.get(EmployeePatch.DEPARTMENT_ID))) {
+            throw new EntityNotFoundException(
+                            "Invalid department id: "
+                            + patch.get(EmployeePatch.DEPARTMENT_ID));
+        }
+
+        if (patch.touches(EmployeePatch.FULL_NAME)
+                && !employeeValidator.validateFullName(
+                        (String) patch.get(EmployeePatch.FULL_NAME))) {
+            throw new InvalidEntityFieldException(
+                            "Invalid employee name: "
+                            + patch.get(EmployeePatch.FULL_NAME));
+        }
+
+        logger.debug("Modifying employee {} at version {}: {}",
+                     id, version, patch);
+        Employee previous = employeeRepo.patch(id, version,
+                                               patch.getChanges());
+        employeeCache.invalidate(id);
+
+        if (previous == null) {
+            // Only a failed update pays for finding out why
+            if (version != null && employeeRepo.existsById(id)) {
+                String message = "Employee " + id + " is not at version "
+                                 + version;
+                throw conditional ? new PreconditionFailedException(message)
+                                  : new VersionConflictException(message);
+            }
+            throw new EntityNotFoundException("Invalid employee id: " + id);
+        }
+
+        Employee modified = applyPatch(previous, patch);
+        employeeIndex.update(previous, modified);
+        collectionVersionRepo.increment(COLLECTION);
+        countChange(previous, modified);
+        changeLog.record(COLLECTION, EntityChange.Type.UPDATED, id, modified);
+        return modified;
+    }
+
+    private Employee write(Employee employee, Employee previous) {
+        if (!departmentCache.exists(employee.getDepartmentId())) {
             throw new EntityNotFoundException(
                             "Invalid department id: "
                             + employee.getDepartmentId());
@@ -58,25 +479,204 @@ public class EmployeeService {
                                                   + employee.getFullName());
         }
 
-        logger.info("Saving employee: " + employee);
-        return employeeRepo.save(employee);
+        logger.debug("Saving employee: {}", employee);
+        Employee saved;
+        try {
+            saved = employeeRepo.save(employee);
+        } catch (OptimisticLockingFailureException ex) {
+            employeeCache.invalidate(employee.getId());
+            throw new VersionConflictException(
+                            "Employee " + employee.getId()
+                            + " was changed by another request");
+        }
+        employeeCache.invalidate(saved.getId());
+        employeeIndex.update(previous, saved);
+        collectionVersionRepo.increment(COLLECTION);
+        countChange(previous, saved);
+        changeLog.record(COLLECTION, previous == null ? EntityChange.Type.CREATED
+                                                      : EntityChange.Type.UPDATED,
+                         saved.getId(), saved);
+        return saved;
     }
 
-    public Employee updateEmployee(Employee employee) {
-        if (employee.getId() == null ||
-            !employeeRepo.existsById(employee.getId())) {
-            throw new EntityNotFoundException("Invalid employee id: "
-                                              + employee.getId());
+    /**
+     * Update the Department counters for an Employee being replaced,
+     * either of which may be null for a create or a delete.
+     */
+    private void countChange(Employee previous, Employee current) {
+        if (previous != null && current != null
+                && Objects.equals(previous.getDepartmentId(),
+                                  current.getDepartmentId())) {
+            departmentStatsRepo.adjust(current.getDepartmentId(), 0,
+                                       withTask(current) - withTask(previous));
+            return;
         }
 
-        return saveEmployee(employee);
+        if (previous != null && current != null) {
+            // A move changes two Departments, so batch them in one write
+            departmentStatsRepo.adjustAll(Arrays.asList(
+                    new DepartmentStats(previous.getDepartmentId(), -1,
+                                        -withTask(previous)),
+                    new DepartmentStats(current.getDepartmentId(), 1,
+                                        withTask(current))));
+            return;
+        }
+
+        if (previous != null) {
+            departmentStatsRepo.adjust(previous.getDepartmentId(), -1,
+                                       -withTask(previous));
+        }
+        if (current != null) {
+            departmentStatsRepo.adjust(current.getDepartmentId(), 1,
+                                       withTask(current));
+        }
     }
 
-    public void deleteEmployee(String id) {
-        try {
-            employeeRepo.deleteById(id);
-        } catch (IllegalArgumentException ex) {
-            throw new EntityNotFoundException("Invalid employee id: " + id);
+    /**
+     * The same changes the patch made in the database, applied to a copy
+     * of the previous Employee.
+     */
+    private static Employee applyPatch(Employee previous, EmployeePatch patch) {
+        Employee patched = new Employee();
+        patched.setId(previous.getId());
+        patched.setFullName(previous.getFullName());
+        patched.setDepartmentId(previous.getDepartmentId());
+        patched.setCurrentTask(previous.getCurrentTask());
+        // $inc of a missing version starts it at 1
+        patched.setVersion(previous.getVersion() == null
+                                ? 1 : previous.getVersion() + 1);
+
+        if (patch.touches(EmployeePatch.FULL_NAME)) {
+            patched.setFullName((String) patch.get(EmployeePatch.FULL_NAME));
+        }
+        if (patch.touches(EmployeePatch.DEPARTMENT_ID)) {
+            patched.setDepartmentId(
+                    (String) patch.get(EmployeePatch.DEPARTMENT_ID));
+        }
+        if (patch.touches(EmployeePatch.CURRENT_TASK)) {
+            patched.setCurrentTask((Task) patch.get(EmployeePatch.CURRENT_TASK));
+        }
+        if (patch.touches(EmployeePatch.CURRENT_TASK_TITLE)
+                || patch.touches(EmployeePatch.CURRENT_TASK_DESCRIPTION)) {
+            // As $set of a dotted path, creating the task if there is none
+            Task task = copyOf(patched.getCurrentTask());
+            if (patch.touches(EmployeePatch.CURRENT_TASK_TITLE)) {
+                task.setTitle((String) patch.get(EmployeePatch.CURRENT_TASK_TITLE));
+            }
+            if (patch.touches(EmployeePatch.CURRENT_TASK_DESCRIPTION)) {
+                task.setDescription((String) patch.get(
+                                    EmployeePatch.CURRENT_TASK_DESCRIPTION));
+            }
+            patched.setCurrentTask(task);
+        }
+        return patched;
+    }
+
+    private static Task copyOf(Task task) {
+        Task copy = new Task();
+        if (task != null) {
+            copy.setTitle(task.getTitle());
+            copy.setDescription(task.getDescription());
+        }
+        return copy;
+    }
+
+    private static long withTask(Employee employee) {
+        return employee.getCurrentTask() == null ? 0 : 1;
+    }
+
+    private void importBatch(List<Employee> batch, BulkImportResult result) {
+        int offset = result.getReceived();
+        result.setReceived(offset + batch.size());
+
+        Set<String> departmentIds = new HashSet<>();
+        for (Employee employee : batch) {
+            if (employee.getDepartmentId() != null) {
+                departmentIds.add(employee.getDepartmentId());
+            }
+        }
+
+        Set<String> knownDepartmentIds = departmentCache.existing(departmentIds);
+
+        List<Employee> valid = new ArrayList<>(batch.size());
+        List<Integer> validIndexes = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); ++i) {
+            Employee employee = batch.get(i);
+
+            if (!knownDepartmentIds.contains(employee.getDepartmentId())) {
+                result.addError(offset + i, "Invalid department id: "
+                                            + employee.getDepartmentId());
+            } else if (!employeeValidator.validateFullName(
+                                                employee.getFullName())) {
+                result.addError(offset + i, "Invalid employee name: "
+                                            + employee.getFullName());
+            } else {
+                valid.add(employee);
+                validIndexes.add(offset + i);
+            }
+        }
+
+        // Ids supplied by the client may already be cached as unknown
+        for (Employee employee : valid) {
+            employeeCache.invalidate(employee.getId());
+        }
+
+        Map<Integer, String> failures = employeeRepo.insertUnordered(valid);
+        for (Map.Entry<Integer, String> failure : failures.entrySet()) {
+            result.addError(validIndexes.get(failure.getKey()),
+                            failure.getValue());
+        }
+        result.setInserted(result.getInserted() + valid.size()
+                           - failures.size());
+
+        if (failures.size() < valid.size()) {
+            collectionVersionRepo.increment(COLLECTION);
+        }
+
+        // Inserts never replace, so each inserted Employee only adds
+        Map<String, long[]> counts = new HashMap<>();
+        for (int i = 0; i < valid.size(); ++i) {
+            if (!failures.containsKey(i)) {
+                Employee employee = valid.get(i);
+                employeeIndex.update(null, employee);
+                changeLog.record(COLLECTION, EntityChange.Type.CREATED,
+                                 employee.getId(), employee);
+                long[] count = counts.computeIfAbsent(
+                                    employee.getDepartmentId(),
+                                    departmentId -> new long[2]);
+                count[0] += 1;
+                count[1] += withTask(employee);
+            }
+        }
+        for (Map.Entry<String, long[]> count : counts.entrySet()) {
+            departmentStatsRepo.adjust(count.getKey(),
+                                       count.getValue()[0],
+                                       count.getValue()[1]);
+        }
+    }
+
+    private Slice<Employee> findDepartmentEmployeesPage(String departmentId,
+                                                        String afterId,
+                                                        PageRequest pageRequest) {
+        if (afterId == null) {
+            return employeeRepo.findByDepartmentId(departmentId, pageRequest);
+        }
+        if (!ObjectId.isValid(afterId)) {
+            return employeeRepo.findByDepartmentIdAfterNonObjectId(
+                                    departmentId, afterId, pageRequest);
+        }
+        return employeeRepo.findByDepartmentIdAndIdGreaterThan(
+                                    departmentId, afterId, pageRequest);
+    }
+
+    private int pageSize(Integer size) {
+        if (size == null) {
+            return defaultPageSize;
+        }
+
+        if (size < 1) {
+            throw new InvalidPageRequestException("Invalid page size: " + size);
         }
+        return Math.min(size, maxPageSize);
     }
 }
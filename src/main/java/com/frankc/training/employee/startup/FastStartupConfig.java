@@ -0,0 +1,56 @@
+package com.frankc.training.employee.startup;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+
+import com.frankc.training.employee.repositories.EmployeeIndexInitializer;
+import com.frankc.training.employee.repositories.EmployeeRepository;
+import com.frankc.training.employee.repositories.EntityVersionInitializer;
+import com.frankc.training.employee.services.DepartmentStatsReconciler;
+
+/**
+ * Startup-optimized servlet mode, for instances added under load.
+ *
+ * Application beans are created on first use, apart from the index and
+ * version initializers and the scheduled stats reconciler. Repositories
+ * are registered from the repositories package only instead of by the
+ * auto-configured scan, and Swagger is not configured at all.
+ * application-fast-startup turns off JMX and the reactive Mongo client.
+ *
+ * With startup.exit-on-ready the application exits as soon as it has
+ * started, which the cds build profile uses to record the classes loaded
+ * during startup in a shared archive.
+ */
+@Profile("fast-startup & !reactive")
+@Configuration
+public class FastStartupConfig {
+
+    /**
+     * The embedded store supplies its own repositories.
+     */
+    @Profile("!embedded-store")
+    @Configuration
+    @EnableMongoRepositories(basePackageClasses = EmployeeRepository.class)
+    static class MongoRepositoriesConfig {
+    }
+
+    @Bean
+    public static LazyInitBeanFactoryPostProcessor lazyInitBeanFactoryPostProcessor() {
+        return new LazyInitBeanFactoryPostProcessor(EmployeeIndexInitializer.class,
+                                                    EntityVersionInitializer.class,
+                                                    DepartmentStatsReconciler.class);
+    }
+
+    @Bean
+    @ConditionalOnProperty("startup.exit-on-ready")
+    public ApplicationListener<ApplicationReadyEvent> exitOnReady() {
+        return event -> System.exit(
+                SpringApplication.exit(event.getApplicationContext()));
+    }
+}
@@ -0,0 +1,39 @@
+package com.frankc.training.employee.startup;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+
+/**
+ * Marks every application bean lazy, so it is created on first use
+ * rather than while the context starts.
+ *
+ * Infrastructure beans are left alone, as are the given types, which
+ * have to do their work at startup.
+ */
+public class LazyInitBeanFactoryPostProcessor implements BeanFactoryPostProcessor {
+
+    private final Set<String> eagerClassNames = new HashSet<>();
+
+    public LazyInitBeanFactoryPostProcessor(final Class<?>... eagerTypes) {
+        for (Class<?> eagerType : eagerTypes) {
+            eagerClassNames.add(eagerType.getName());
+        }
+    }
+
+    @Override
+    public void postProcessBeanFactory(
+                        final ConfigurableListableBeanFactory beanFactory) {
+        for (String name : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(name);
+
+            if (definition.getRole() != BeanDefinition.ROLE_INFRASTRUCTURE
+                    && !eagerClassNames.contains(definition.getBeanClassName())) {
+                definition.setLazyInit(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.frankc.training.employee.store;
+
+import com.frankc.training.employee.entities.CollectionVersion;
+import com.frankc.training.employee.repositories.CollectionVersionRepository;
+
+/**
+ * CollectionVersionRepository over a LogStore.
+ */
+public class LogCollectionVersionRepository
+                    extends LogStoreRepository<CollectionVersion>
+                    implements CollectionVersionRepository {
+
+    public LogCollectionVersionRepository(LogStore<CollectionVersion> store) {
+        super(store);
+    }
+
+    @Override
+    public long increment(String collection) {
+        return store.atomically(() -> {
+            CollectionVersion counter = store.get(collection);
+            if (counter == null) {
+                counter = new CollectionVersion();
+                counter.setId(collection);
+            }
+            counter.setVersion(counter.getVersion() + 1);
+            store.put(counter);
+            return counter.getVersion();
+        });
+    }
+
+    @Override
+    protected String getId(CollectionVersion counter) {
+        return counter.getId();
+    }
+
+    @Override
+    protected void setId(CollectionVersion counter, String id) {
+        counter.setId(id);
+    }
+}
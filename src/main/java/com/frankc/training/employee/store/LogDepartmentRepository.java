@@ -0,0 +1,73 @@
+package com.frankc.training.employee.store;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import org.springframework.dao.DuplicateKeyException;
+
+import com.frankc.training.employee.entities.Department;
+import com.frankc.training.employee.repositories.DepartmentRepository;
+
+/**
+ * DepartmentRepository over a LogStore, keeping names unique as the
+ * unique name index does in Mongo.
+ */
+public class LogDepartmentRepository extends LogStoreRepository<Department>
+                                     implements DepartmentRepository {
+
+    public LogDepartmentRepository(LogStore<Department> store) {
+        super(store);
+    }
+
+    @Override
+    public Department findByName(String name) {
+        List<Department> found = store.scan(null,
+                department -> Objects.equals(name, department.getName()), 1);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    @Override
+    public Stream<Department> streamAllBy() {
+        return store.stream();
+    }
+
+    @Override
+    public Department removeById(String id) {
+        return store.remove(id);
+    }
+
+    @Override
+    protected String getId(Department department) {
+        return department.getId();
+    }
+
+    @Override
+    protected void setId(Department department, String id) {
+        department.setId(id);
+    }
+
+    @Override
+    protected Long getVersion(Department department) {
+        return department.getVersion();
+    }
+
+    @Override
+    protected void setVersion(Department department, Long version) {
+        department.setVersion(version);
+    }
+
+    @Override
+    protected boolean isVersioned() {
+        return true;
+    }
+
+    @Override
+    protected void checkUnique(Department department) {
+        Department named = findByName(department.getName());
+        if (named != null && !named.getId().equals(department.getId())) {
+            throw new DuplicateKeyException(
+                    "Duplicate key: name " + department.getName());
+        }
+    }
+}
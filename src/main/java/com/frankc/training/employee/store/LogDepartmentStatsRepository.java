@@ -0,0 +1,53 @@
+package com.frankc.training.employee.store;
+
+import java.util.Collection;
+
+import com.frankc.training.employee.entities.DepartmentStats;
+import com.frankc.training.employee.repositories.DepartmentStatsRepository;
+
+/**
+ * DepartmentStatsRepository over a LogStore.
+ */
+public class LogDepartmentStatsRepository
+                    extends LogStoreRepository<DepartmentStats>
+                    implements DepartmentStatsRepository {
+
+    public LogDepartmentStatsRepository(LogStore<DepartmentStats> store) {
+        super(store);
+    }
+
+    @Override
+    public void adjust(String departmentId, long headcount, long withTask) {
+        if (departmentId == null || (headcount == 0 && withTask == 0)) {
+            return;
+        }
+
+        store.atomically(() -> {
+            DepartmentStats stats = store.get(departmentId);
+            if (stats == null) {
+                stats = new DepartmentStats(departmentId, 0, 0);
+            }
+            stats.setHeadcount(stats.getHeadcount() + headcount);
+            stats.setWithTask(stats.getWithTask() + withTask);
+            store.put(stats);
+            return null;
+        });
+    }
+
+    @Override
+    public void adjustAll(Collection<DepartmentStats> changes) {
+        for (DepartmentStats change : changes) {
+            adjust(change.getId(), change.getHeadcount(), change.getWithTask());
+        }
+    }
+
+    @Override
+    protected String getId(DepartmentStats stats) {
+        return stats.getId();
+    }
+
+    @Override
+    protected void setId(DepartmentStats stats, String id) {
+        stats.setId(id);
+    }
+}
@@ -0,0 +1,303 @@
+package com.frankc.training.employee.store;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import org.bson.types.ObjectId;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+import com.frankc.training.employee.dto.DepartmentSummary;
+import com.frankc.training.employee.dto.EmployeePatch;
+import com.frankc.training.employee.dto.EmployeeSearch;
+import com.frankc.training.employee.entities.Employee;
+import com.frankc.training.employee.entities.Task;
+import com.frankc.training.employee.repositories.EmployeeRepository;
+
+/**
+ * EmployeeRepository over a LogStore.
+ *
+ * Queries other than by id read every Employee, which suits the small
+ * directories of an edge deployment but not a large one.
+ */
+public class LogEmployeeRepository extends LogStoreRepository<Employee>
+                                   implements EmployeeRepository {
+
+    public LogEmployeeRepository(LogStore<Employee> store) {
+        super(store);
+    }
+
+    @Override
+    public Slice<Employee> findAllBy(Pageable pageable) {
+        return slice(null, employee -> true, pageable);
+    }
+
+    @Override
+    public Slice<Employee> findByIdGreaterThan(String id, Pageable pageable) {
+        return slice(id, employee -> true, pageable);
+    }
+
+    @Override
+    public Slice<Employee> findAfterNonObjectId(String id, Pageable pageable) {
+        // Every id is ordered as a string here, whatever its type in Mongo
+        return slice(id, employee -> true, pageable);
+    }
+
+    @Override
+    public Slice<Employee> findByDepartmentId(String departmentId,
+                                              Pageable pageable) {
+        return slice(null, inDepartment(departmentId), pageable);
+    }
+
+    @Override
+    public Slice<Employee> findByDepartmentIdAndIdGreaterThan(
+                    String departmentId, String id, Pageable pageable) {
+        return slice(id, inDepartment(departmentId), pageable);
+    }
+
+    @Override
+    public Slice<Employee> findByDepartmentIdAfterNonObjectId(
+                    String departmentId, String id, Pageable pageable) {
+        return slice(id, inDepartment(departmentId), pageable);
+    }
+
+    @Override
+    public Stream<Employee> streamAllBy() {
+        return store.stream();
+    }
+
+    @Override
+    public boolean existsByDepartmentId(String departmentId) {
+        return store.stream().anyMatch(inDepartment(departmentId));
+    }
+
+    @Override
+    public Map<Integer, String> insertUnordered(List<Employee> employees) {
+        Map<Integer, String> failures = new TreeMap<>();
+
+        store.atomically(() -> {
+            for (int i = 0; i < employees.size(); ++i) {
+                Employee employee = employees.get(i);
+                employee.setVersion(0L);
+
+                if (employee.getId() == null) {
+                    employee.setId(new ObjectId().toHexString());
+                } else if (store.contains(employee.getId())) {
+                    failures.put(i, "Duplicate key: " + employee.getId());
+                    continue;
+                }
+                store.put(employee);
+            }
+            return null;
+        });
+        return failures;
+    }
+
+    @Override
+    public Slice<Employee> search(EmployeeSearch search, String afterId,
+                                  int size) {
+        Predicate<Employee> filter = nameMatches(search);
+        if (search.getDepartmentId() != null) {
+            filter = filter.and(inDepartment(search.getDepartmentId()));
+        }
+
+        Slice<Employee> found = slice(afterId, filter,
+                                      PageRequest.of(0, size, Sort.by("id")));
+        if (search.getFields().isEmpty()) {
+            return found;
+        }
+        return found.map(employee -> project(employee, search.getFields()));
+    }
+
+    @Override
+    public DepartmentSummary summarizeDepartment(String departmentId) {
+        List<DepartmentSummary> summaries = summarize(inDepartment(departmentId));
+
+        // No Employees means no summary at all
+        DepartmentSummary summary = summaries.isEmpty()
+                                        ? new DepartmentSummary()
+                                        : summaries.get(0);
+        summary.setDepartmentId(departmentId);
+        return summary;
+    }
+
+    @Override
+    public List<DepartmentSummary> summarizeDepartments() {
+        return summarize(employee -> true);
+    }
+
+    @Override
+    public Employee removeById(String id) {
+        return store.remove(id);
+    }
+
+    @Override
+    public Employee patch(String id, Long version,
+                          Map<String, Object> changes) {
+        return store.atomically(() -> {
+            Employee previous = store.get(id);
+            if (previous == null || (version != null
+                                && !version.equals(previous.getVersion()))) {
+                return null;
+            }
+
+            Employee patched = store.get(id);
+            for (Map.Entry<String, Object> change : changes.entrySet()) {
+                set(patched, change.getKey(), change.getValue());
+            }
+            // As $inc, a missing version starts at 1
+            patched.setVersion(previous.getVersion() == null
+                                    ? 1 : previous.getVersion() + 1);
+            store.put(patched);
+            return previous;
+        });
+    }
+
+    @Override
+    public Set<String> findExistingIds(Collection<String> ids) {
+        Set<String> existing = new HashSet<>();
+        for (String id : ids) {
+            if (store.contains(id)) {
+                existing.add(id);
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    protected String getId(Employee employee) {
+        return employee.getId();
+    }
+
+    @Override
+    protected void setId(Employee employee, String id) {
+        employee.setId(id);
+    }
+
+    @Override
+    protected Long getVersion(Employee employee) {
+        return employee.getVersion();
+    }
+
+    @Override
+    protected void setVersion(Employee employee, Long version) {
+        employee.setVersion(version);
+    }
+
+    @Override
+    protected boolean isVersioned() {
+        return true;
+    }
+
+    private List<DepartmentSummary> summarize(Predicate<Employee> filter) {
+        Map<String, DepartmentSummary> summaries = new LinkedHashMap<>();
+
+        for (Employee employee : store.scan(null, filter, -1)) {
+            DepartmentSummary summary = summaries.computeIfAbsent(
+                    employee.getDepartmentId(), departmentId -> {
+                        DepartmentSummary created = new DepartmentSummary();
+                        created.setDepartmentId(departmentId);
+                        return created;
+                    });
+
+            summary.setHeadcount(summary.getHeadcount() + 1);
+            if (employee.getCurrentTask() != null) {
+                summary.setWithTask(summary.getWithTask() + 1);
+            } else {
+                summary.setWithoutTask(summary.getWithoutTask() + 1);
+            }
+        }
+        return new ArrayList<>(summaries.values());
+    }
+
+    private static Predicate<Employee> inDepartment(String departmentId) {
+        return employee -> Objects.equals(departmentId,
+                                          employee.getDepartmentId());
+    }
+
+    private static Predicate<Employee> nameMatches(EmployeeSearch search) {
+        String name = search.getFullName();
+
+        switch (search.getMatch()) {
+            case PREFIX:
+                return employee -> employee.getFullName() != null
+                                   && employee.getFullName().startsWith(name);
+            case IGNORE_CASE:
+                return employee -> name.equalsIgnoreCase(employee.getFullName());
+            default:
+                return employee -> name.equals(employee.getFullName());
+        }
+    }
+
+    /**
+     * A copy of the Employee with only the id and the given fields, as a
+     * Mongo projection returns it.
+     */
+    private static Employee project(Employee employee, List<String> fields) {
+        Employee projected = new Employee();
+        projected.setId(employee.getId());
+
+        for (String field : fields) {
+            switch (field) {
+                case EmployeePatch.FULL_NAME:
+                    projected.setFullName(employee.getFullName());
+                    break;
+                case EmployeePatch.DEPARTMENT_ID:
+                    projected.setDepartmentId(employee.getDepartmentId());
+                    break;
+                case EmployeePatch.CURRENT_TASK:
+                    projected.setCurrentTask(employee.getCurrentTask());
+                    break;
+                default:
+                    // id is always included
+            }
+        }
+        return projected;
+    }
+
+    /**
+     * The Employee's task, created if it has none as $set of a dotted path
+     * would.
+     */
+    private static Task currentTask(Employee employee) {
+        if (employee.getCurrentTask() == null) {
+            employee.setCurrentTask(new Task());
+        }
+        return employee.getCurrentTask();
+    }
+
+    private static void set(Employee employee, String field, Object value) {
+        switch (field) {
+            case EmployeePatch.FULL_NAME:
+                employee.setFullName((String) value);
+                break;
+            case EmployeePatch.DEPARTMENT_ID:
+                employee.setDepartmentId((String) value);
+                break;
+            case EmployeePatch.CURRENT_TASK:
+                employee.setCurrentTask((Task) value);
+                break;
+            case EmployeePatch.CURRENT_TASK_TITLE:
+                currentTask(employee).setTitle((String) value);
+                break;
+            case EmployeePatch.CURRENT_TASK_DESCRIPTION:
+                currentTask(employee).setDescription((String) value);
+                break;
+            default:
+                throw new InvalidDataAccessApiUsageException(
+                                "Unknown employee field: " + field);
+        }
+    }
+}
@@ -0,0 +1,559 @@
+package com.frankc.training.employee.store;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+/**
+ * A collection of documents kept as JSON in one append-only,
+ * memory-mapped log file, with an in-memory index from each id to the
+ * offset of its latest record.
+ *
+ * Every write appends a record and reads decode the record the index
+ * points at, so nothing but the index is held on the heap. On open the
+ * log is replayed to rebuild the index; a record torn by a crash fails
+ * its checksum and is discarded with everything after it. Once less than
+ * half of a log larger than compactionMinBytes is live, the live records
+ * are copied to a new file which replaces the log with an atomic rename.
+ *
+ * Record layout: int length of the body, int CRC32 of the body, then the
+ * body: a type byte, the id as int length and UTF-8 bytes, and for a PUT
+ * the JSON document. The length is written last, so a record cut short
+ * while being written reads as the end of the log.
+ *
+ * A log is mapped as one buffer, so is limited to 2GB.
+ */
+public class LogStore<T> implements Closeable {
+
+    private static final int MAGIC = 0x454c4f47;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final long MIN_MAPPED_SIZE = 1 << 20;
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final Path file;
+    private final Path compactingFile;
+    private final Class<T> type;
+    private final Function<T, String> idOf;
+    private final ObjectMapper objectMapper;
+    private final boolean fsync;
+    private final long compactionMinBytes;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Integer> offsets = new TreeMap<>();
+    private final List<BiConsumer<String, T>> listeners = new CopyOnWriteArrayList<>();
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int writePosition;
+    private long liveBytes;
+
+    /**
+     * Open the log, creating it if needed, and recover its index.
+     *
+     * @param file of the log
+     * @param type of the stored documents
+     * @param idOf gets the id of a document
+     * @param objectMapper reads and writes documents
+     * @param fsync whether to force every write to disk before returning;
+     *              otherwise a write survives a process crash but not an
+     *              operating system crash
+     * @param compactionMinBytes size below which the log is not compacted
+     */
+    public LogStore(Path file, Class<T> type, Function<T, String> idOf,
+                    ObjectMapper objectMapper, boolean fsync,
+                    long compactionMinBytes) {
+        this.file = file;
+        this.compactingFile = file.resolveSibling(file.getFileName() + ".compacting");
+        this.type = type;
+        this.idOf = idOf;
+        this.objectMapper = objectMapper;
+        this.fsync = fsync;
+        this.compactionMinBytes = compactionMinBytes;
+
+        try {
+            open();
+        } catch (IOException ex) {
+            throw new DataAccessResourceFailureException(
+                            "Unable to open " + file, ex);
+        }
+    }
+
+    public T get(String id) {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            Integer position = offsets.get(id);
+            return position == null ? null : decode(position);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(String id) {
+        lock.readLock().lock();
+        try {
+            return offsets.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return offsets.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return every id, in order
+     */
+    public List<String> ids() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(offsets.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find documents in id order.
+     *
+     * @param afterId only documents with greater ids, or null for all
+     * @param filter documents must match
+     * @param limit maximum number of documents, negative for no limit
+     * @return matching documents ordered by id
+     */
+    public List<T> scan(String afterId, Predicate<? super T> filter,
+                        int limit) {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            Collection<Integer> positions = afterId == null
+                    ? offsets.values()
+                    : offsets.tailMap(afterId, false).values();
+
+            List<T> found = new ArrayList<>();
+            for (Integer position : positions) {
+                if (limit >= 0 && found.size() >= limit) {
+                    break;
+                }
+                T document = decode(position);
+                if (filter.test(document)) {
+                    found.add(document);
+                }
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stream every document in id order, decoding each as it is reached.
+     * Documents written after the stream starts may or may not be seen.
+     *
+     * @return Stream of documents
+     */
+    public Stream<T> stream() {
+        return ids().stream().map(this::get).filter(Objects::nonNull);
+    }
+
+    /**
+     * Store a document, replacing any with the same id.
+     *
+     * @param document to store, its id must be set
+     */
+    public void put(T document) {
+        String id = idOf.apply(document);
+        if (id == null) {
+            throw new IllegalArgumentException("Document id must not be null");
+        }
+
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(document);
+        } catch (IOException ex) {
+            throw new DataAccessResourceFailureException(
+                            "Unable to write " + document, ex);
+        }
+
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            index(id, append(PUT, id, json));
+            compactIfSparse();
+            notifyListeners(id, document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param id of the document to remove
+     * @return the removed document, or null if there was none
+     */
+    public T remove(String id) {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            Integer position = offsets.get(id);
+            if (position == null) {
+                return null;
+            }
+
+            T removed = decode(position);
+            append(DELETE, id, null);
+            liveBytes -= recordSize(offsets.remove(id));
+            compactIfSparse();
+            notifyListeners(id, null);
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Be told of every write, in the order they are made. Listeners are
+     * called while the write is still locked, so must not block.
+     *
+     * @param listener given the id and the stored document, or null for
+     *                 a remove
+     */
+    public void addListener(BiConsumer<String, T> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Run reads and writes that no other write may interleave with, such
+     * as a check of a document's version followed by its update.
+     */
+    public <R> R atomically(Supplier<R> operation) {
+        lock.writeLock().lock();
+        try {
+            return operation.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return bytes of the log holding the latest record of a document
+     */
+    public long liveBytes() {
+        lock.readLock().lock();
+        try {
+            return liveBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return bytes of records in the log, live or not
+     */
+    public long logBytes() {
+        lock.readLock().lock();
+        try {
+            return writePosition - HEADER_SIZE;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrite the log with only its live records.
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            long before = logBytes();
+            rewrite();
+            logger.info("Compacted {} from {} to {} bytes",
+                        file, before, logBytes());
+        } catch (IOException ex) {
+            throw new DataAccessResourceFailureException(
+                            "Unable to compact " + file, ex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (channel != null) {
+                buffer.force();
+                // Drop the unused mapped space
+                channel.truncate(writePosition);
+                channel.close();
+                channel = null;
+                buffer = null;
+            }
+        } catch (IOException ex) {
+            throw new DataAccessResourceFailureException(
+                            "Unable to close " + file, ex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void open() throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        // Left by a compaction that did not finish, the log is intact
+        Files.deleteIfExists(compactingFile);
+
+        channel = FileChannel.open(file, READ, WRITE, CREATE);
+        long size = channel.size();
+        map(Math.max(size, MIN_MAPPED_SIZE));
+
+        if (size < HEADER_SIZE) {
+            buffer.putInt(0, MAGIC).putInt(4, FORMAT_VERSION);
+        } else if (buffer.getInt(0) != MAGIC
+                || buffer.getInt(4) != FORMAT_VERSION) {
+            channel.close();
+            throw new IOException(file + " is not a log of this format");
+        }
+
+        recover();
+        logger.info("Opened {}: {} documents, {} of {} bytes live",
+                    file, offsets.size(), liveBytes, logBytes());
+    }
+
+    private void recover() {
+        int position = HEADER_SIZE;
+        int limit = buffer.capacity();
+
+        while (position <= limit - RECORD_HEADER_SIZE) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+
+            if (length < 0 || length > limit - position - RECORD_HEADER_SIZE
+                    || buffer.getInt(position + 4) != crc(position, length)) {
+                logger.warn("Discarding torn record at offset {} of {}",
+                            position, file);
+                for (int i = position; i < limit; ++i) {
+                    buffer.put(i, (byte) 0);
+                }
+                break;
+            }
+
+            String id = readId(position);
+            if (buffer.get(position + RECORD_HEADER_SIZE) == PUT) {
+                index(id, position);
+            } else {
+                Integer removed = offsets.remove(id);
+                if (removed != null) {
+                    liveBytes -= recordSize(removed);
+                }
+            }
+            position += RECORD_HEADER_SIZE + length;
+        }
+        writePosition = position;
+    }
+
+    private int append(byte recordType, String id, byte[] json) {
+        byte[] idBytes = id.getBytes(UTF_8);
+        int length = 1 + 4 + idBytes.length + (json == null ? 0 : json.length);
+
+        ByteBuffer body = ByteBuffer.allocate(length);
+        body.put(recordType).putInt(idBytes.length).put(idBytes);
+        if (json != null) {
+            body.put(json);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(body.array());
+
+        int position = writePosition;
+        ensureCapacity((long) position + RECORD_HEADER_SIZE + length);
+
+        ByteBuffer target = buffer.duplicate();
+        target.position(position + RECORD_HEADER_SIZE);
+        target.put(body.array());
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.putInt(position, length);
+
+        if (fsync) {
+            buffer.force();
+        }
+        writePosition = position + RECORD_HEADER_SIZE + length;
+        return position;
+    }
+
+    private void index(String id, int position) {
+        Integer previous = offsets.put(id, position);
+        if (previous != null) {
+            liveBytes -= recordSize(previous);
+        }
+        liveBytes += recordSize(position);
+    }
+
+    private T decode(int position) {
+        int length = buffer.getInt(position);
+        int idLength = buffer.getInt(position + RECORD_HEADER_SIZE + 1);
+
+        ByteBuffer json = buffer.duplicate();
+        json.position(position + RECORD_HEADER_SIZE + 5 + idLength);
+        json.limit(position + RECORD_HEADER_SIZE + length);
+        try {
+            return objectMapper.readValue(
+                        new ByteBufferBackedInputStream(json), type);
+        } catch (IOException ex) {
+            throw new DataAccessResourceFailureException(
+                    "Unable to read record at offset " + position
+                    + " of " + file, ex);
+        }
+    }
+
+    private String readId(int position) {
+        int idLength = buffer.getInt(position + RECORD_HEADER_SIZE + 1);
+        byte[] id = new byte[idLength];
+        ByteBuffer source = buffer.duplicate();
+        source.position(position + RECORD_HEADER_SIZE + 5);
+        source.get(id);
+        return new String(id, UTF_8);
+    }
+
+    private int crc(int position, int length) {
+        byte[] body = new byte[length];
+        ByteBuffer source = buffer.duplicate();
+        source.position(position + RECORD_HEADER_SIZE);
+        source.get(body);
+
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    private int recordSize(int position) {
+        return RECORD_HEADER_SIZE + buffer.getInt(position);
+    }
+
+    private void ensureCapacity(long required) {
+        if (required <= buffer.capacity()) {
+            return;
+        }
+        if (required > Integer.MAX_VALUE) {
+            throw new DataAccessResourceFailureException(file + " is full");
+        }
+
+        try {
+            map(Math.min(Integer.MAX_VALUE,
+                         Math.max(required, 2L * buffer.capacity())));
+        } catch (IOException ex) {
+            throw new DataAccessResourceFailureException(
+                            "Unable to grow " + file, ex);
+        }
+    }
+
+    private void map(long size) throws IOException {
+        // Mapping past the end grows the file; the old mapping is released
+        // when it is garbage collected
+        buffer = channel.map(MapMode.READ_WRITE, 0, size);
+    }
+
+    private void compactIfSparse() {
+        if (writePosition > compactionMinBytes && liveBytes * 2 < logBytes()) {
+            compact();
+        }
+    }
+
+    private void rewrite() throws IOException {
+        int size = HEADER_SIZE + (int) liveBytes;
+        TreeMap<String, Integer> moved = new TreeMap<>();
+        int position = HEADER_SIZE;
+
+        try (FileChannel out = FileChannel.open(compactingFile, READ, WRITE,
+                                                CREATE, TRUNCATE_EXISTING)) {
+            MappedByteBuffer compacted = out.map(MapMode.READ_WRITE, 0,
+                                        Math.max(size, MIN_MAPPED_SIZE));
+            compacted.putInt(0, MAGIC).putInt(4, FORMAT_VERSION);
+
+            for (Map.Entry<String, Integer> entry : offsets.entrySet()) {
+                ByteBuffer record = buffer.duplicate();
+                record.position(entry.getValue());
+                record.limit(entry.getValue() + recordSize(entry.getValue()));
+
+                compacted.position(position);
+                compacted.put(record);
+                moved.put(entry.getKey(), position);
+                position += recordSize(entry.getValue());
+            }
+            compacted.force();
+        }
+
+        channel.close();
+        try {
+            Files.move(compactingFile, file, ATOMIC_MOVE);
+        } finally {
+            // Either the compacted log or, if the move failed, the original
+            channel = FileChannel.open(file, READ, WRITE);
+            map(channel.size());
+        }
+
+        offsets.clear();
+        offsets.putAll(moved);
+        writePosition = position;
+    }
+
+    private void ensureOpen() {
+        if (channel == null) {
+            throw new IllegalStateException(file + " is closed");
+        }
+    }
+
+    private void notifyListeners(String id, T document) {
+        for (BiConsumer<String, T> listener : listeners) {
+            listener.accept(id, document);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.frankc.training.employee.store;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.frankc.training.employee.coherence.LocalChangeFeed;
+import com.frankc.training.employee.entities.CollectionVersion;
+import com.frankc.training.employee.entities.Department;
+import com.frankc.training.employee.entities.DepartmentStats;
+import com.frankc.training.employee.entities.Employee;
+import com.frankc.training.employee.repositories.CollectionVersionRepository;
+import com.frankc.training.employee.repositories.DepartmentRepository;
+import com.frankc.training.employee.repositories.DepartmentStatsRepository;
+import com.frankc.training.employee.repositories.EmployeeRepository;
+
+/**
+ * Embedded storage for single-node edge deployments without Mongo.
+ *
+ * Each collection is a LogStore file in store.directory, and the
+ * repositories the services use are implemented over them, so nothing
+ * above the repositories changes. application-embedded-store turns off
+ * the Mongo client and Spring Data's Mongo repositories. Servlet mode
+ * only.
+ */
+@Profile("embedded-store & !reactive")
+@Configuration
+public class LogStoreConfig {
+
+    @Value("${store.directory:data}")
+    private String directory;
+
+    @Value("${store.fsync:false}")
+    private boolean fsync;
+
+    @Value("${store.compaction-min-bytes:1048576}")
+    private long compactionMinBytes;
+
+    @Value("${cache.coherence.queue-capacity:10000}")
+    private int changeQueueCapacity;
+
+    /**
+     * Department stats are filled in when read, never stored.
+     */
+    abstract static class DepartmentMixin {
+        @JsonIgnore
+        abstract DepartmentStats getStats();
+    }
+
+    private final ObjectMapper storageMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .addMixIn(Department.class, DepartmentMixin.class);
+
+    /**
+     * Stands in for Mongo change streams, so that cache coherence can run
+     * over the embedded store.
+     */
+    @Bean
+    public LocalChangeFeed changeFeed() {
+        return new LocalChangeFeed(changeQueueCapacity);
+    }
+
+    @Bean(destroyMethod = "close")
+    public LogStore<Employee> employeeStore() {
+        LogStore<Employee> store = store("employees", Employee.class,
+                                         Employee::getId);
+        store.addListener((id, employee) ->
+                        changeFeed().publish("employees", id, employee));
+        return store;
+    }
+
+    @Bean(destroyMethod = "close")
+    public LogStore<Department> departmentStore() {
+        LogStore<Department> store = store("departments", Department.class,
+                                           Department::getId);
+        store.addListener((id, department) ->
+                        changeFeed().publish("departments", id, department));
+        return store;
+    }
+
+    @Bean(destroyMethod = "close")
+    public LogStore<DepartmentStats> departmentStatsStore() {
+        return store("departmentStats", DepartmentStats.class,
+                     DepartmentStats::getId);
+    }
+
+    @Bean(destroyMethod = "close")
+    public LogStore<CollectionVersion> collectionVersionStore() {
+        return store("collectionVersions", CollectionVersion.class,
+                     CollectionVersion::getId);
+    }
+
+    @Bean
+    public EmployeeRepository employeeRepository() {
+        return new LogEmployeeRepository(employeeStore());
+    }
+
+    @Bean
+    public DepartmentRepository departmentRepository() {
+        return new LogDepartmentRepository(departmentStore());
+    }
+
+    @Bean
+    public DepartmentStatsRepository departmentStatsRepository() {
+        return new LogDepartmentStatsRepository(departmentStatsStore());
+    }
+
+    @Bean
+    public CollectionVersionRepository collectionVersionRepository() {
+        return new LogCollectionVersionRepository(collectionVersionStore());
+    }
+
+    private <T> LogStore<T> store(String collection, Class<T> type,
+                                  Function<T, String> idOf) {
+        Path file = Paths.get(directory, collection + ".log");
+        return new LogStore<>(file, type, idOf, storageMapper, fsync,
+                              compactionMinBytes);
+    }
+}
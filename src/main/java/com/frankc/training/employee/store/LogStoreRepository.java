@@ -0,0 +1,317 @@
+package com.frankc.training.employee.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.util.Assert;
+
+/**
+ * The CRUD operations of a MongoRepository over a LogStore, with the same
+ * results and exceptions as Spring Data MongoDB gives.
+ *
+ * New documents get an ObjectId as Mongo would give them. Versioned
+ * documents are saved as Spring Data saves an @Version entity: with no
+ * version the save is an insert, failing with DuplicateKeyException if
+ * the id is taken; with a version it must match the stored one, or the
+ * save fails with OptimisticLockingFailureException, and is incremented.
+ * Only sorting by id is supported, and query by example not at all.
+ */
+public abstract class LogStoreRepository<T> implements MongoRepository<T, String> {
+
+    protected final LogStore<T> store;
+
+    protected LogStoreRepository(LogStore<T> store) {
+        this.store = store;
+    }
+
+    protected abstract String getId(T document);
+
+    protected abstract void setId(T document, String id);
+
+    /**
+     * @return the document's version, or null if it has none; always null
+     *         for unversioned documents
+     */
+    protected Long getVersion(T document) {
+        return null;
+    }
+
+    protected void setVersion(T document, Long version) {
+    }
+
+    protected boolean isVersioned() {
+        return false;
+    }
+
+    /**
+     * Check the constraints of unique indexes before a document is written.
+     *
+     * @throws DuplicateKeyException if another document has the same key
+     */
+    protected void checkUnique(T document) {
+    }
+
+    @Override
+    public <S extends T> S save(S document) {
+        Assert.notNull(document, "Entity must not be null!");
+
+        return store.atomically(() -> {
+            if (getId(document) == null) {
+                setId(document, new ObjectId().toHexString());
+            }
+            T current = store.get(getId(document));
+
+            if (!isVersioned()) {
+                checkUnique(document);
+                store.put(document);
+                return document;
+            }
+
+            Long version = getVersion(document);
+            if (version == null) {
+                return insertNew(document);
+            }
+
+            if (current == null || !version.equals(getVersion(current))) {
+                throw new OptimisticLockingFailureException(
+                        "Cannot save entity " + getId(document)
+                        + " with version " + version
+                        + " as it has been modified or deleted");
+            }
+            checkUnique(document);
+            setVersion(document, version + 1);
+            store.put(document);
+            return document;
+        });
+    }
+
+    @Override
+    public <S extends T> List<S> saveAll(Iterable<S> documents) {
+        Assert.notNull(documents, "The given Iterable of entities not be null!");
+
+        List<S> saved = new ArrayList<>();
+        for (S document : documents) {
+            saved.add(save(document));
+        }
+        return saved;
+    }
+
+    @Override
+    public <S extends T> S insert(S document) {
+        Assert.notNull(document, "Entity must not be null!");
+
+        return store.atomically(() -> {
+            if (getId(document) == null) {
+                setId(document, new ObjectId().toHexString());
+            }
+            return insertNew(document);
+        });
+    }
+
+    @Override
+    public <S extends T> List<S> insert(Iterable<S> documents) {
+        Assert.notNull(documents, "The given Iterable of entities not be null!");
+
+        List<S> inserted = new ArrayList<>();
+        for (S document : documents) {
+            inserted.add(insert(document));
+        }
+        return inserted;
+    }
+
+    @Override
+    public Optional<T> findById(String id) {
+        Assert.notNull(id, "The given id must not be null!");
+        return Optional.ofNullable(store.get(id));
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        Assert.notNull(id, "The given id must not be null!");
+        return store.contains(id);
+    }
+
+    @Override
+    public List<T> findAll() {
+        return store.scan(null, document -> true, -1);
+    }
+
+    @Override
+    public List<T> findAll(Sort sort) {
+        List<T> documents = findAll();
+        if (isDescending(sort)) {
+            Collections.reverse(documents);
+        }
+        return documents;
+    }
+
+    @Override
+    public Page<T> findAll(Pageable pageable) {
+        List<T> documents = findAll(pageable.getSort());
+        int from = (int) Math.min(pageable.getOffset(), documents.size());
+        int to = Math.min(from + pageable.getPageSize(), documents.size());
+        return new PageImpl<>(new ArrayList<>(documents.subList(from, to)),
+                              pageable, documents.size());
+    }
+
+    @Override
+    public Iterable<T> findAllById(Iterable<String> ids) {
+        Assert.notNull(ids, "The given Iterable of Id's must not be null!");
+
+        List<T> found = new ArrayList<>();
+        for (String id : ids) {
+            T document = store.get(id);
+            if (document != null) {
+                found.add(document);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public long count() {
+        return store.size();
+    }
+
+    @Override
+    public void deleteById(String id) {
+        Assert.notNull(id, "The given id must not be null!");
+        store.remove(id);
+    }
+
+    @Override
+    public void delete(T document) {
+        Assert.notNull(document, "The given entity must not be null!");
+        deleteById(getId(document));
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends T> documents) {
+        Assert.notNull(documents, "The given Iterable of entities not be null!");
+
+        for (T document : documents) {
+            delete(document);
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        for (String id : store.ids()) {
+            store.remove(id);
+        }
+    }
+
+    @Override
+    public <S extends T> Optional<S> findOne(Example<S> example) {
+        throw exampleNotSupported();
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example) {
+        throw exampleNotSupported();
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example, Sort sort) {
+        throw exampleNotSupported();
+    }
+
+    @Override
+    public <S extends T> Page<S> findAll(Example<S> example, Pageable pageable) {
+        throw exampleNotSupported();
+    }
+
+    @Override
+    public <S extends T> long count(Example<S> example) {
+        throw exampleNotSupported();
+    }
+
+    @Override
+    public <S extends T> boolean exists(Example<S> example) {
+        throw exampleNotSupported();
+    }
+
+    /**
+     * Find a page of matching documents ordered by id, as a derived query
+     * with a Pageable sorted by id would.
+     *
+     * @param afterId only documents with greater ids, or null for all
+     */
+    protected Slice<T> slice(String afterId, Predicate<? super T> filter,
+                             Pageable pageable) {
+        if (isDescending(pageable.getSort())) {
+            throw new InvalidDataAccessApiUsageException(
+                        "The embedded store only pages in ascending id order");
+        }
+
+        int skip = (int) pageable.getOffset();
+        // One extra tells if another page follows
+        List<T> documents = store.scan(afterId, filter,
+                                       skip + pageable.getPageSize() + 1);
+        documents = new ArrayList<>(documents.subList(
+                        Math.min(skip, documents.size()), documents.size()));
+
+        boolean hasNext = documents.size() > pageable.getPageSize();
+        if (hasNext) {
+            documents.remove(pageable.getPageSize());
+        }
+        return new SliceImpl<>(documents, pageable.isPaged()
+                                            ? pageable
+                                            : PageRequest.of(0, documents.size()),
+                               hasNext);
+    }
+
+    private <S extends T> S insertNew(S document) {
+        if (store.contains(getId(document))) {
+            throw new DuplicateKeyException(
+                    "Duplicate key: " + getId(document));
+        }
+        checkUnique(document);
+        if (isVersioned()) {
+            setVersion(document, 0L);
+        }
+        store.put(document);
+        return document;
+    }
+
+    /**
+     * @return whether the Sort is by id descending
+     * @throws InvalidDataAccessApiUsageException if sorted by anything
+     *         other than the id
+     */
+    private static boolean isDescending(Sort sort) {
+        Iterator<Sort.Order> orders = sort.iterator();
+        if (!orders.hasNext()) {
+            return false;
+        }
+
+        Sort.Order order = orders.next();
+        if (orders.hasNext() || !"id".equals(order.getProperty())) {
+            throw new InvalidDataAccessApiUsageException(
+                        "The embedded store only sorts by id, not " + sort);
+        }
+        return order.isDescending();
+    }
+
+    private static InvalidDataAccessApiUsageException exampleNotSupported() {
+        return new InvalidDataAccessApiUsageException(
+                        "Query by example is not supported by the embedded store");
+    }
+}
@@ -2,6 +2,7 @@ package com.frankc.training.employee.swagger;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 
 import com.frankc.training.employee.controllers.DepartmentController;
 import com.frankc.training.employee.controllers.EmployeeController;
@@ -18,6 +19,7 @@ import springfox.documentation.swagger2.annotations.EnableSwagger2;
 /**
  * Configuration for swagger2.
  */
+@Profile("!reactive & !fast-startup")
 @Configuration
 @EnableSwagger2
 public class SwaggerConfig {
@@ -0,0 +1,52 @@
+package com.frankc.training.employee.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.frankc.training.employee.exceptions.InvalidPageRequestException;
+
+/**
+ * Encodes and decodes the opaque continuation tokens handed out with
+ * paged results.
+ *
+ * A token wraps the id of the last entity on the previous page, so the
+ * next page can be fetched with a bounded index scan on _id rather than
+ * by skipping over everything already returned.
+ */
+public final class ContinuationToken {
+
+    private static final String PREFIX = "id:";
+
+    private ContinuationToken() {
+    }
+
+    public static String encode(final String lastId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(
+                        (PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param token as previously returned by encode, may be null
+     * @return the id wrapped by the token, or null if no token was given
+     */
+    public static String decode(final String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(token),
+                                 StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidPageRequestException(
+                            "Invalid continuation token: " + token);
+        }
+
+        if (!decoded.startsWith(PREFIX) || decoded.length() == PREFIX.length()) {
+            throw new InvalidPageRequestException(
+                            "Invalid continuation token: " + token);
+        }
+        return decoded.substring(PREFIX.length());
+    }
+}
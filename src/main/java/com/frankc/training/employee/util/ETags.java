@@ -0,0 +1,87 @@
+package com.frankc.training.employee.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.util.DigestUtils;
+
+import com.frankc.training.employee.exceptions.PreconditionFailedException;
+
+/**
+ * Builds strong ETag values for entities and collections.
+ */
+public final class ETags {
+
+    private static final Pattern VERSION = Pattern.compile("\"v(\\d{1,18})(-[0-9a-f]+)?\"");
+
+    private ETags() {
+    }
+
+    /**
+     * @return ETag identifying the given version of a whole collection
+     */
+    public static String forCollection(final String collection,
+                                       final long version) {
+        return "\"" + collection + "-" + version + "\"";
+    }
+
+    /**
+     * For collections whose representation includes data, such as counts,
+     * derived from another collection.
+     *
+     * @return ETag identifying the given versions of a collection and of
+     *         the collection its derived data comes from
+     */
+    public static String forCollection(final String collection,
+                                       final long version,
+                                       final String derivedFrom,
+                                       final long derivedFromVersion) {
+        return "\"" + collection + "-" + version + "-" + derivedFrom + "-"
+               + derivedFromVersion + "\"";
+    }
+
+    /**
+     * Entities stored before they were versioned count as version 0.
+     *
+     * @return ETag identifying a version of a single entity
+     */
+    public static String forVersion(final Long version) {
+        return "\"v" + (version == null ? 0 : version) + "\"";
+    }
+
+    /**
+     * For entities whose representation includes data, such as counts,
+     * that changes without the entity's version changing.
+     *
+     * @return ETag identifying a version of a single entity together with
+     *         the derived data returned with it
+     */
+    public static String forVersion(final Long version, final Object derived) {
+        return "\"v" + (version == null ? 0 : version) + "-"
+               + DigestUtils.md5DigestAsHex(
+                    String.valueOf(derived).getBytes(StandardCharsets.UTF_8))
+               + "\"";
+    }
+
+    /**
+     * Find the version an If-Match header requires.
+     *
+     * @param ifMatch header value, may be null
+     * @return the required version, or null if any version will do
+     * @throws PreconditionFailedException if the header names no version
+     *                                     this service could have issued
+     */
+    public static Long ifMatchVersion(final String ifMatch) {
+        if (ifMatch == null || "*".equals(ifMatch.trim())) {
+            return null;
+        }
+
+        Matcher matcher = VERSION.matcher(ifMatch.trim());
+        if (!matcher.matches()) {
+            throw new PreconditionFailedException(
+                            "If-Match is not a current version: " + ifMatch);
+        }
+        return Long.valueOf(matcher.group(1));
+    }
+}
@@ -0,0 +1,66 @@
+package com.frankc.training.employee.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes a Stream of entities as newline delimited JSON.
+ *
+ * Each entity is serialized straight onto the OutputStream as it is read,
+ * so memory use does not depend on how many entities are written.
+ */
+public final class NdjsonWriter {
+
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    public static final MediaType APPLICATION_NDJSON =
+                            MediaType.valueOf(APPLICATION_NDJSON_VALUE);
+
+    private static final int FLUSH_EVERY = 500;
+
+    private NdjsonWriter() {
+    }
+
+    /**
+     * Write every entity in the Stream, one JSON document per line.
+     *
+     * The OutputStream is flushed every few hundred entities and at the
+     * end, but not closed.
+     *
+     * @return the number of entities written
+     */
+    public static <T> long write(final ObjectMapper objectMapper,
+                                 final Stream<T> entities,
+                                 final OutputStream outputStream)
+                                                throws IOException {
+        ObjectWriter writer = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        JsonGenerator generator = objectMapper.getFactory()
+                                              .createGenerator(outputStream);
+        generator.setRootValueSeparator(null);
+
+        long count = 0;
+        Iterator<T> iterator = entities.iterator();
+        while (iterator.hasNext()) {
+            writer.writeValue(generator, iterator.next());
+            generator.writeRaw('\n');
+
+            if (++count % FLUSH_EVERY == 0) {
+                generator.flush();
+            }
+        }
+
+        generator.flush();
+        return count;
+    }
+}
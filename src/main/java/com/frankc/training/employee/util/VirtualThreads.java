@@ -0,0 +1,62 @@
+package com.frankc.training.employee.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates executors that start a virtual thread per task.
+ *
+ * The build still targets Java 8, so the Java 21 API is looked up
+ * reflectively; on older JVMs isSupported() is false and newExecutor
+ * fails with IllegalStateException.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * @param namePrefix threads are named namePrefix0, namePrefix1, ...
+     * @return executor running each task on a new virtual thread
+     */
+    public static ExecutorService newExecutor(final String namePrefix) {
+        if (!isSupported()) {
+            throw new IllegalStateException(
+                    "Virtual threads need Java 21 or later, running on "
+                    + System.getProperty("java.version"));
+        }
+
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+
+            builder = builderType.getMethod("name", String.class, long.class)
+                                 .invoke(builder, namePrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderType
+                                            .getMethod("factory")
+                                            .invoke(builder);
+
+            Method newExecutor = Executors.class.getMethod(
+                            "newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newExecutor.invoke(null, factory);
+        } catch (InvocationTargetException ex) {
+            throw new IllegalStateException(
+                    "Could not create virtual thread executor", ex.getCause());
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException(
+                    "Could not create virtual thread executor", ex);
+        }
+    }
+}
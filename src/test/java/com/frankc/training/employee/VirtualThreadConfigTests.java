@@ -0,0 +1,64 @@
+package com.frankc.training.employee;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.util.StreamUtils;
+
+import com.frankc.training.employee.util.VirtualThreads;
+
+public class VirtualThreadConfigTests {
+
+    @Test
+    public void customizer_servesRequestsOnVirtualThreads() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+
+        VirtualThreadConfig config = new VirtualThreadConfig();
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory(0);
+        config.virtualThreadCustomizer().customize(factory);
+
+        WebServer server = factory.getWebServer(context ->
+                context.addServlet("thread", new HttpServlet() {
+                    @Override
+                    protected void doGet(HttpServletRequest request,
+                                         HttpServletResponse response)
+                                                    throws IOException {
+                        response.getWriter().print(isVirtual(Thread.currentThread()));
+                    }
+                }).addMapping("/"));
+
+        server.start();
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(
+                    "http://localhost:" + server.getPort() + "/").openConnection();
+            try (InputStream body = connection.getInputStream()) {
+                assertEquals("true", StreamUtils.copyToString(
+                                            body, StandardCharsets.UTF_8));
+            }
+        } finally {
+            server.stop();
+            config.shutdown();
+        }
+    }
+
+    private static boolean isVirtual(Thread thread) {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (ReflectiveOperationException ex) {
+            return false;
+        }
+    }
+}
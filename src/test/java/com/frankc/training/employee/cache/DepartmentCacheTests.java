@@ -0,0 +1,91 @@
+package com.frankc.training.employee.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.frankc.training.employee.entities.Department;
+import com.frankc.training.employee.repositories.DepartmentRepository;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = {DepartmentCache.class})
+public class DepartmentCacheTests {
+
+    @Autowired
+    private DepartmentCache departmentCache;
+
+    @MockBean
+    private DepartmentRepository mockDepartmentRepo;
+
+    private static final String TEST_DEPARTMENT_ID = "1A2B3C4D";
+
+    @Before
+    public void clearCache() {
+        departmentCache.invalidateAll();
+    }
+
+    @Test
+    public void exists_secondLookupIsServedFromCache() {
+        when(mockDepartmentRepo.existsById(TEST_DEPARTMENT_ID))
+            .thenReturn(true);
+
+        long hitsBefore = departmentCache.stats().hitCount();
+
+        assertTrue(departmentCache.exists(TEST_DEPARTMENT_ID));
+        assertTrue(departmentCache.exists(TEST_DEPARTMENT_ID));
+
+        verify(mockDepartmentRepo, times(1)).existsById(TEST_DEPARTMENT_ID);
+        assertEquals("second lookup should be a hit",
+                     hitsBefore + 1, departmentCache.stats().hitCount());
+    }
+
+    @Test
+    public void exists_nullIdIsFalse() {
+        assertFalse(departmentCache.exists(null));
+    }
+
+    @Test
+    public void invalidate_forcesReload() {
+        when(mockDepartmentRepo.existsById(TEST_DEPARTMENT_ID))
+            .thenReturn(false, true);
+
+        assertFalse(departmentCache.exists(TEST_DEPARTMENT_ID));
+        departmentCache.invalidate(TEST_DEPARTMENT_ID);
+        assertTrue(departmentCache.exists(TEST_DEPARTMENT_ID));
+
+        verify(mockDepartmentRepo, times(2)).existsById(TEST_DEPARTMENT_ID);
+    }
+
+    @Test
+    public void existing_loadsMissesInOneQuery() {
+        Department testDepartment = new Department();
+        testDepartment.setId(TEST_DEPARTMENT_ID);
+
+        when(mockDepartmentRepo.findAllById(anySet()))
+            .thenReturn(Collections.singletonList(testDepartment));
+
+        Set<String> found = departmentCache.existing(
+                                Arrays.asList(TEST_DEPARTMENT_ID, "unknown"));
+
+        assertEquals(Collections.singleton(TEST_DEPARTMENT_ID), found);
+        assertFalse("unknown id should be cached as missing",
+                    departmentCache.exists("unknown"));
+        verify(mockDepartmentRepo, times(1)).findAllById(anySet());
+    }
+}
@@ -0,0 +1,81 @@
+package com.frankc.training.employee.changes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.frankc.training.employee.dto.EntityChange;
+import com.frankc.training.employee.services.EmployeeService;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = ChangeLog.class)
+@TestPropertySource(properties = "changes.buffer-size=4")
+public class ChangeLogTests {
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Test
+    public void readAfter_returnsFollowingChangesInOrder() {
+        long before = changeLog.latest();
+        record("a");
+        record("b");
+        record("c");
+
+        List<EntityChange> changes = changeLog.readAfter(before, 2);
+        assertEquals(2, changes.size());
+        assertEquals("a", changes.get(0).getId());
+        assertEquals("b", changes.get(1).getId());
+
+        assertEquals("c", changeLog.readAfter(before + 2, 10).get(0).getId());
+        assertEquals(0, changeLog.readAfter(changeLog.latest(), 10).size());
+    }
+
+    @Test
+    public void readAfter_overwrittenChangesReturnNull() {
+        long before = changeLog.latest();
+        for (int i = 0; i < 5; ++i) {
+            record(Integer.toString(i));
+        }
+
+        assertNull(changeLog.readAfter(before, 10));
+        assertEquals("1", changeLog.readAfter(before + 1, 10).get(0).getId());
+    }
+
+    @Test
+    public void sequenceOf_readsOnlyItsOwnEventIds() {
+        record("a");
+        long latest = changeLog.latest();
+
+        assertEquals(latest, changeLog.sequenceOf(changeLog.eventId(latest)));
+        assertEquals(-1, changeLog.sequenceOf(changeLog.eventId(latest + 1)));
+        assertEquals(-1, changeLog.sequenceOf("abc-" + latest));
+        assertEquals(-1, changeLog.sequenceOf("garbage"));
+    }
+
+    @Test
+    public void record_notifiesListeners() {
+        AtomicInteger notified = new AtomicInteger();
+        Runnable listener = notified::incrementAndGet;
+        changeLog.addListener(listener);
+        record("a");
+        changeLog.removeListener(listener);
+        record("b");
+
+        assertEquals(1, notified.get());
+    }
+
+    private void record(String id) {
+        changeLog.record(EmployeeService.COLLECTION, EntityChange.Type.CREATED,
+                         id, null);
+    }
+}
@@ -0,0 +1,207 @@
+package com.frankc.training.employee.coherence;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.frankc.training.employee.cache.DepartmentCache;
+import com.frankc.training.employee.cache.EmployeeCache;
+import com.frankc.training.employee.entities.Employee;
+import com.frankc.training.employee.index.EmployeeIndex;
+import com.frankc.training.employee.repositories.DepartmentRepository;
+import com.frankc.training.employee.repositories.EmployeeRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = {CacheCoherence.class, EmployeeCache.class,
+                                 DepartmentCache.class, EmployeeIndex.class,
+                                 CacheCoherenceTests.Config.class})
+@TestPropertySource(properties = {"cache.coherence.enabled=true",
+                                  "cache.coherence.poll-interval-ms=20",
+                                  "cache.coherence.retry-delay-ms=20"})
+public class CacheCoherenceTests {
+
+    private static final String TEST_EMPLOYEE_ID = "5c4b1f2e9d3a4b0001a1b2c3";
+    private static final String TEST_DEPARTMENT_ID = "1A2B3C4D";
+    private static final int QUEUE_CAPACITY = 4;
+
+    // Released each time a cursor is opened
+    private static final Semaphore opened = new Semaphore(0);
+
+    @Configuration
+    static class Config {
+
+        @Bean
+        public LocalChangeFeed changeFeed() {
+            return new LocalChangeFeed(QUEUE_CAPACITY) {
+                @Override
+                public Cursor open(String collection, Object resumeToken) {
+                    Cursor cursor = super.open(collection, resumeToken);
+                    opened.release();
+                    return cursor;
+                }
+            };
+        }
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private CacheCoherence cacheCoherence;
+
+    @Autowired
+    private LocalChangeFeed changeFeed;
+
+    @Autowired
+    private EmployeeCache employeeCache;
+
+    @Autowired
+    private DepartmentCache departmentCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockBean
+    private EmployeeRepository mockEmployeeRepo;
+
+    @MockBean
+    private DepartmentRepository mockDepartmentRepo;
+
+    @Before
+    public void start() throws InterruptedException {
+        employeeCache.invalidateAll();
+        departmentCache.invalidateAll();
+        opened.drainPermits();
+
+        cacheCoherence.start();
+        // One cursor per collection
+        assertTrue(opened.tryAcquire(2, 5, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void stop() throws InterruptedException {
+        cacheCoherence.stop();
+    }
+
+    @Test
+    public void changeEvent_invalidatesCachedEmployee() {
+        Employee employee = new Employee();
+        employee.setId(TEST_EMPLOYEE_ID);
+        when(mockEmployeeRepo.findById(TEST_EMPLOYEE_ID))
+                .thenReturn(Optional.of(employee));
+
+        employeeCache.find(TEST_EMPLOYEE_ID);
+        employeeCache.find(TEST_EMPLOYEE_ID);
+        verify(mockEmployeeRepo, times(1)).findById(TEST_EMPLOYEE_ID);
+
+        // As written by another instance
+        double events = eventCount(CacheCoherence.EMPLOYEES);
+        changeFeed.publish(CacheCoherence.EMPLOYEES, TEST_EMPLOYEE_ID, employee);
+        awaitTrue(() -> eventCount(CacheCoherence.EMPLOYEES) > events);
+
+        employeeCache.find(TEST_EMPLOYEE_ID);
+        verify(mockEmployeeRepo, times(2)).findById(TEST_EMPLOYEE_ID);
+    }
+
+    @Test
+    public void changeEvent_invalidatesCachedDepartment() {
+        when(mockDepartmentRepo.existsById(TEST_DEPARTMENT_ID)).thenReturn(true);
+
+        departmentCache.exists(TEST_DEPARTMENT_ID);
+        verify(mockDepartmentRepo, times(1)).existsById(TEST_DEPARTMENT_ID);
+
+        double events = eventCount(CacheCoherence.DEPARTMENTS);
+        changeFeed.publish(CacheCoherence.DEPARTMENTS, TEST_DEPARTMENT_ID, null);
+        awaitTrue(() -> eventCount(CacheCoherence.DEPARTMENTS) > events);
+
+        departmentCache.exists(TEST_DEPARTMENT_ID);
+        verify(mockDepartmentRepo, times(2)).existsById(TEST_DEPARTMENT_ID);
+    }
+
+    @Test
+    public void interruptedFeed_resyncsCaches() {
+        Employee employee = new Employee();
+        employee.setId(TEST_EMPLOYEE_ID);
+        when(mockEmployeeRepo.findById(TEST_EMPLOYEE_ID))
+                .thenReturn(Optional.of(employee));
+        employeeCache.find(TEST_EMPLOYEE_ID);
+        double resyncs = resyncCount("interrupted");
+
+        // Faster than the cursor is drained, so it overflows
+        for (int i = 0; i < QUEUE_CAPACITY * 100; ++i) {
+            changeFeed.publish(CacheCoherence.EMPLOYEES,
+                               Integer.toString(i), new Employee());
+        }
+        awaitTrue(() -> resyncCount("interrupted") > resyncs);
+
+        // Missed writes may include this one
+        employeeCache.find(TEST_EMPLOYEE_ID);
+        verify(mockEmployeeRepo, times(2)).findById(TEST_EMPLOYEE_ID);
+    }
+
+    @Test
+    public void lag_isMeasuredPerCollection() {
+        double events = eventCount(CacheCoherence.EMPLOYEES);
+        changeFeed.publish(CacheCoherence.EMPLOYEES, TEST_EMPLOYEE_ID, null);
+        awaitTrue(() -> eventCount(CacheCoherence.EMPLOYEES) > events);
+
+        for (String collection : new String[] {CacheCoherence.EMPLOYEES,
+                                               CacheCoherence.DEPARTMENTS}) {
+            assertNotNull(meterRegistry.find(CacheCoherence.LAG_METRIC_NAME)
+                                       .tag("collection", collection)
+                                       .gauge());
+        }
+    }
+
+    private double eventCount(String collection) {
+        Counter events = meterRegistry.find(CacheCoherence.EVENTS_METRIC_NAME)
+                                      .tag("collection", collection)
+                                      .counter();
+        return events == null ? 0 : events.count();
+    }
+
+    private double resyncCount(String reason) {
+        Counter resyncs = meterRegistry.find(CacheCoherence.RESYNCS_METRIC_NAME)
+                                       .tag("collection", CacheCoherence.EMPLOYEES)
+                                       .tag("reason", reason)
+                                       .counter();
+        return resyncs == null ? 0 : resyncs.count();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out waiting", System.currentTimeMillis() < deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException ex) {
+                throw new AssertionError(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.frankc.training.employee.controllers;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+import java.io.UnsupportedEncodingException;
+import java.util.function.BooleanSupplier;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.frankc.training.employee.changes.ChangeBroadcaster;
+import com.frankc.training.employee.changes.ChangeLog;
+import com.frankc.training.employee.dto.EntityChange;
+import com.frankc.training.employee.entities.Employee;
+import com.frankc.training.employee.services.EmployeeService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = {ChangeController.class,
+                                 ChangeBroadcaster.class,
+                                 ChangeLog.class,
+                                 SimpleMeterRegistry.class})
+@WebMvcTest
+@TestPropertySource(properties = "changes.buffer-size=4")
+public class ChangeControllerTests {
+
+    private static final String TEST_EMPLOYEE_ID = "abcd453";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Test
+    public void streamChanges_pushesNewChanges() throws Exception {
+        MvcResult result = subscribe(null);
+
+        Employee employee = new Employee();
+        employee.setId(TEST_EMPLOYEE_ID);
+        employee.setFullName("Bob");
+        changeLog.record(EmployeeService.COLLECTION, EntityChange.Type.CREATED,
+                         TEST_EMPLOYEE_ID, employee);
+
+        String eventId = changeLog.eventId(changeLog.latest());
+        awaitTrue(() -> content(result).contains("\"fullName\":\"Bob\""));
+        String content = content(result);
+        assertTrue(content.contains("id:" + eventId));
+        assertTrue(content.contains("event:" + ChangeBroadcaster.CHANGE_EVENT));
+        assertTrue(content.contains("\"type\":\"CREATED\""));
+    }
+
+    @Test
+    public void streamChanges_resumesAfterLastEventId() throws Exception {
+        record("first");
+        String firstId = changeLog.eventId(changeLog.latest());
+        record("second");
+        String secondId = changeLog.eventId(changeLog.latest());
+
+        MvcResult result = subscribe(firstId);
+
+        awaitTrue(() -> content(result).contains("\"id\":\"second\""));
+        assertTrue(content(result).contains("id:" + secondId));
+        assertFalse(content(result).contains("\"id\":\"first\""));
+        assertFalse(content(result).contains(ChangeBroadcaster.RESET_EVENT));
+    }
+
+    @Test
+    public void streamChanges_unknownLastEventIdResets() throws Exception {
+        record("first");
+        String latestId = changeLog.eventId(changeLog.latest());
+
+        MvcResult result = subscribe("fromanotherinstance-12");
+
+        awaitTrue(() -> content(result).contains(
+                            "event:" + ChangeBroadcaster.RESET_EVENT));
+        assertTrue(content(result).contains("id:" + latestId));
+        assertFalse(content(result).contains("\"id\":\"first\""));
+    }
+
+    @Test
+    public void streamChanges_subscriberTooFarBehindIsResetAndClosed()
+                                                            throws Exception {
+        record("first");
+        String firstId = changeLog.eventId(changeLog.latest());
+        // More than the ChangeLog holds
+        for (int i = 0; i < 5; ++i) {
+            record("next" + i);
+        }
+
+        MvcResult result = subscribe(firstId);
+
+        awaitTrue(() -> content(result).contains(
+                            "event:" + ChangeBroadcaster.RESET_EVENT));
+        assertFalse(content(result).contains("event:"
+                                             + ChangeBroadcaster.CHANGE_EVENT));
+        // Throws unless the stream completes
+        result.getAsyncResult(5000);
+    }
+
+    private MvcResult subscribe(String lastEventId) throws Exception {
+        return mockMvc.perform(get(ChangeController.BASE_PATH)
+                                .accept(MediaType.TEXT_EVENT_STREAM)
+                                .param("lastEventId", lastEventId))
+                      .andExpect(request().asyncStarted())
+                      .andReturn();
+    }
+
+    private void record(String id) {
+        changeLog.record(EmployeeService.COLLECTION, EntityChange.Type.UPDATED,
+                         id, null);
+    }
+
+    private static String content(MvcResult result) {
+        try {
+            return result.getResponse().getContentAsString();
+        } catch (UnsupportedEncodingException ex) {
+            throw new AssertionError(ex);
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out waiting", System.currentTimeMillis() < deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException ex) {
+                throw new AssertionError(ex);
+            }
+        }
+    }
+}
@@ -1,13 +1,26 @@
 package com.frankc.training.employee.controllers;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.Stream;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -16,14 +29,28 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.frankc.training.employee.dto.DepartmentSummary;
 import com.frankc.training.employee.entities.Department;
+import com.frankc.training.employee.entities.DepartmentStats;
+import com.frankc.training.employee.entities.Employee;
+import com.frankc.training.employee.exceptions.DepartmentNotEmptyException;
 import com.frankc.training.employee.exceptions.EntityNotFoundException;
+import com.frankc.training.employee.exceptions.PreconditionFailedException;
 import com.frankc.training.employee.services.DepartmentService;
+import com.frankc.training.employee.services.EmployeeService;
+import com.frankc.training.employee.util.ContinuationToken;
+import com.frankc.training.employee.util.ETags;
+import com.frankc.training.employee.util.NdjsonWriter;
 
 @RunWith(SpringRunner.class)
 @ContextConfiguration(classes = {DepartmentController.class})
@@ -32,15 +59,25 @@ public class DepartmentControllerTests {
 
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Autowired
     private MockMvc mockMvc;
 
     @MockBean
     private DepartmentService mockDepartmentService;
 
+    @MockBean
+    private EmployeeService mockEmployeeService;
+
     private static final String TEST_DEPARTMENT_ID = "1A2B3C4D";
     private static final String TEST_DEPARTMENT_NAME = "The Testers";
 
+    private static final String TEST_EMPLOYEE_ID = "abcd453";
+
+    private static final long TEST_VERSION = 3L;
+
     @Test
     public void findAllDepartments_returnsList() throws Exception {
         when(mockDepartmentService.findAllDepartments())
@@ -56,6 +93,29 @@ public class DepartmentControllerTests {
                     + result.getResponse().getContentAsString());
     }
 
+    @Test
+    public void exportDepartments_streamsNdjson() throws Exception {
+        Department testDepartment = new Department();
+        testDepartment.setId(TEST_DEPARTMENT_ID);
+        testDepartment.setName(TEST_DEPARTMENT_NAME);
+
+        when(mockDepartmentService.streamAllDepartments())
+            .thenReturn(Stream.of(testDepartment));
+
+        MvcResult result = this.mockMvc
+                .perform(get(DepartmentController.BASE_PATH + "export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(
+                            NdjsonWriter.APPLICATION_NDJSON))
+                    .andExpect(content().string(
+                            objectMapper.writeValueAsString(testDepartment)
+                            + "\n"));
+    }
+
     @Test
     public void findDepartment_returnsOk() throws Exception {
         Department testDepartment = new Department();
@@ -75,6 +135,63 @@ public class DepartmentControllerTests {
                                .value(testDepartment.getName()));
     }
 
+    @Test
+    public void findAllDepartments_matchingETagReturnsNotModified() throws Exception {
+        when(mockDepartmentService.collectionVersion()).thenReturn(3L);
+        when(mockEmployeeService.collectionVersion()).thenReturn(7L);
+
+        this.mockMvc.perform(get(DepartmentController.BASE_PATH)
+                                 .header(HttpHeaders.IF_NONE_MATCH,
+                                         ETags.forCollection(DepartmentService.COLLECTION, 3L,
+                                                             EmployeeService.COLLECTION, 7L)))
+                    .andExpect(status().isNotModified());
+
+        verify(mockDepartmentService, never()).findAllDepartments();
+    }
+
+    @Test
+    public void findAllDepartments_employeeWriteChangesETag() throws Exception {
+        when(mockDepartmentService.collectionVersion()).thenReturn(3L);
+        when(mockEmployeeService.collectionVersion()).thenReturn(7L);
+        when(mockDepartmentService.findAllDepartments())
+            .thenReturn(new ArrayList<Department>());
+
+        String eTag = this.mockMvc.perform(get(DepartmentController.BASE_PATH))
+                                  .andExpect(status().isOk())
+                                  .andReturn().getResponse()
+                                  .getHeader(HttpHeaders.ETAG);
+
+        // An Employee created, moved or deleted changes the stats listed
+        when(mockEmployeeService.collectionVersion()).thenReturn(8L);
+
+        this.mockMvc.perform(get(DepartmentController.BASE_PATH)
+                                 .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG,
+                            ETags.forCollection(DepartmentService.COLLECTION, 3L,
+                                                EmployeeService.COLLECTION, 8L)));
+    }
+
+    @Test
+    public void findDepartment_returnsETag() throws Exception {
+        Department testDepartment = new Department();
+        testDepartment.setId(TEST_DEPARTMENT_ID);
+        testDepartment.setName(TEST_DEPARTMENT_NAME);
+        testDepartment.setVersion(TEST_VERSION);
+        testDepartment.setStats(new DepartmentStats(TEST_DEPARTMENT_ID, 2, 1));
+
+        when(mockDepartmentService.findDepartment(TEST_DEPARTMENT_ID))
+            .thenReturn(testDepartment);
+
+        this.mockMvc.perform(get(DepartmentController.BASE_PATH
+                                 + TEST_DEPARTMENT_ID))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG,
+                                               ETags.forVersion(
+                                                    TEST_VERSION,
+                                                    testDepartment.getStats())));
+    }
+
     @Test
     public void findDepartment_unknownReturnsNotFound() throws Exception {
         when(mockDepartmentService.findDepartment(TEST_DEPARTMENT_ID))
@@ -104,4 +221,145 @@ public class DepartmentControllerTests {
                                     + TEST_DEPARTMENT_ID))
                     .andExpect(status().isNotFound());
     }
+
+    @Test
+    public void deleteDepartment_withEmployeesReturnsConflict() throws Exception {
+        doThrow(new DepartmentNotEmptyException("Department "
+                                + TEST_DEPARTMENT_ID + " still has employees"))
+             .when(mockDepartmentService)
+             .deleteDepartment(TEST_DEPARTMENT_ID);
+
+        this.mockMvc.perform(delete(DepartmentController.BASE_PATH
+                                    + TEST_DEPARTMENT_ID))
+                    .andExpect(status().isConflict());
+    }
+
+    @Test
+    public void getDepartmentEmployees_returnsDepartmentAndPage() throws Exception {
+        Department testDepartment = new Department();
+        testDepartment.setId(TEST_DEPARTMENT_ID);
+        testDepartment.setName(TEST_DEPARTMENT_NAME);
+
+        Employee testEmployee = new Employee();
+        testEmployee.setId(TEST_EMPLOYEE_ID);
+        testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        when(mockDepartmentService.findDepartment(TEST_DEPARTMENT_ID))
+            .thenReturn(testDepartment);
+        when(mockEmployeeService.findDepartmentEmployeesPage(
+                    eq(TEST_DEPARTMENT_ID), isNull(), eq(1)))
+            .thenReturn(new SliceImpl<Employee>(Arrays.asList(testEmployee),
+                                                PageRequest.of(0, 1), true));
+
+        this.mockMvc.perform(get(DepartmentController.BASE_PATH
+                                 + TEST_DEPARTMENT_ID + "/employees")
+                                 .param("size", "1"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.department.name")
+                                    .value(TEST_DEPARTMENT_NAME))
+                    .andExpect(jsonPath("$.employees[0].id")
+                                    .value(TEST_EMPLOYEE_ID))
+                    .andExpect(header().string(
+                            EmployeeController.CONTINUATION_TOKEN_HEADER,
+                            ContinuationToken.encode(TEST_EMPLOYEE_ID)));
+    }
+
+    @Test
+    public void getDepartmentEmployees_unknownDepartmentReturnsNotFound() throws Exception {
+        when(mockDepartmentService.findDepartment(TEST_DEPARTMENT_ID))
+            .thenThrow(new EntityNotFoundException("Not found"));
+
+        this.mockMvc.perform(get(DepartmentController.BASE_PATH
+                                 + TEST_DEPARTMENT_ID + "/employees"))
+                    .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void getDepartmentSummary_returnsSummary() throws Exception {
+        DepartmentSummary summary = new DepartmentSummary();
+        summary.setDepartmentId(TEST_DEPARTMENT_ID);
+        summary.setName(TEST_DEPARTMENT_NAME);
+        summary.setHeadcount(3);
+        summary.setWithTask(2);
+        summary.setWithoutTask(1);
+
+        when(mockDepartmentService.summarizeDepartment(TEST_DEPARTMENT_ID))
+            .thenReturn(summary);
+
+        this.mockMvc.perform(get(DepartmentController.BASE_PATH
+                                 + TEST_DEPARTMENT_ID + "/summary"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.headcount").value(3))
+                    .andExpect(jsonPath("$.withTask").value(2))
+                    .andExpect(jsonPath("$.withoutTask").value(1));
+    }
+
+    @Test
+    public void updateDepartment_withIfMatch_returnsOk() throws Exception {
+        Department testDepartment = new Department();
+        testDepartment.setName(TEST_DEPARTMENT_NAME);
+
+        Department updated = new Department();
+        updated.setId(TEST_DEPARTMENT_ID);
+        updated.setName(TEST_DEPARTMENT_NAME);
+        updated.setVersion(TEST_VERSION + 1);
+        updated.setStats(new DepartmentStats(TEST_DEPARTMENT_ID, 3, 1));
+
+        when(mockDepartmentService.updateDepartment(any(), eq(TEST_VERSION)))
+            .thenReturn(updated);
+
+        this.mockMvc.perform(put(DepartmentController.BASE_PATH
+                                 + TEST_DEPARTMENT_ID)
+                                 .header(HttpHeaders.IF_MATCH,
+                                         ETags.forVersion(TEST_VERSION, "any"))
+                                 .contentType(MediaType.APPLICATION_JSON)
+                                 .content(objectMapper.writeValueAsString(
+                                                            testDepartment)))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG,
+                                               ETags.forVersion(TEST_VERSION + 1,
+                                                            updated.getStats())))
+                    .andExpect(jsonPath("$.id").value(TEST_DEPARTMENT_ID));
+
+        verify(mockDepartmentService).updateDepartment(
+                argThat(department -> TEST_DEPARTMENT_ID.equals(department.getId())),
+                eq(TEST_VERSION));
+    }
+
+    @Test
+    public void updateDepartment_withStaleIfMatch_returnsPreconditionFailed() throws Exception {
+        Department testDepartment = new Department();
+        testDepartment.setName(TEST_DEPARTMENT_NAME);
+
+        when(mockDepartmentService.updateDepartment(any(), eq(TEST_VERSION)))
+            .thenThrow(new PreconditionFailedException("Department "
+                                                       + TEST_DEPARTMENT_ID
+                                                       + " is at version 4"));
+
+        this.mockMvc.perform(put(DepartmentController.BASE_PATH
+                                 + TEST_DEPARTMENT_ID)
+                                 .header(HttpHeaders.IF_MATCH,
+                                         ETags.forVersion(TEST_VERSION))
+                                 .contentType(MediaType.APPLICATION_JSON)
+                                 .content(objectMapper.writeValueAsString(
+                                                            testDepartment)))
+                    .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    public void updateDepartment_unknownReturnsNotFound() throws Exception {
+        Department testDepartment = new Department();
+        testDepartment.setName(TEST_DEPARTMENT_NAME);
+
+        when(mockDepartmentService.updateDepartment(any(), isNull()))
+            .thenThrow(new EntityNotFoundException("Invalid department id: "
+                                                   + TEST_DEPARTMENT_ID));
+
+        this.mockMvc.perform(put(DepartmentController.BASE_PATH
+                                 + TEST_DEPARTMENT_ID)
+                                 .contentType(MediaType.APPLICATION_JSON)
+                                 .content(objectMapper.writeValueAsString(
+                                                            testDepartment)))
+                    .andExpect(status().isNotFound());
+    }
 }
@@ -1,16 +1,31 @@
 package com.frankc.training.employee.controllers;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.util.ArrayList;
+import java.util.stream.Stream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -19,6 +34,9 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -26,10 +44,21 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.frankc.training.employee.dto.BulkImportError;
+import com.frankc.training.employee.dto.BulkImportResult;
+import com.frankc.training.employee.dto.EmployeePatch;
+import com.frankc.training.employee.dto.EmployeeSearch.NameMatch;
 import com.frankc.training.employee.entities.Employee;
 import com.frankc.training.employee.entities.Task;
 import com.frankc.training.employee.exceptions.EntityNotFoundException;
+import com.frankc.training.employee.exceptions.PreconditionFailedException;
+import com.frankc.training.employee.exceptions.ServiceBusyException;
+import com.frankc.training.employee.exceptions.VersionConflictException;
+import com.frankc.training.employee.services.AsyncEmployeeService;
 import com.frankc.training.employee.services.EmployeeService;
+import com.frankc.training.employee.util.ETags;
+import com.frankc.training.employee.util.NdjsonWriter;
+import com.frankc.training.employee.util.ContinuationToken;
 
 @RunWith(SpringRunner.class)
 @ContextConfiguration(classes = {EmployeeController.class})
@@ -47,6 +76,9 @@ public class EmployeeControllerTests {
     @MockBean
     private EmployeeService mockEmployeeService;
 
+    @MockBean
+    private AsyncEmployeeService mockAsyncEmployeeService;
+
     private static final String TEST_EMPLOYEE_ID = "abcd453";
     private static final String TEST_EMPLOYEE_FULLNAME = "Bob";
 
@@ -55,21 +87,135 @@ public class EmployeeControllerTests {
 
     private static final String TEST_DEPARTMENT_ID = "1A2B3C4D";
 
+    private static final long TEST_VERSION = 3L;
+
     @Test
     public void findAllEmployees_returnsList() throws Exception {
-        when(mockEmployeeService.findAllEmployees())
-            .thenReturn(new ArrayList<Employee>());
+        when(mockEmployeeService.findEmployeesPage(isNull(), isNull()))
+            .thenReturn(new SliceImpl<Employee>(new ArrayList<Employee>()));
 
         MvcResult result = this.mockMvc
                 .perform(get(EmployeeController.BASE_PATH))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.size()").isNumber())
+                .andExpect(header().doesNotExist(
+                        EmployeeController.CONTINUATION_TOKEN_HEADER))
                 .andReturn();
 
         logger.info("Result from findAllEmployees: "
                     + result.getResponse().getContentAsString());
     }
 
+    @Test
+    public void findAllEmployees_withMorePages_returnsContinuationToken() throws Exception {
+        Employee testEmployee = new Employee();
+        testEmployee.setId(TEST_EMPLOYEE_ID);
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+
+        when(mockEmployeeService.findEmployeesPage(isNull(), eq(1)))
+            .thenReturn(new SliceImpl<Employee>(Arrays.asList(testEmployee),
+                                                PageRequest.of(0, 1), true));
+
+        this.mockMvc.perform(get(EmployeeController.BASE_PATH)
+                                 .param("size", "1"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].id").value(TEST_EMPLOYEE_ID))
+                    .andExpect(header().string(
+                            EmployeeController.CONTINUATION_TOKEN_HEADER,
+                            ContinuationToken.encode(TEST_EMPLOYEE_ID)));
+    }
+
+    @Test
+    public void findAllEmployees_withContinuationToken_returnsNextPage() throws Exception {
+        when(mockEmployeeService.findEmployeesPage(eq(TEST_EMPLOYEE_ID), isNull()))
+            .thenReturn(new SliceImpl<Employee>(new ArrayList<Employee>()));
+
+        this.mockMvc.perform(get(EmployeeController.BASE_PATH)
+                                 .param("continuationToken",
+                                        ContinuationToken.encode(TEST_EMPLOYEE_ID)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.size()").value(0));
+    }
+
+    @Test
+    public void findAllEmployees_invalidContinuationTokenReturnsBadRequest() throws Exception {
+        this.mockMvc.perform(get(EmployeeController.BASE_PATH)
+                                 .param("continuationToken", "not-a-token"))
+                    .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void searchEmployees_passesCriteria() throws Exception {
+        Employee testEmployee = new Employee();
+        testEmployee.setId(TEST_EMPLOYEE_ID);
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+
+        when(mockEmployeeService.searchEmployees(
+                argThat(search -> TEST_EMPLOYEE_FULLNAME.equals(search.getFullName())
+                                  && search.getMatch() == NameMatch.PREFIX
+                                  && TEST_DEPARTMENT_ID.equals(search.getDepartmentId())
+                                  && search.getFields().equals(
+                                          Arrays.asList("id", "fullName"))),
+                isNull(), eq(1)))
+            .thenReturn(new SliceImpl<Employee>(Arrays.asList(testEmployee),
+                                                PageRequest.of(0, 1), true));
+
+        this.mockMvc.perform(get(EmployeeController.BASE_PATH + "search")
+                                 .param("fullName", TEST_EMPLOYEE_FULLNAME)
+                                 .param("match", "prefix")
+                                 .param("departmentId", TEST_DEPARTMENT_ID)
+                                 .param("fields", "id,fullName")
+                                 .param("size", "1"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].fullName").value(TEST_EMPLOYEE_FULLNAME))
+                    .andExpect(header().string(
+                            EmployeeController.CONTINUATION_TOKEN_HEADER,
+                            ContinuationToken.encode(TEST_EMPLOYEE_ID)));
+    }
+
+    @Test
+    public void searchEmployees_invalidMatchReturnsBadRequest() throws Exception {
+        this.mockMvc.perform(get(EmployeeController.BASE_PATH + "search")
+                                 .param("fullName", TEST_EMPLOYEE_FULLNAME)
+                                 .param("match", "fuzzy"))
+                    .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void searchEmployees_missingNameReturnsBadRequest() throws Exception {
+        this.mockMvc.perform(get(EmployeeController.BASE_PATH + "search"))
+                    .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void exportEmployees_streamsNdjson() throws Exception {
+        Employee first = new Employee();
+        first.setId(TEST_EMPLOYEE_ID);
+        first.setFullName(TEST_EMPLOYEE_FULLNAME);
+        first.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        Employee second = new Employee();
+        second.setId(TEST_EMPLOYEE_ID + "2");
+        second.setFullName(TEST_EMPLOYEE_FULLNAME);
+        second.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        when(mockEmployeeService.streamAllEmployees())
+            .thenReturn(Stream.of(first, second));
+
+        MvcResult result = this.mockMvc
+                .perform(get(EmployeeController.BASE_PATH + "export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(
+                            NdjsonWriter.APPLICATION_NDJSON))
+                    .andExpect(content().string(
+                            objectMapper.writeValueAsString(first) + "\n"
+                            + objectMapper.writeValueAsString(second) + "\n"));
+    }
+
     @Test
     public void findEmployee_returnsOk() throws Exception {
         Employee testEmployee = new Employee();
@@ -101,6 +247,49 @@ public class EmployeeControllerTests {
                                .value(testTask.getDescription()));
     }
 
+    @Test
+    public void findAllEmployees_matchingETagReturnsNotModified() throws Exception {
+        when(mockEmployeeService.collectionVersion()).thenReturn(7L);
+
+        this.mockMvc.perform(get(EmployeeController.BASE_PATH)
+                                 .header(HttpHeaders.IF_NONE_MATCH,
+                                         ETags.forCollection(EmployeeService.COLLECTION, 7L)))
+                    .andExpect(status().isNotModified());
+
+        verify(mockEmployeeService, never()).findEmployeesPage(any(), any());
+    }
+
+    @Test
+    public void findAllEmployees_staleETagReturnsOk() throws Exception {
+        when(mockEmployeeService.collectionVersion()).thenReturn(8L);
+        when(mockEmployeeService.findEmployeesPage(isNull(), isNull()))
+            .thenReturn(new SliceImpl<Employee>(new ArrayList<Employee>()));
+
+        this.mockMvc.perform(get(EmployeeController.BASE_PATH)
+                                 .header(HttpHeaders.IF_NONE_MATCH,
+                                         ETags.forCollection(EmployeeService.COLLECTION, 7L)))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG,
+                            ETags.forCollection(EmployeeService.COLLECTION, 8L)));
+    }
+
+    @Test
+    public void findEmployee_matchingETagReturnsNotModified() throws Exception {
+        Employee testEmployee = new Employee();
+        testEmployee.setId(TEST_EMPLOYEE_ID);
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+        testEmployee.setVersion(TEST_VERSION);
+
+        when(mockEmployeeService.findEmployee(TEST_EMPLOYEE_ID))
+            .thenReturn(testEmployee);
+
+        this.mockMvc.perform(get(EmployeeController.BASE_PATH + TEST_EMPLOYEE_ID)
+                                 .header(HttpHeaders.IF_NONE_MATCH,
+                                         ETags.forVersion(TEST_VERSION)))
+                    .andExpect(status().isNotModified())
+                    .andExpect(content().string(""));
+    }
+
     @Test
     public void findEmployee_unknownReturnsNotFound() throws Exception {
         when(mockEmployeeService.findEmployee(TEST_EMPLOYEE_ID))
@@ -158,6 +347,65 @@ public class EmployeeControllerTests {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void importEmployees_jsonArrayReturnsResult() throws Exception {
+        Employee testEmployee = new Employee();
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+        testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        when(mockEmployeeService.importEmployees(any()))
+            .thenAnswer(invocation -> countingImport(invocation.getArgument(0)));
+
+        this.mockMvc.perform(
+                post(EmployeeController.BASE_PATH + "bulk")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(
+                            Arrays.asList(testEmployee, testEmployee))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(2))
+                .andExpect(jsonPath("$.inserted").value(2));
+    }
+
+    @Test
+    public void importEmployees_ndjsonReturnsResult() throws Exception {
+        Employee testEmployee = new Employee();
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+        testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
+        String line = objectMapper.writeValueAsString(testEmployee);
+
+        when(mockEmployeeService.importEmployees(any()))
+            .thenAnswer(invocation -> countingImport(invocation.getArgument(0)));
+
+        this.mockMvc.perform(
+                post(EmployeeController.BASE_PATH + "bulk")
+                    .contentType(NdjsonWriter.APPLICATION_NDJSON)
+                    .content(line + "\n" + line + "\n" + line + "\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(3));
+    }
+
+    @Test
+    public void importEmployees_malformedReturnsBadRequest() throws Exception {
+        when(mockEmployeeService.importEmployees(any()))
+            .thenAnswer(invocation -> countingImport(invocation.getArgument(0)));
+
+        this.mockMvc.perform(
+                post(EmployeeController.BASE_PATH + "bulk")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("not json"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static BulkImportResult countingImport(Iterator<Employee> employees) {
+        BulkImportResult result = new BulkImportResult();
+        while (employees.hasNext()) {
+            employees.next();
+            result.setReceived(result.getReceived() + 1);
+        }
+        result.setInserted(result.getReceived());
+        return result;
+    }
+
     @Test
     public void updateEmployee_returnsOk() throws Exception {
         Employee testEmployee = new Employee();
@@ -169,7 +417,7 @@ public class EmployeeControllerTests {
         testTask.setDescription(TEST_TASK_DESCRIPTION);
         testEmployee.setCurrentTask(testTask);
 
-        when(mockEmployeeService.updateEmployee(any()))
+        when(mockEmployeeService.updateEmployee(any(), isNull()))
             .thenReturn(testEmployee);
 
         this.mockMvc.perform(
@@ -193,7 +441,7 @@ public class EmployeeControllerTests {
         testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
         testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
 
-        when(mockEmployeeService.updateEmployee(any()))
+        when(mockEmployeeService.updateEmployee(any(), isNull()))
             .thenThrow(new EntityNotFoundException("Invalid employee id: "
                                                    + testEmployee.getId()));
 
@@ -210,7 +458,7 @@ public class EmployeeControllerTests {
         testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
         testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
 
-        when(mockEmployeeService.updateEmployee(any()))
+        when(mockEmployeeService.updateEmployee(any(), isNull()))
             .thenThrow(new EntityNotFoundException("Invalid department id: "
                                                    + testEmployee.getDepartmentId()));
 
@@ -239,4 +487,200 @@ public class EmployeeControllerTests {
                                     + TEST_EMPLOYEE_ID))
                     .andExpect(status().isNotFound());
     }
+
+    @Test
+    public void patchEmployee_returnsOk() throws Exception {
+        Employee testEmployee = new Employee();
+        testEmployee.setId(TEST_EMPLOYEE_ID);
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+        testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        when(mockEmployeeService.patchEmployee(eq(TEST_EMPLOYEE_ID), any(), isNull()))
+            .thenReturn(testEmployee);
+
+        this.mockMvc.perform(
+                patch(EmployeeController.BASE_PATH + TEST_EMPLOYEE_ID)
+                    .contentType(EmployeeController.MERGE_PATCH_JSON_VALUE)
+                    .content("{\"currentTask\":{\"title\":\""
+                             + TEST_TASK_TITLE + "\"},\"departmentId\":null}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fullName")
+                        .value(testEmployee.getFullName()));
+
+        verify(mockEmployeeService).patchEmployee(eq(TEST_EMPLOYEE_ID),
+                argThat(patch ->
+                    patch.getChanges().size() == 2
+                    && patch.touches(EmployeePatch.DEPARTMENT_ID)
+                    && patch.get(EmployeePatch.DEPARTMENT_ID) == null
+                    && !patch.touches(EmployeePatch.CURRENT_TASK)
+                    && TEST_TASK_TITLE.equals(patch.get(
+                            EmployeePatch.CURRENT_TASK_TITLE))),
+                isNull());
+    }
+
+    @Test
+    public void patchEmployee_withNonTextName_returnsBadRequest() throws Exception {
+        this.mockMvc.perform(
+                patch(EmployeeController.BASE_PATH + TEST_EMPLOYEE_ID)
+                    .contentType(EmployeeController.MERGE_PATCH_JSON_VALUE)
+                    .content("{\"fullName\":42}"))
+                .andExpect(status().isBadRequest());
+
+        verify(mockEmployeeService, never()).patchEmployee(any(), any(), any());
+    }
+
+    @Test
+    public void patchEmployee_withUnknownEmployee_returnsNotFound() throws Exception {
+        when(mockEmployeeService.patchEmployee(eq(TEST_EMPLOYEE_ID), any(), isNull()))
+            .thenThrow(new EntityNotFoundException("Invalid employee id: "
+                                                   + TEST_EMPLOYEE_ID));
+
+        this.mockMvc.perform(
+                patch(EmployeeController.BASE_PATH + TEST_EMPLOYEE_ID)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"fullName\":\"" + TEST_EMPLOYEE_FULLNAME + "\"}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void updateEmployee_withIfMatch_passesVersionAndReturnsETag() throws Exception {
+        Employee testEmployee = new Employee();
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+        testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
+        testEmployee.setVersion(TEST_VERSION + 1);
+
+        when(mockEmployeeService.updateEmployee(any(), eq(TEST_VERSION)))
+            .thenReturn(testEmployee);
+
+        this.mockMvc.perform(
+                put(EmployeeController.BASE_PATH + TEST_EMPLOYEE_ID)
+                    .header(HttpHeaders.IF_MATCH, ETags.forVersion(TEST_VERSION))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(testEmployee)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG,
+                                           ETags.forVersion(TEST_VERSION + 1)))
+                .andExpect(jsonPath("$.version").value(TEST_VERSION + 1));
+    }
+
+    @Test
+    public void updateEmployee_withStaleIfMatch_returnsPreconditionFailed() throws Exception {
+        Employee testEmployee = new Employee();
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+        testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        when(mockEmployeeService.updateEmployee(any(), eq(TEST_VERSION)))
+            .thenThrow(new PreconditionFailedException("Employee "
+                                                       + TEST_EMPLOYEE_ID
+                                                       + " is at version 4"));
+
+        this.mockMvc.perform(
+                put(EmployeeController.BASE_PATH + TEST_EMPLOYEE_ID)
+                    .header(HttpHeaders.IF_MATCH, ETags.forVersion(TEST_VERSION))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(testEmployee)))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    public void updateEmployee_withUnknownIfMatch_returnsPreconditionFailed() throws Exception {
+        Employee testEmployee = new Employee();
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+
+        this.mockMvc.perform(
+                put(EmployeeController.BASE_PATH + TEST_EMPLOYEE_ID)
+                    .header(HttpHeaders.IF_MATCH, "\"not-a-version\"")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(testEmployee)))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(mockEmployeeService, never()).updateEmployee(any(), any());
+    }
+
+    @Test
+    public void updateEmployee_withConflict_returnsConflict() throws Exception {
+        Employee testEmployee = new Employee();
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+        testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
+        testEmployee.setVersion(TEST_VERSION);
+
+        when(mockEmployeeService.updateEmployee(any(), isNull()))
+            .thenThrow(new VersionConflictException("Employee "
+                                                    + TEST_EMPLOYEE_ID
+                                                    + " is at version 4"));
+
+        this.mockMvc.perform(
+                put(EmployeeController.BASE_PATH + TEST_EMPLOYEE_ID)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(testEmployee)))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    public void patchEmployee_withIfMatch_passesVersion() throws Exception {
+        Employee testEmployee = new Employee();
+        testEmployee.setId(TEST_EMPLOYEE_ID);
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+        testEmployee.setVersion(TEST_VERSION + 1);
+
+        when(mockEmployeeService.patchEmployee(eq(TEST_EMPLOYEE_ID), any(),
+                                               eq(TEST_VERSION)))
+            .thenReturn(testEmployee);
+
+        this.mockMvc.perform(
+                patch(EmployeeController.BASE_PATH + TEST_EMPLOYEE_ID)
+                    .header(HttpHeaders.IF_MATCH, ETags.forVersion(TEST_VERSION))
+                    .contentType(EmployeeController.MERGE_PATCH_JSON_VALUE)
+                    .content("{\"fullName\":\"" + TEST_EMPLOYEE_FULLNAME + "\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG,
+                                           ETags.forVersion(TEST_VERSION + 1)));
+    }
+
+    @Test
+    public void validateEmployees_returnsErrorsAsync() throws Exception {
+        Employee testEmployee = new Employee();
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+        testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        when(mockAsyncEmployeeService.validateEmployees(any()))
+            .thenReturn(CompletableFuture.completedFuture(Arrays.asList(
+                    new BulkImportError(1, "Invalid department id: "
+                                           + TEST_DEPARTMENT_ID))));
+
+        MvcResult result = this.mockMvc.perform(
+                post(EmployeeController.BASE_PATH + "bulk/validate")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(
+                                Arrays.asList(testEmployee, testEmployee))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.size()").value(1))
+                    .andExpect(jsonPath("$[0].index").value(1));
+
+        verify(mockAsyncEmployeeService).validateEmployees(
+                argThat(employees -> employees.size() == 2));
+    }
+
+    @Test
+    public void validateEmployees_busyReturnsServiceUnavailable() throws Exception {
+        CompletableFuture<List<BulkImportError>> busy = new CompletableFuture<>();
+        busy.completeExceptionally(new ServiceBusyException("busy"));
+
+        when(mockAsyncEmployeeService.validateEmployees(any()))
+            .thenReturn(busy);
+
+        MvcResult result = this.mockMvc.perform(
+                post(EmployeeController.BASE_PATH + "bulk/validate")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("[]"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isServiceUnavailable());
+    }
 }
@@ -0,0 +1,135 @@
+package com.frankc.training.employee.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.frankc.training.employee.dto.DepartmentSummary;
+import com.frankc.training.employee.entities.Employee;
+import com.frankc.training.employee.entities.Task;
+import com.frankc.training.employee.repositories.EmployeeRepository;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = EmployeeIndex.class)
+@TestPropertySource(properties = "employee.index.enabled=true")
+public class EmployeeIndexTests {
+
+    private static final String TEST_DEPARTMENT_ID = "1A2B3C4D";
+
+    @Autowired
+    private EmployeeIndex employeeIndex;
+
+    @MockBean
+    private EmployeeRepository mockEmployeeRepo;
+
+    private Employee bob;
+    private Employee alice;
+
+    @Before
+    public void loadIndex() {
+        bob = employee("Bob", true);
+        alice = employee("Alice", false);
+        when(mockEmployeeRepo.streamAllBy())
+                .thenAnswer(invocation -> Arrays.asList(bob, alice).stream());
+
+        employeeIndex.load();
+    }
+
+    @Test
+    public void find_servesLoadedEmployees() {
+        assertTrue(employeeIndex.isReady());
+
+        Employee found = employeeIndex.find(bob.getId(), id -> {
+            throw new AssertionError("Fallback used");
+        }).get();
+
+        assertEquals("Bob", found.getFullName());
+        assertEquals("Write tests", found.getCurrentTask().getTitle());
+        assertFalse(employeeIndex.find(new ObjectId().toHexString(), id -> {
+            throw new AssertionError("Fallback used");
+        }).isPresent());
+    }
+
+    @Test
+    public void find_nonObjectIdUsesFallback() {
+        Employee other = new Employee();
+
+        assertSame(other, employeeIndex.find("abcd453",
+                                             id -> Optional.of(other)).get());
+    }
+
+    @Test
+    public void update_isVisibleToReads() {
+        Employee moved = employee("Bob", false);
+        moved.setId(bob.getId());
+        moved.setDepartmentId("5E6F7A8B");
+        employeeIndex.update(bob, moved);
+        employeeIndex.update(alice, null);
+
+        DepartmentSummary summary = employeeIndex.summarize(TEST_DEPARTMENT_ID, () -> null);
+        assertEquals(0, summary.getHeadcount());
+        assertEquals("5E6F7A8B", employeeIndex.find(bob.getId(), id -> null)
+                                              .get().getDepartmentId());
+        assertFalse(employeeIndex.find(alice.getId(), id -> null).isPresent());
+    }
+
+    @Test
+    public void findDepartmentPage_pagesAndCounts() {
+        Slice<Employee> first = employeeIndex.findDepartmentPage(
+                                    TEST_DEPARTMENT_ID, null, 1, () -> null);
+        Slice<Employee> second = employeeIndex.findDepartmentPage(
+                TEST_DEPARTMENT_ID, first.getContent().get(0).getId(), 1, () -> null);
+
+        assertEquals(bob.getId(), first.getContent().get(0).getId());
+        assertTrue(first.hasNext());
+        assertEquals(alice.getId(), second.getContent().get(0).getId());
+        assertFalse(second.hasNext());
+
+        DepartmentSummary summary = employeeIndex.summarize(TEST_DEPARTMENT_ID, () -> null);
+        assertEquals(2, summary.getHeadcount());
+        assertEquals(1, summary.getWithTask());
+        assertEquals(1, summary.getWithoutTask());
+    }
+
+    @Test
+    public void update_nonObjectIdTurnsIndexOff() {
+        Employee clientId = employee("Carol", false);
+        clientId.setId("abcd453");
+        employeeIndex.update(null, clientId);
+
+        assertFalse(employeeIndex.isReady());
+        Slice<Employee> fallback = new SliceImpl<>(Arrays.asList(clientId));
+        assertSame(fallback, employeeIndex.findDepartmentPage(
+                TEST_DEPARTMENT_ID, null, 10, () -> fallback));
+    }
+
+    private static Employee employee(String fullName, boolean withTask) {
+        Employee employee = new Employee();
+        employee.setId(new ObjectId().toHexString());
+        employee.setFullName(fullName);
+        employee.setDepartmentId(TEST_DEPARTMENT_ID);
+        employee.setVersion(0L);
+        if (withTask) {
+            employee.setCurrentTask(new Task());
+            employee.getCurrentTask().setTitle("Write tests");
+        }
+        return employee;
+    }
+}
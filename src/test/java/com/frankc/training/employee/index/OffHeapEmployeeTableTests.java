@@ -0,0 +1,131 @@
+package com.frankc.training.employee.index;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.bson.types.ObjectId;
+import org.junit.Test;
+
+public class OffHeapEmployeeTableTests {
+
+    private static final String DEPARTMENT = "5c5d5a2b9f1e4a3b2c1d0e9f";
+    private static final String OTHER_DEPARTMENT = "5c5d5a2b9f1e4a3b2c1d0ea0";
+
+    private final OffHeapEmployeeTable table = new OffHeapEmployeeTable();
+
+    @Test
+    public void isObjectId_acceptsOnlyLowerCaseHexOf24() {
+        assertTrue(OffHeapEmployeeTable.isObjectId(new ObjectId().toHexString()));
+        assertFalse(OffHeapEmployeeTable.isObjectId("5C5D5A2B9F1E4A3B2C1D0E9F"));
+        assertFalse(OffHeapEmployeeTable.isObjectId("abcd453"));
+        assertFalse(OffHeapEmployeeTable.isObjectId(null));
+    }
+
+    @Test
+    public void put_replacesAndMovesBetweenDepartments() {
+        String id = new ObjectId().toHexString();
+
+        table.put(id, DEPARTMENT, true, bytes("first"));
+        table.put(id, OTHER_DEPARTMENT, false, bytes("second"));
+
+        assertEquals(1, table.size());
+        assertEquals("second", text(table.get(id)));
+        assertEquals(0, table.headcount(DEPARTMENT));
+        assertEquals(0, table.withTask(DEPARTMENT));
+        assertEquals(1, table.headcount(OTHER_DEPARTMENT));
+        assertEquals(0, table.withTask(OTHER_DEPARTMENT));
+    }
+
+    @Test
+    public void departmentPage_pagesInIdOrder() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            ids.add(new ObjectId().toHexString());
+        }
+        // Inserted out of order
+        for (int i = 9; i >= 0; --i) {
+            table.put(ids.get(i), DEPARTMENT, i % 2 == 0, bytes(ids.get(i)));
+        }
+
+        List<ByteBuffer> first = table.departmentPage(DEPARTMENT, null, 4);
+        List<ByteBuffer> next = table.departmentPage(DEPARTMENT, ids.get(3), 4);
+
+        assertEquals(ids.get(0), text(first.get(0)));
+        assertEquals(ids.get(3), text(first.get(3)));
+        assertEquals(ids.get(4), text(next.get(0)));
+        assertEquals(0, table.departmentPage(DEPARTMENT, ids.get(9), 4).size());
+        assertEquals(0, table.departmentPage(OTHER_DEPARTMENT, null, 4).size());
+        assertEquals(10, table.headcount(DEPARTMENT));
+        assertEquals(5, table.withTask(DEPARTMENT));
+    }
+
+    @Test
+    public void manyWritesAndRemoves_matchAHashMap() {
+        Random random = new Random(42);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 5000; ++i) {
+            ids.add(new ObjectId().toHexString());
+        }
+
+        Map<String, String> expected = new HashMap<>();
+        for (int i = 0; i < 100_000; ++i) {
+            String id = ids.get(random.nextInt(ids.size()));
+            if (random.nextInt(4) == 0) {
+                assertEquals(expected.remove(id) != null, table.remove(id));
+            } else {
+                String document = id + " " + i;
+                expected.put(id, document);
+                table.put(id, random.nextBoolean() ? DEPARTMENT : OTHER_DEPARTMENT,
+                          false, bytes(document));
+            }
+        }
+
+        assertEquals(expected.size(), table.size());
+        assertEquals(expected.size(), table.headcount(DEPARTMENT)
+                                      + table.headcount(OTHER_DEPARTMENT));
+        for (String id : ids) {
+            ByteBuffer document = table.get(id);
+            if (expected.containsKey(id)) {
+                assertEquals(expected.get(id), text(document));
+            } else {
+                assertNull(document);
+            }
+        }
+    }
+
+    @Test
+    public void get_viewSurvivesLaterWrites() {
+        String id = new ObjectId().toHexString();
+        table.put(id, DEPARTMENT, false, bytes("kept"));
+        ByteBuffer view = table.get(id);
+
+        // Enough to reallocate the data buffer
+        byte[] large = new byte[1 << 20];
+        for (int i = 0; i < 4; ++i) {
+            table.put(new ObjectId().toHexString(), DEPARTMENT, false, large);
+        }
+
+        assertEquals("kept", text(view));
+        assertEquals("kept", text(table.get(id)));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(UTF_8);
+    }
+
+    private static String text(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
@@ -0,0 +1,70 @@
+package com.frankc.training.employee.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class CorrelationIdFilterTests {
+
+    private static final String TEST_CORRELATION_ID = "test-correlation-id";
+
+    private final CorrelationIdFilter filter = new CorrelationIdFilter();
+
+    @Test
+    public void doFilter_usesRequestCorrelationId() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(CorrelationIdFilter.CORRELATION_ID_HEADER,
+                          TEST_CORRELATION_ID);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        String[] seen = new String[1];
+        filter.doFilter(request, response, new MockFilterChain() {
+            @Override
+            public void doFilter(javax.servlet.ServletRequest req,
+                                 javax.servlet.ServletResponse res) {
+                seen[0] = MDC.get(CorrelationIdFilter.MDC_KEY);
+            }
+        });
+
+        assertEquals(TEST_CORRELATION_ID, seen[0]);
+        assertEquals(TEST_CORRELATION_ID,
+                     response.getHeader(CorrelationIdFilter.CORRELATION_ID_HEADER));
+        assertNull("MDC should be cleared after the request",
+                   MDC.get(CorrelationIdFilter.MDC_KEY));
+    }
+
+    @Test
+    public void doFilter_generatesMissingCorrelationId() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest(), response,
+                        new MockFilterChain());
+
+        assertNotNull(response.getHeader(CorrelationIdFilter.CORRELATION_ID_HEADER));
+        assertNull(MDC.get(CorrelationIdFilter.MDC_KEY));
+    }
+
+    @Test
+    public void doFilter_replacesInvalidCorrelationId() throws Exception {
+        String forged = TEST_CORRELATION_ID + "\r\nINFO forged log line";
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(CorrelationIdFilter.CORRELATION_ID_HEADER, forged);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, new MockFilterChain());
+
+        String correlationId =
+                response.getHeader(CorrelationIdFilter.CORRELATION_ID_HEADER);
+        assertNotNull(correlationId);
+        assertNotEquals(forged, correlationId);
+        assertFalse(correlationId.contains("\n"));
+    }
+}
@@ -0,0 +1,66 @@
+package com.frankc.training.employee.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mongodb.MongoException;
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class MongoCommandMetricsTests {
+
+    private static final ConnectionDescription TEST_CONNECTION =
+            new ConnectionDescription(new ServerId(new ClusterId(),
+                                                   new ServerAddress()));
+
+    private MeterRegistry registry;
+    private MongoCommandMetrics commandMetrics;
+
+    @Before
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        commandMetrics = new MongoCommandMetrics(registry);
+    }
+
+    @Test
+    public void commandSucceeded_recordsLatency() {
+        commandMetrics.commandSucceeded(new CommandSucceededEvent(
+                1, TEST_CONNECTION, "find", new BsonDocument(),
+                TimeUnit.MILLISECONDS.toNanos(5)));
+
+        Timer timer = registry.get(MongoCommandMetrics.METRIC_NAME)
+                              .tag("command", "find")
+                              .tag("status", "SUCCESS")
+                              .timer();
+
+        assertEquals(1, timer.count());
+        assertEquals(5, timer.totalTime(TimeUnit.MILLISECONDS), 0.001);
+    }
+
+    @Test
+    public void commandFailed_recordsFailure() {
+        commandMetrics.commandFailed(new CommandFailedEvent(
+                1, TEST_CONNECTION, "insert",
+                TimeUnit.MILLISECONDS.toNanos(2), new MongoException("failed")));
+
+        Timer timer = registry.get(MongoCommandMetrics.METRIC_NAME)
+                              .tag("command", "insert")
+                              .tag("status", "FAILED")
+                              .timer();
+
+        assertEquals(1, timer.count());
+    }
+}
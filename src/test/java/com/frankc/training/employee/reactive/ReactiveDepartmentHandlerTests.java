@@ -0,0 +1,110 @@
+package com.frankc.training.employee.reactive;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.frankc.training.employee.controllers.DepartmentController;
+import com.frankc.training.employee.entities.Department;
+import com.frankc.training.employee.repositories.ReactiveDepartmentRepository;
+import com.frankc.training.employee.repositories.ReactiveEmployeeRepository;
+import com.frankc.training.employee.services.DepartmentService;
+import com.frankc.training.employee.util.EntityFieldValidator;
+
+import reactor.core.publisher.Mono;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("reactive")
+@ContextConfiguration(classes = {ReactiveRoutes.class,
+                                 ReactiveEmployeeHandler.class,
+                                 ReactiveDepartmentHandler.class,
+                                 EntityFieldValidator.class,
+                                 JacksonAutoConfiguration.class})
+public class ReactiveDepartmentHandlerTests {
+
+    @Autowired
+    private RouterFunction<ServerResponse> departmentRoutes;
+
+    @MockBean
+    private ReactiveEmployeeRepository mockEmployeeRepo;
+
+    @MockBean
+    private ReactiveDepartmentRepository mockDepartmentRepo;
+
+    @MockBean
+    private ReactiveCollectionVersions mockCollectionVersions;
+
+    @MockBean
+    private ReactiveDepartmentStats mockDepartmentStats;
+
+    private WebTestClient webTestClient;
+
+    private static final String TEST_DEPARTMENT_ID = "1A2B3C4D";
+
+    @Before
+    public void setUp() {
+        webTestClient = WebTestClient.bindToRouterFunction(departmentRoutes)
+                                     .build();
+        when(mockCollectionVersions.increment(anyString()))
+            .thenReturn(Mono.just(1L));
+        when(mockEmployeeRepo.existsByDepartmentId(TEST_DEPARTMENT_ID))
+            .thenReturn(Mono.just(false));
+    }
+
+    @Test
+    public void deleteDepartment_returnsNoContent() {
+        Department removed = new Department();
+        removed.setId(TEST_DEPARTMENT_ID);
+        when(mockDepartmentStats.removeDepartment(TEST_DEPARTMENT_ID))
+            .thenReturn(Mono.just(removed));
+
+        webTestClient.delete().uri(DepartmentController.BASE_PATH
+                                   + TEST_DEPARTMENT_ID)
+                     .exchange()
+                     .expectStatus().isNoContent();
+
+        verify(mockCollectionVersions).increment(DepartmentService.COLLECTION);
+    }
+
+    @Test
+    public void deleteDepartment_unknownReturnsNotFound() {
+        when(mockDepartmentStats.removeDepartment(TEST_DEPARTMENT_ID))
+            .thenReturn(Mono.empty());
+
+        webTestClient.delete().uri(DepartmentController.BASE_PATH
+                                   + TEST_DEPARTMENT_ID)
+                     .exchange()
+                     .expectStatus().isNotFound();
+
+        verify(mockCollectionVersions, never()).increment(anyString());
+    }
+
+    @Test
+    public void deleteDepartment_withEmployeesReturnsConflict() {
+        when(mockEmployeeRepo.existsByDepartmentId(TEST_DEPARTMENT_ID))
+            .thenReturn(Mono.just(true));
+
+        webTestClient.delete().uri(DepartmentController.BASE_PATH
+                                   + TEST_DEPARTMENT_ID)
+                     .exchange()
+                     .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+
+        verify(mockDepartmentStats, never()).removeDepartment(anyString());
+        verify(mockCollectionVersions, never()).increment(anyString());
+    }
+}
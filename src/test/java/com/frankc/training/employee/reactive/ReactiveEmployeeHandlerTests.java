@@ -0,0 +1,366 @@
+package com.frankc.training.employee.reactive;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.frankc.training.employee.controllers.EmployeeController;
+import com.frankc.training.employee.entities.Employee;
+import com.frankc.training.employee.repositories.ReactiveDepartmentRepository;
+import com.frankc.training.employee.repositories.ReactiveEmployeeRepository;
+import com.frankc.training.employee.services.EmployeeService;
+import com.frankc.training.employee.util.ContinuationToken;
+import com.frankc.training.employee.util.ETags;
+import com.frankc.training.employee.util.EntityFieldValidator;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("reactive")
+@ContextConfiguration(classes = {ReactiveRoutes.class,
+                                 ReactiveEmployeeHandler.class,
+                                 ReactiveDepartmentHandler.class,
+                                 JacksonAutoConfiguration.class})
+public class ReactiveEmployeeHandlerTests {
+
+    @Autowired
+    private RouterFunction<ServerResponse> employeeRoutes;
+
+    @MockBean
+    private ReactiveEmployeeRepository mockEmployeeRepo;
+
+    @MockBean
+    private ReactiveDepartmentRepository mockDepartmentRepo;
+
+    @MockBean
+    private ReactiveCollectionVersions mockCollectionVersions;
+
+    @MockBean
+    private ReactiveDepartmentStats mockDepartmentStats;
+
+    @SpyBean
+    private EntityFieldValidator entityFieldValidator;
+
+    private WebTestClient webTestClient;
+
+    private static final String TEST_EMPLOYEE_ID = "abcd453";
+    private static final String TEST_EMPLOYEE_FULLNAME = "Bob";
+
+    private static final String TEST_DEPARTMENT_ID = "1A2B3C4D";
+
+    @Before
+    public void setUp() {
+        webTestClient = WebTestClient.bindToRouterFunction(employeeRoutes)
+                                     .build();
+        when(mockCollectionVersions.increment(anyString()))
+            .thenReturn(Mono.just(1L));
+        when(mockDepartmentStats.countChange(any(), any()))
+            .thenReturn(Mono.empty());
+    }
+
+    @Test
+    public void findAllEmployees_withMorePages_returnsContinuationToken() {
+        Employee first = new Employee();
+        first.setId(TEST_EMPLOYEE_ID);
+        Employee second = new Employee();
+        second.setId(TEST_EMPLOYEE_ID + "2");
+
+        when(mockEmployeeRepo.findAllBy(any()))
+            .thenReturn(Flux.just(first, second));
+
+        webTestClient.get().uri(EmployeeController.BASE_PATH + "?size=1")
+                     .exchange()
+                     .expectStatus().isOk()
+                     .expectHeader().valueEquals(
+                             EmployeeController.CONTINUATION_TOKEN_HEADER,
+                             ContinuationToken.encode(TEST_EMPLOYEE_ID))
+                     .expectBody()
+                     .jsonPath("$.length()").isEqualTo(1)
+                     .jsonPath("$[0].id").isEqualTo(TEST_EMPLOYEE_ID);
+    }
+
+    @Test
+    public void findAllEmployees_afterNonObjectIdContinuesIntoObjectIds() {
+        when(mockEmployeeRepo.findAfterNonObjectId(eq(TEST_EMPLOYEE_ID), any()))
+            .thenReturn(Flux.empty());
+
+        webTestClient.get().uri(EmployeeController.BASE_PATH
+                                + "?continuationToken="
+                                + ContinuationToken.encode(TEST_EMPLOYEE_ID))
+                     .exchange()
+                     .expectStatus().isOk();
+
+        verify(mockEmployeeRepo, never()).findByIdGreaterThan(any(), any());
+    }
+
+    @Test
+    public void findEmployee_returnsOk() {
+        Employee testEmployee = new Employee();
+        testEmployee.setId(TEST_EMPLOYEE_ID);
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+
+        when(mockEmployeeRepo.findById(TEST_EMPLOYEE_ID))
+            .thenReturn(Mono.just(testEmployee));
+
+        webTestClient.get().uri(EmployeeController.BASE_PATH + TEST_EMPLOYEE_ID)
+                     .exchange()
+                     .expectStatus().isOk()
+                     .expectBody()
+                     .jsonPath("$.fullName").isEqualTo(TEST_EMPLOYEE_FULLNAME);
+    }
+
+    @Test
+    public void findEmployee_unknownReturnsNotFound() {
+        when(mockEmployeeRepo.findById(TEST_EMPLOYEE_ID))
+            .thenReturn(Mono.empty());
+
+        webTestClient.get().uri(EmployeeController.BASE_PATH + TEST_EMPLOYEE_ID)
+                     .exchange()
+                     .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void createEmployee_returnsCreated() {
+        Employee testEmployee = new Employee();
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+        testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        when(mockDepartmentRepo.existsById(TEST_DEPARTMENT_ID))
+            .thenReturn(Mono.just(true));
+        when(mockEmployeeRepo.save(isA(Employee.class)))
+            .thenReturn(Mono.just(testEmployee));
+
+        webTestClient.post().uri(EmployeeController.BASE_PATH)
+                     .contentType(MediaType.APPLICATION_JSON)
+                     .syncBody(testEmployee)
+                     .exchange()
+                     .expectStatus().isCreated()
+                     .expectBody()
+                     .jsonPath("$.departmentId").isEqualTo(TEST_DEPARTMENT_ID);
+
+        verify(mockDepartmentStats).countChange(isNull(), eq(testEmployee));
+    }
+
+    @Test
+    public void createEmployee_withExistingId_countsChangeFromPrevious() {
+        Employee current = new Employee();
+        current.setId(TEST_EMPLOYEE_ID);
+        current.setVersion(2L);
+        current.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        Employee testEmployee = new Employee();
+        testEmployee.setId(TEST_EMPLOYEE_ID);
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+        testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        when(mockEmployeeRepo.findById(TEST_EMPLOYEE_ID))
+            .thenReturn(Mono.just(current));
+        when(mockDepartmentRepo.existsById(TEST_DEPARTMENT_ID))
+            .thenReturn(Mono.just(true));
+        when(mockEmployeeRepo.save(isA(Employee.class)))
+            .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        webTestClient.post().uri(EmployeeController.BASE_PATH)
+                     .contentType(MediaType.APPLICATION_JSON)
+                     .syncBody(testEmployee)
+                     .exchange()
+                     .expectStatus().isCreated()
+                     .expectBody()
+                     .jsonPath("$.version").isEqualTo(2);
+
+        verify(mockDepartmentStats).countChange(eq(current), isA(Employee.class));
+    }
+
+    @Test
+    public void createEmployee_withConcurrentInsert_returnsConflict() {
+        Employee testEmployee = new Employee();
+        testEmployee.setId(TEST_EMPLOYEE_ID);
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+        testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        when(mockEmployeeRepo.findById(TEST_EMPLOYEE_ID))
+            .thenReturn(Mono.empty());
+        when(mockDepartmentRepo.existsById(TEST_DEPARTMENT_ID))
+            .thenReturn(Mono.just(true));
+        when(mockEmployeeRepo.save(isA(Employee.class)))
+            .thenReturn(Mono.error(new DuplicateKeyException("duplicate id")));
+
+        webTestClient.post().uri(EmployeeController.BASE_PATH)
+                     .contentType(MediaType.APPLICATION_JSON)
+                     .syncBody(testEmployee)
+                     .exchange()
+                     .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+
+        verify(mockDepartmentStats, never()).countChange(any(), any());
+    }
+
+    @Test
+    public void createEmployee_withUnknownDepartment_returnsNotFound() {
+        Employee testEmployee = new Employee();
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+        testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        when(mockDepartmentRepo.existsById(TEST_DEPARTMENT_ID))
+            .thenReturn(Mono.just(false));
+
+        webTestClient.post().uri(EmployeeController.BASE_PATH)
+                     .contentType(MediaType.APPLICATION_JSON)
+                     .syncBody(testEmployee)
+                     .exchange()
+                     .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void createEmployee_withoutName_returnsBadRequest() {
+        Employee testEmployee = new Employee();
+        testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        when(mockDepartmentRepo.existsById(TEST_DEPARTMENT_ID))
+            .thenReturn(Mono.just(true));
+
+        webTestClient.post().uri(EmployeeController.BASE_PATH)
+                     .contentType(MediaType.APPLICATION_JSON)
+                     .syncBody(testEmployee)
+                     .exchange()
+                     .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void updateEmployee_withUnknownEmployee_returnsNotFound() {
+        Employee testEmployee = new Employee();
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+        testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        when(mockEmployeeRepo.findById(TEST_EMPLOYEE_ID))
+            .thenReturn(Mono.empty());
+
+        webTestClient.put().uri(EmployeeController.BASE_PATH + TEST_EMPLOYEE_ID)
+                     .contentType(MediaType.APPLICATION_JSON)
+                     .syncBody(testEmployee)
+                     .exchange()
+                     .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void deleteEmployee_returnsNoContent() {
+        Employee removed = new Employee();
+        removed.setId(TEST_EMPLOYEE_ID);
+        when(mockDepartmentStats.removeEmployee(TEST_EMPLOYEE_ID))
+            .thenReturn(Mono.just(removed));
+
+        webTestClient.delete().uri(EmployeeController.BASE_PATH + TEST_EMPLOYEE_ID)
+                     .exchange()
+                     .expectStatus().isNoContent();
+
+        verify(mockCollectionVersions).increment(EmployeeService.COLLECTION);
+    }
+
+    @Test
+    public void deleteEmployee_unknownReturnsNotFound() {
+        when(mockDepartmentStats.removeEmployee(TEST_EMPLOYEE_ID))
+            .thenReturn(Mono.empty());
+
+        webTestClient.delete().uri(EmployeeController.BASE_PATH + TEST_EMPLOYEE_ID)
+                     .exchange()
+                     .expectStatus().isNotFound();
+
+        verify(mockCollectionVersions, never()).increment(anyString());
+    }
+
+    @Test
+    public void updateEmployee_countsChangeFromPrevious() {
+        Employee current = new Employee();
+        current.setId(TEST_EMPLOYEE_ID);
+        current.setVersion(3L);
+
+        Employee testEmployee = new Employee();
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+        testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        when(mockEmployeeRepo.findById(TEST_EMPLOYEE_ID))
+            .thenReturn(Mono.just(current));
+        when(mockDepartmentRepo.existsById(TEST_DEPARTMENT_ID))
+            .thenReturn(Mono.just(true));
+        when(mockEmployeeRepo.save(isA(Employee.class)))
+            .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        webTestClient.put().uri(EmployeeController.BASE_PATH + TEST_EMPLOYEE_ID)
+                     .contentType(MediaType.APPLICATION_JSON)
+                     .syncBody(testEmployee)
+                     .exchange()
+                     .expectStatus().isOk();
+
+        verify(mockDepartmentStats).countChange(eq(current), isA(Employee.class));
+    }
+
+    @Test
+    public void updateEmployee_withStaleIfMatch_returnsPreconditionFailed() {
+        Employee current = new Employee();
+        current.setId(TEST_EMPLOYEE_ID);
+        current.setVersion(4L);
+
+        Employee testEmployee = new Employee();
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+        testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        when(mockEmployeeRepo.findById(TEST_EMPLOYEE_ID))
+            .thenReturn(Mono.just(current));
+
+        webTestClient.put().uri(EmployeeController.BASE_PATH + TEST_EMPLOYEE_ID)
+                     .header(HttpHeaders.IF_MATCH, ETags.forVersion(3L))
+                     .contentType(MediaType.APPLICATION_JSON)
+                     .syncBody(testEmployee)
+                     .exchange()
+                     .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @Test
+    public void updateEmployee_withConcurrentUpdate_returnsConflict() {
+        Employee current = new Employee();
+        current.setId(TEST_EMPLOYEE_ID);
+        current.setVersion(3L);
+
+        Employee testEmployee = new Employee();
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+        testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        when(mockEmployeeRepo.findById(TEST_EMPLOYEE_ID))
+            .thenReturn(Mono.just(current));
+        when(mockDepartmentRepo.existsById(TEST_DEPARTMENT_ID))
+            .thenReturn(Mono.just(true));
+        when(mockEmployeeRepo.save(isA(Employee.class)))
+            .thenReturn(Mono.error(new OptimisticLockingFailureException(
+                                            "version changed")));
+
+        webTestClient.put().uri(EmployeeController.BASE_PATH + TEST_EMPLOYEE_ID)
+                     .contentType(MediaType.APPLICATION_JSON)
+                     .syncBody(testEmployee)
+                     .exchange()
+                     .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+    }
+}
@@ -0,0 +1,148 @@
+package com.frankc.training.employee.repositories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.frankc.training.employee.cache.DepartmentCache;
+import com.frankc.training.employee.cache.EmployeeCache;
+import com.frankc.training.employee.changes.ChangeLog;
+import com.frankc.training.employee.dto.EntityChange;
+import com.frankc.training.employee.entities.Department;
+import com.frankc.training.employee.entities.Employee;
+import com.frankc.training.employee.index.EmployeeIndex;
+import com.frankc.training.employee.services.EmployeeService;
+import com.frankc.training.employee.util.EntityFieldValidator;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Bulk imports through EmployeeService into EmployeeRepositoryImpl, with
+ * only the MongoTemplate mocked, so that what the Mongo bulk insert does
+ * to the Employees is seen by the index and the change log.
+ */
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = {EmployeeService.class,
+                                 EmployeeRepositoryImpl.class,
+                                 DepartmentCache.class,
+                                 EmployeeCache.class,
+                                 EmployeeIndex.class,
+                                 ChangeLog.class,
+                                 EntityFieldValidator.class,
+                                 SimpleMeterRegistry.class})
+@TestPropertySource(properties = "employee.index.enabled=true")
+public class EmployeeBulkImportTests {
+
+    private static final String TEST_DEPARTMENT_ID = "1A2B3C4D";
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private EmployeeRepositoryImpl employeeRepoImpl;
+
+    @Autowired
+    private EmployeeIndex employeeIndex;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @MockBean
+    private MongoTemplate mockMongoTemplate;
+
+    @MockBean
+    private EmployeeRepository mockEmployeeRepo;
+
+    @MockBean
+    private DepartmentRepository mockDepartmentRepo;
+
+    @MockBean
+    private CollectionVersionRepository mockCollectionVersionRepo;
+
+    @MockBean
+    private DepartmentStatsRepository mockDepartmentStatsRepo;
+
+    @Before
+    public void setUp() {
+        BulkOperations bulkOps = mock(BulkOperations.class);
+        when(bulkOps.insert(anyList())).thenReturn(bulkOps);
+        when(mockMongoTemplate.bulkOps(any(BulkMode.class), eq(Employee.class)))
+            .thenReturn(bulkOps);
+        when(mockEmployeeRepo.insertUnordered(anyList()))
+            .thenAnswer(invocation -> employeeRepoImpl.insertUnordered(
+                                                invocation.getArgument(0)));
+
+        Department department = new Department();
+        department.setId(TEST_DEPARTMENT_ID);
+        when(mockDepartmentRepo.findAllById(anySet()))
+            .thenReturn(Arrays.asList(department));
+
+        when(mockEmployeeRepo.streamAllBy()).thenAnswer(invocation -> Stream.empty());
+        employeeIndex.load();
+    }
+
+    @Test
+    public void importEmployees_keepsIndexWithGeneratedIds() {
+        List<Employee> employees = Arrays.asList(employee("Bob"),
+                                                 employee("Alice"));
+
+        assertEquals(2, employeeService.importEmployees(employees.iterator())
+                                       .getInserted());
+
+        assertTrue(employeeIndex.isReady());
+        for (Employee employee : employees) {
+            assertNotNull(employee.getId());
+            Optional<Employee> found = employeeIndex.find(employee.getId(), id -> {
+                throw new AssertionError("Fallback used");
+            });
+            assertEquals(employee.getFullName(), found.get().getFullName());
+        }
+    }
+
+    @Test
+    public void importEmployees_recordsChangesWithGeneratedIds() {
+        long before = changeLog.latest();
+        List<Employee> employees = Arrays.asList(employee("Bob"),
+                                                 employee("Alice"));
+
+        employeeService.importEmployees(employees.iterator());
+
+        List<EntityChange> changes = changeLog.readAfter(before, 10);
+        assertEquals(2, changes.size());
+        for (int i = 0; i < changes.size(); ++i) {
+            assertEquals(EntityChange.Type.CREATED, changes.get(i).getType());
+            assertNotNull(changes.get(i).getId());
+            assertEquals(employees.get(i).getId(), changes.get(i).getId());
+        }
+    }
+
+    private static Employee employee(String fullName) {
+        Employee employee = new Employee();
+        employee.setFullName(fullName);
+        employee.setDepartmentId(TEST_DEPARTMENT_ID);
+        return employee;
+    }
+}
@@ -0,0 +1,99 @@
+package com.frankc.training.employee.repositories;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.frankc.training.employee.dto.EmployeeSearch;
+import com.frankc.training.employee.dto.EmployeeSearch.NameMatch;
+import com.frankc.training.employee.entities.Employee;
+
+/**
+ * Pages through a collection holding both client-supplied string ids and
+ * generated ObjectIds, which Mongo orders by type before value.
+ */
+@RunWith(SpringRunner.class)
+@DataMongoTest
+public class EmployeeIdOrderTests {
+
+    private static final String TEST_DEPARTMENT_ID = "1A2B3C4D";
+
+    @Autowired
+    private EmployeeRepository employeeRepo;
+
+    private final List<String> ids = new ArrayList<>();
+
+    @Before
+    public void seed() {
+        employeeRepo.deleteAll();
+
+        // Strings sort before every ObjectId
+        for (String id : Arrays.asList("alice", "bob", "carol",
+                                       new ObjectId().toHexString(),
+                                       new ObjectId().toHexString())) {
+            Employee employee = new Employee();
+            employee.setId(id);
+            employee.setFullName("Employee");
+            employee.setDepartmentId(TEST_DEPARTMENT_ID);
+            employeeRepo.save(employee);
+            ids.add(id);
+        }
+    }
+
+    @Test
+    public void findAfterNonObjectId_continuesIntoObjectIds() {
+        PageRequest page = PageRequest.of(0, 10, Sort.by("id"));
+
+        assertEquals(ids.subList(2, 5),
+                     idsOf(employeeRepo.findAfterNonObjectId("bob", page)));
+        assertEquals(ids.subList(2, 5),
+                     idsOf(employeeRepo.findByDepartmentIdAfterNonObjectId(
+                                        TEST_DEPARTMENT_ID, "bob", page)));
+    }
+
+    @Test
+    public void findByIdGreaterThan_afterObjectIdSkipsStrings() {
+        PageRequest page = PageRequest.of(0, 10, Sort.by("id"));
+
+        assertEquals(ids.subList(4, 5),
+                     idsOf(employeeRepo.findByIdGreaterThan(ids.get(3), page)));
+    }
+
+    @Test
+    public void search_afterNonObjectIdContinuesIntoObjectIds() {
+        EmployeeSearch search = new EmployeeSearch("Employee", NameMatch.EXACT,
+                                    null, Collections.<String>emptyList());
+
+        Slice<Employee> first = employeeRepo.search(search, null, 2);
+        Slice<Employee> second = employeeRepo.search(
+                search, first.getContent().get(1).getId(), 2);
+        Slice<Employee> third = employeeRepo.search(
+                search, second.getContent().get(1).getId(), 2);
+
+        assertEquals(ids.subList(0, 2), idsOf(first));
+        assertEquals(ids.subList(2, 4), idsOf(second));
+        assertEquals(ids.subList(4, 5), idsOf(third));
+    }
+
+    private static List<String> idsOf(Slice<Employee> slice) {
+        List<String> found = new ArrayList<>();
+        for (Employee employee : slice) {
+            found.add(employee.getId());
+        }
+        return found;
+    }
+}
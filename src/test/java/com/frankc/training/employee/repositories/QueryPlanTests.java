@@ -0,0 +1,274 @@
+package com.frankc.training.employee.repositories;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.frankc.training.employee.dto.EmployeeSearch;
+import com.frankc.training.employee.dto.EmployeeSearch.NameMatch;
+import com.frankc.training.employee.entities.Department;
+import com.frankc.training.employee.entities.Employee;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+
+/**
+ * Runs every repository query against embedded Mongo, captures the
+ * commands the driver sends and fails if explain() shows any filtered
+ * query scanning the whole collection.
+ *
+ * Queries without a filter, such as findAll, are full reads by design
+ * and are allowed to COLLSCAN.
+ */
+@RunWith(SpringRunner.class)
+@DataMongoTest
+@Import(EmployeeIndexInitializer.class)
+public class QueryPlanTests {
+
+    private static final Set<String> QUERY_COMMANDS = new HashSet<>(
+            Arrays.asList("find", "count", "aggregate", "distinct",
+                          "findAndModify"));
+
+    private static final Set<String> SESSION_FIELDS = new HashSet<>(
+            Arrays.asList("$db", "lsid", "$clusterTime",
+                          "$readPreference", "txnNumber"));
+
+    @Autowired
+    private EmployeeRepository employeeRepo;
+
+    @Autowired
+    private DepartmentRepository departmentRepo;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private CommandCapture commandCapture;
+
+    // Keyed by repository and method, as both repositories have a removeById
+    private final Set<String> exercised = new TreeSet<>();
+
+    private String departmentId;
+    private String employeeId;
+
+    @TestConfiguration
+    static class CaptureConfig {
+
+        @Bean
+        CommandCapture commandCapture() {
+            return new CommandCapture();
+        }
+
+        @Bean
+        MongoClientOptions mongoClientOptions(CommandCapture commandCapture) {
+            return MongoClientOptions.builder()
+                                     .addCommandListener(commandCapture)
+                                     .build();
+        }
+    }
+
+    static class CommandCapture implements CommandListener {
+
+        private final List<BsonDocument> commands =
+                            Collections.synchronizedList(new ArrayList<>());
+
+        List<BsonDocument> drain() {
+            synchronized (commands) {
+                List<BsonDocument> drained = new ArrayList<>(commands);
+                commands.clear();
+                return drained;
+            }
+        }
+
+        @Override
+        public void commandStarted(CommandStartedEvent event) {
+            if (QUERY_COMMANDS.contains(event.getCommandName())) {
+                commands.add(event.getCommand().clone());
+            }
+        }
+
+        @Override
+        public void commandSucceeded(CommandSucceededEvent event) {
+        }
+
+        @Override
+        public void commandFailed(CommandFailedEvent event) {
+        }
+    }
+
+    @Before
+    public void seed() {
+        employeeRepo.deleteAll();
+        departmentRepo.deleteAll();
+
+        Department department = new Department();
+        department.setName("Query Plans");
+        departmentId = departmentRepo.save(department).getId();
+
+        List<Employee> employees = new ArrayList<>();
+        for (int i = 0; i < 50; ++i) {
+            Employee employee = new Employee();
+            employee.setFullName("Employee " + i);
+            employee.setDepartmentId(departmentId);
+            employees.add(employee);
+        }
+        employeeId = employeeRepo.saveAll(employees).get(0).getId();
+        commandCapture.drain();
+    }
+
+    @Test
+    public void repositoryQueries_useIndexes() {
+        PageRequest page = PageRequest.of(0, 10, Sort.by("id"));
+
+        exercise(EmployeeRepository.class, "findAllBy",
+                 () -> employeeRepo.findAllBy(page));
+        exercise(EmployeeRepository.class, "findByIdGreaterThan",
+                 () -> employeeRepo.findByIdGreaterThan(employeeId, page));
+        exercise(EmployeeRepository.class, "findAfterNonObjectId",
+                 () -> employeeRepo.findAfterNonObjectId("none", page));
+        exercise(EmployeeRepository.class, "findByDepartmentId",
+                 () -> employeeRepo.findByDepartmentId(departmentId, page));
+        exercise(EmployeeRepository.class, "existsByDepartmentId",
+                 () -> employeeRepo.existsByDepartmentId(departmentId));
+        exercise(EmployeeRepository.class, "findByDepartmentIdAndIdGreaterThan",
+                 () -> employeeRepo.findByDepartmentIdAndIdGreaterThan(
+                                        departmentId, employeeId, page));
+        exercise(EmployeeRepository.class, "findByDepartmentIdAfterNonObjectId",
+                 () -> employeeRepo.findByDepartmentIdAfterNonObjectId(
+                                        departmentId, "none", page));
+        exercise(EmployeeRepository.class, "streamAllBy", () -> {
+            try (Stream<Employee> employees = employeeRepo.streamAllBy()) {
+                employees.count();
+            }
+        });
+        exercise(EmployeeRepositoryCustom.class, "summarizeDepartment",
+                 () -> employeeRepo.summarizeDepartment(departmentId));
+        exercise(EmployeeRepositoryCustom.class, "summarizeDepartments",
+                 () -> employeeRepo.summarizeDepartments());
+        exercise(EmployeeRepositoryCustom.class, "search", () -> {
+            for (NameMatch match : NameMatch.values()) {
+                employeeRepo.search(new EmployeeSearch(
+                        "Employee 1", match, null,
+                        Collections.<String>emptyList()), null, 10);
+                employeeRepo.search(new EmployeeSearch(
+                        "Employee 1", match, departmentId,
+                        Arrays.asList("id", "fullName")), employeeId, 10);
+                employeeRepo.search(new EmployeeSearch(
+                        "Employee 1", match, null,
+                        Collections.<String>emptyList()), "none", 10);
+            }
+        });
+        exercise(EmployeeRepositoryCustom.class, "insertUnordered",
+                 () -> employeeRepo.insertUnordered(
+                                        Collections.<Employee>emptyList()));
+        exercise(EmployeeRepositoryCustom.class, "findExistingIds",
+                 () -> employeeRepo.findExistingIds(
+                                        Arrays.asList(employeeId, "none")));
+        exercise(EmployeeRepositoryCustom.class, "patch",
+                 () -> employeeRepo.patch(employeeId, 0L,
+                         Collections.<String, Object>singletonMap("fullName",
+                                                                  "Patched")));
+        exercise(EmployeeRepositoryCustom.class, "removeById",
+                 () -> employeeRepo.removeById(employeeId));
+        exercise(DepartmentRepository.class, "findByName",
+                 () -> departmentRepo.findByName("Query Plans"));
+        exercise(DepartmentRepository.class, "streamAllBy", () -> {
+            try (Stream<Department> departments = departmentRepo.streamAllBy()) {
+                departments.count();
+            }
+        });
+        exercise(DepartmentRepository.class, "removeById",
+                 () -> departmentRepo.removeById(departmentId));
+
+        assertAllQueriesExercised(EmployeeRepository.class,
+                                  EmployeeRepositoryCustom.class,
+                                  DepartmentRepository.class);
+    }
+
+    private void exercise(Class<?> repository, String method,
+                          Runnable query) {
+        query.run();
+        exercised.add(key(repository, method));
+
+        for (BsonDocument command : commandCapture.drain()) {
+            if (!hasFilter(command)) {
+                continue;
+            }
+
+            BsonDocument explainable = new BsonDocument();
+            for (String key : command.keySet()) {
+                if (!SESSION_FIELDS.contains(key)) {
+                    explainable.put(key, command.get(key));
+                }
+            }
+
+            Document plan = mongoTemplate.getDb().runCommand(
+                    new Document("explain", explainable)
+                            .append("verbosity", "queryPlanner"));
+
+            assertFalse(key(repository, method)
+                        + " scans the whole collection: " + command
+                        + "\n" + plan.toJson(),
+                        plan.toJson().contains("\"COLLSCAN\""));
+        }
+    }
+
+    private static boolean hasFilter(BsonDocument command) {
+        String name = command.getFirstKey();
+        if ("find".equals(name)) {
+            return !command.getDocument("filter", new BsonDocument()).isEmpty();
+        }
+        if ("count".equals(name) || "distinct".equals(name)
+                || "findAndModify".equals(name)) {
+            return !command.getDocument("query", new BsonDocument()).isEmpty();
+        }
+        BsonArray pipeline = command.getArray("pipeline", new BsonArray());
+        if (pipeline.isEmpty()) {
+            return false;
+        }
+        BsonValue first = pipeline.get(0);
+        return first.isDocument() && first.asDocument().containsKey("$match");
+    }
+
+    private static String key(Class<?> repository, String method) {
+        return repository.getSimpleName() + "." + method;
+    }
+
+    private void assertAllQueriesExercised(Class<?>... repositories) {
+        for (Class<?> repository : repositories) {
+            for (Method method : repository.getDeclaredMethods()) {
+                String key = key(repository, method.getName());
+                assertTrue(key + " has no query plan check",
+                           exercised.contains(key));
+            }
+        }
+    }
+}
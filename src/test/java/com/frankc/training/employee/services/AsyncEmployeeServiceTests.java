@@ -0,0 +1,232 @@
+package com.frankc.training.employee.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.frankc.training.employee.cache.DepartmentCache;
+import com.frankc.training.employee.dto.BulkImportError;
+import com.frankc.training.employee.entities.Department;
+import com.frankc.training.employee.entities.Employee;
+import com.frankc.training.employee.exceptions.EntityNotFoundException;
+import com.frankc.training.employee.exceptions.ServiceBusyException;
+import com.frankc.training.employee.repositories.DepartmentRepository;
+import com.frankc.training.employee.repositories.EmployeeRepository;
+import com.frankc.training.employee.util.EntityFieldValidator;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = {AsyncEmployeeService.class,
+                                 AsyncServiceConfig.class,
+                                 DepartmentCache.class,
+                                 SimpleMeterRegistry.class})
+@TestPropertySource(properties = {"service.async.threads=2",
+                                  "service.async.queue-capacity=2"})
+public class AsyncEmployeeServiceTests {
+
+    private static final String TEST_EMPLOYEE_ID = "abcd453";
+    private static final String TEST_OTHER_EMPLOYEE_ID = "efgh789";
+    private static final String TEST_EMPLOYEE_FULLNAME = "Bob";
+
+    private static final String TEST_DEPARTMENT_ID = "1A2B3C4D";
+    private static final String TEST_UNKNOWN_DEPARTMENT_ID = "5E6F7A8B";
+
+    @Autowired
+    private AsyncEmployeeService asyncEmployeeService;
+
+    @Autowired
+    private DepartmentCache departmentCache;
+
+    @MockBean
+    private EmployeeService mockEmployeeService;
+
+    @MockBean
+    private EmployeeRepository mockEmployeeRepo;
+
+    @MockBean
+    private DepartmentRepository mockDepartmentRepo;
+
+    @SpyBean
+    private EntityFieldValidator entityFieldValidator;
+
+    @Before
+    public void clearCache() {
+        departmentCache.invalidateAll();
+    }
+
+    @Test
+    public void validateEmployee_runsLookupsConcurrently() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+
+        // Each lookup only returns once the other has started
+        when(mockDepartmentRepo.existsById(TEST_DEPARTMENT_ID)).thenAnswer(
+                invocation -> awaitBoth(bothStarted, true));
+        when(mockEmployeeRepo.existsById(TEST_EMPLOYEE_ID)).thenAnswer(
+                invocation -> awaitBoth(bothStarted, false));
+
+        List<String> errors = asyncEmployeeService
+                .validateEmployee(employee(TEST_EMPLOYEE_ID, TEST_DEPARTMENT_ID))
+                .get(5, TimeUnit.SECONDS);
+
+        assertTrue(errors.isEmpty());
+    }
+
+    @Test
+    public void validateEmployee_reportsEveryProblem() throws Exception {
+        Employee employee = employee(TEST_EMPLOYEE_ID, TEST_UNKNOWN_DEPARTMENT_ID);
+        employee.setFullName("");
+
+        when(mockEmployeeRepo.existsById(TEST_EMPLOYEE_ID)).thenReturn(true);
+
+        List<String> errors = asyncEmployeeService.validateEmployee(employee)
+                                                  .get(5, TimeUnit.SECONDS);
+
+        assertEquals(3, errors.size());
+    }
+
+    @Test
+    public void saveEmployee_looksUpConcurrentlyThenSaves() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Employee employee = employee(TEST_EMPLOYEE_ID, TEST_DEPARTMENT_ID);
+        Employee stored = employee(TEST_EMPLOYEE_ID, TEST_DEPARTMENT_ID);
+
+        // Each lookup only returns once the other has started
+        when(mockDepartmentRepo.existsById(TEST_DEPARTMENT_ID)).thenAnswer(
+                invocation -> awaitBoth(bothStarted, true));
+        when(mockEmployeeRepo.findById(TEST_EMPLOYEE_ID)).thenAnswer(
+                invocation -> Optional.of(awaitBoth(bothStarted, stored)));
+        when(mockEmployeeService.saveEmployee(employee, stored))
+            .thenReturn(employee);
+
+        assertSame(employee, asyncEmployeeService.saveEmployee(employee)
+                                                 .get(5, TimeUnit.SECONDS));
+        verify(mockEmployeeService).saveEmployee(employee, stored);
+    }
+
+    @Test
+    public void saveEmployee_unknownDepartmentFailsWithoutSaving()
+                                                        throws Exception {
+        Employee employee = employee(null, TEST_UNKNOWN_DEPARTMENT_ID);
+
+        try {
+            asyncEmployeeService.saveEmployee(employee).get(5, TimeUnit.SECONDS);
+            fail("expected the save to fail");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof EntityNotFoundException);
+        }
+        verify(mockEmployeeService, never()).saveEmployee(any(), any());
+    }
+
+    @Test
+    public void validateEmployees_reportsErrorsByIndex() throws Exception {
+        Department department = new Department();
+        department.setId(TEST_DEPARTMENT_ID);
+
+        when(mockDepartmentRepo.findAllById(anyIterable()))
+            .thenReturn(Collections.singletonList(department));
+        when(mockEmployeeRepo.findExistingIds(anyCollection()))
+            .thenReturn(new HashSet<>(Arrays.asList(TEST_EMPLOYEE_ID)));
+
+        List<BulkImportError> errors = asyncEmployeeService.validateEmployees(
+                Arrays.asList(employee(null, TEST_DEPARTMENT_ID),
+                              employee(TEST_EMPLOYEE_ID, TEST_DEPARTMENT_ID),
+                              employee(TEST_OTHER_EMPLOYEE_ID,
+                                       TEST_UNKNOWN_DEPARTMENT_ID),
+                              employee(TEST_OTHER_EMPLOYEE_ID,
+                                       TEST_DEPARTMENT_ID)))
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(3, errors.size());
+        assertEquals(1, errors.get(0).getIndex());
+        assertTrue(errors.get(0).getMessage().contains("already exists"));
+        assertEquals(2, errors.get(1).getIndex());
+        assertTrue(errors.get(1).getMessage().contains("department"));
+        assertEquals(3, errors.get(2).getIndex());
+        assertTrue(errors.get(2).getMessage().contains("repeated"));
+    }
+
+    @Test
+    public void lookups_failWhenExecutorIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(mockEmployeeRepo.existsById(TEST_EMPLOYEE_ID)).thenAnswer(
+                invocation -> release.await(5, TimeUnit.SECONDS));
+
+        try {
+            // Two running and two queued fill the executor
+            List<CompletableFuture<Boolean>> pending = Arrays.asList(
+                    asyncEmployeeService.employeeExists(TEST_EMPLOYEE_ID),
+                    asyncEmployeeService.employeeExists(TEST_EMPLOYEE_ID),
+                    asyncEmployeeService.employeeExists(TEST_EMPLOYEE_ID),
+                    asyncEmployeeService.employeeExists(TEST_EMPLOYEE_ID));
+
+            CompletableFuture<Boolean> rejected =
+                    asyncEmployeeService.employeeExists(TEST_EMPLOYEE_ID);
+
+            assertTrue(rejected.isCompletedExceptionally());
+            try {
+                rejected.get();
+                fail("expected the lookup to be rejected");
+            } catch (ExecutionException ex) {
+                assertTrue(ex.getCause() instanceof ServiceBusyException);
+            }
+
+            release.countDown();
+            for (CompletableFuture<Boolean> future : pending) {
+                assertTrue(future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void employeeExists_nullIdIsFalseWithoutLookup() throws Exception {
+        assertFalse(asyncEmployeeService.employeeExists(null).get());
+    }
+
+    private static <T> T awaitBoth(CountDownLatch bothStarted,
+                                   T result) throws InterruptedException {
+        bothStarted.countDown();
+        if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+            throw new AssertionError("lookups did not run concurrently");
+        }
+        return result;
+    }
+
+    private static Employee employee(String id, String departmentId) {
+        Employee employee = new Employee();
+        employee.setId(id);
+        employee.setFullName(TEST_EMPLOYEE_FULLNAME);
+        employee.setDepartmentId(departmentId);
+        return employee;
+    }
+}
@@ -0,0 +1,145 @@
+package com.frankc.training.employee.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.frankc.training.employee.dto.DepartmentSummary;
+import com.frankc.training.employee.entities.Department;
+import com.frankc.training.employee.entities.DepartmentStats;
+import com.frankc.training.employee.repositories.CollectionVersionRepository;
+import com.frankc.training.employee.repositories.DepartmentRepository;
+import com.frankc.training.employee.repositories.DepartmentStatsRepository;
+import com.frankc.training.employee.repositories.EmployeeRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = {DepartmentStatsReconciler.class,
+                                 SimpleMeterRegistry.class})
+public class DepartmentStatsReconcilerTests {
+
+    private static final String TEST_DEPARTMENT_ID = "1A2B3C4D";
+    private static final String TEST_EMPTY_DEPARTMENT_ID = "5E6F7A8B";
+    private static final String TEST_DELETED_DEPARTMENT_ID = "9C0D1E2F";
+
+    @Autowired
+    private DepartmentStatsReconciler reconciler;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockBean
+    private DepartmentRepository mockDepartmentRepo;
+
+    @MockBean
+    private EmployeeRepository mockEmployeeRepo;
+
+    @MockBean
+    private DepartmentStatsRepository mockDepartmentStatsRepo;
+
+    @MockBean
+    private CollectionVersionRepository mockCollectionVersionRepo;
+
+    @Test
+    public void reconcile_correctsDriftedCounters() {
+        when(mockDepartmentRepo.findAll()).thenReturn(Arrays.asList(
+                department(TEST_DEPARTMENT_ID),
+                department(TEST_EMPTY_DEPARTMENT_ID)));
+        when(mockEmployeeRepo.summarizeDepartments()).thenReturn(
+                Collections.singletonList(summary(TEST_DEPARTMENT_ID, 3, 2)));
+        when(mockDepartmentStatsRepo.findAll()).thenReturn(Arrays.asList(
+                new DepartmentStats(TEST_DEPARTMENT_ID, 4, 2),
+                new DepartmentStats(TEST_EMPTY_DEPARTMENT_ID, 0, 0)));
+
+        double driftBefore = meterRegistry.counter(
+                DepartmentStatsReconciler.DRIFT_METRIC_NAME).count();
+
+        List<DepartmentStats> drifted = reconciler.reconcile();
+
+        assertEquals(1, drifted.size());
+        assertEquals(TEST_DEPARTMENT_ID, drifted.get(0).getId());
+        assertEquals(3, drifted.get(0).getHeadcount());
+        assertEquals(2, drifted.get(0).getWithTask());
+        verify(mockDepartmentStatsRepo).saveAll(drifted);
+        verify(mockCollectionVersionRepo).increment(DepartmentService.COLLECTION);
+        assertEquals(driftBefore + 1, meterRegistry.counter(
+                DepartmentStatsReconciler.DRIFT_METRIC_NAME).count(), 0.0);
+    }
+
+    @Test
+    public void reconcile_missingCountersReadAsZero() {
+        when(mockDepartmentRepo.findAll()).thenReturn(Arrays.asList(
+                department(TEST_DEPARTMENT_ID),
+                department(TEST_EMPTY_DEPARTMENT_ID)));
+        when(mockEmployeeRepo.summarizeDepartments()).thenReturn(
+                Collections.singletonList(summary(TEST_DEPARTMENT_ID, 1, 0)));
+
+        List<DepartmentStats> drifted = reconciler.reconcile();
+
+        assertEquals(1, drifted.size());
+        assertEquals(TEST_DEPARTMENT_ID, drifted.get(0).getId());
+        assertEquals(1, drifted.get(0).getHeadcount());
+    }
+
+    @Test
+    public void reconcile_noDriftSavesNothing() {
+        when(mockDepartmentRepo.findAll()).thenReturn(
+                Collections.singletonList(department(TEST_DEPARTMENT_ID)));
+        when(mockEmployeeRepo.summarizeDepartments()).thenReturn(
+                Collections.singletonList(summary(TEST_DEPARTMENT_ID, 2, 1)));
+        when(mockDepartmentStatsRepo.findAll()).thenReturn(
+                Collections.singletonList(
+                        new DepartmentStats(TEST_DEPARTMENT_ID, 2, 1)));
+
+        assertTrue(reconciler.reconcile().isEmpty());
+        verify(mockDepartmentStatsRepo).saveAll(Collections.emptyList());
+        verify(mockCollectionVersionRepo, never()).increment(DepartmentService.COLLECTION);
+        verify(mockDepartmentStatsRepo, never()).deleteById(TEST_DEPARTMENT_ID);
+    }
+
+    @Test
+    public void reconcile_deletesCountersOfDeletedDepartments() {
+        when(mockDepartmentRepo.findAll()).thenReturn(
+                Collections.singletonList(department(TEST_DEPARTMENT_ID)));
+        when(mockDepartmentStatsRepo.findAll()).thenReturn(Arrays.asList(
+                new DepartmentStats(TEST_DEPARTMENT_ID, 0, 0),
+                new DepartmentStats(TEST_DELETED_DEPARTMENT_ID, 5, 1)));
+
+        reconciler.reconcile();
+
+        verify(mockDepartmentStatsRepo).deleteById(TEST_DELETED_DEPARTMENT_ID);
+        verify(mockDepartmentStatsRepo, never()).deleteById(TEST_DEPARTMENT_ID);
+        verify(mockDepartmentStatsRepo).saveAll(anyList());
+    }
+
+    private static Department department(String id) {
+        Department department = new Department();
+        department.setId(id);
+        return department;
+    }
+
+    private static DepartmentSummary summary(String departmentId,
+                                             long headcount, long withTask) {
+        DepartmentSummary summary = new DepartmentSummary();
+        summary.setDepartmentId(departmentId);
+        summary.setHeadcount(headcount);
+        summary.setWithTask(withTask);
+        return summary;
+    }
+}
@@ -2,34 +2,80 @@ package com.frankc.training.employee.services;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
-import static org.mockito.Mockito.doThrow;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.frankc.training.employee.cache.DepartmentCache;
+import com.frankc.training.employee.cache.EmployeeCache;
+import com.frankc.training.employee.changes.ChangeLog;
+import com.frankc.training.employee.dto.BulkImportResult;
+import com.frankc.training.employee.dto.EmployeePatch;
+import com.frankc.training.employee.dto.EmployeeSearch;
+import com.frankc.training.employee.dto.EmployeeSearch.NameMatch;
+import com.frankc.training.employee.entities.CollectionVersion;
+import com.frankc.training.employee.entities.Department;
+import com.frankc.training.employee.entities.DepartmentStats;
 import com.frankc.training.employee.entities.Employee;
 import com.frankc.training.employee.entities.Task;
 import com.frankc.training.employee.exceptions.EntityNotFoundException;
 import com.frankc.training.employee.exceptions.InvalidEntityFieldException;
+import com.frankc.training.employee.exceptions.InvalidPageRequestException;
+import com.frankc.training.employee.exceptions.InvalidSearchException;
+import com.frankc.training.employee.exceptions.PreconditionFailedException;
+import com.frankc.training.employee.exceptions.VersionConflictException;
+import com.frankc.training.employee.index.EmployeeIndex;
+import com.frankc.training.employee.repositories.CollectionVersionRepository;
 import com.frankc.training.employee.repositories.DepartmentRepository;
+import com.frankc.training.employee.repositories.DepartmentStatsRepository;
 import com.frankc.training.employee.repositories.EmployeeRepository;
 import com.frankc.training.employee.util.EntityFieldValidator;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @RunWith(SpringRunner.class)
-@ContextConfiguration(classes = {EmployeeService.class})
+@ContextConfiguration(classes = {EmployeeService.class,
+                                 DepartmentCache.class,
+                                 EmployeeCache.class,
+                                 EmployeeIndex.class,
+                                 ChangeLog.class,
+                                 SimpleMeterRegistry.class})
 public class EmployeeServiceTests {
 
     @Autowired
@@ -41,16 +87,41 @@ public class EmployeeServiceTests {
     @MockBean
     private DepartmentRepository mockDepartmentRepo;
 
+    @MockBean
+    private CollectionVersionRepository mockCollectionVersionRepo;
+
+    @MockBean
+    private DepartmentStatsRepository mockDepartmentStatsRepo;
+
     @SpyBean
     private EntityFieldValidator entityFieldValidator;
 
+    @Autowired
+    private DepartmentCache departmentCache;
+
+    @Autowired
+    private EmployeeCache employeeCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     private static final String TEST_EMPLOYEE_ID = "abcd453";
+    private static final String TEST_OBJECT_ID = "5c4f1e2a9d3b7a0012345678";
     private static final String TEST_EMPLOYEE_FULLNAME = "Bob";
 
     private static final String TEST_TASK_TITLE = "Testing Task";
     private static final String TEST_TASK_DESCRIPTION = "Keep on testing.";
 
     private static final String TEST_DEPARTMENT_ID = "1A2B3C4D";
+    private static final String TEST_OTHER_DEPARTMENT_ID = "5E6F7A8B";
+
+    private static final long TEST_VERSION = 3L;
+
+    @Before
+    public void clearCaches() {
+        departmentCache.invalidateAll();
+        employeeCache.invalidateAll();
+    }
 
     @Test
     public void findAllEmployees_returnsList() {
@@ -62,6 +133,81 @@ public class EmployeeServiceTests {
                    instanceOf(List.class));
     }
 
+    @Test
+    public void collectionVersion_defaultsToZero() {
+        when(mockCollectionVersionRepo.findById(EmployeeService.COLLECTION))
+            .thenReturn(Optional.empty());
+
+        assertEquals(0L, employeeService.collectionVersion());
+    }
+
+    @Test
+    public void collectionVersion_returnsStoredVersion() {
+        CollectionVersion version = new CollectionVersion();
+        version.setId(EmployeeService.COLLECTION);
+        version.setVersion(42L);
+
+        when(mockCollectionVersionRepo.findById(EmployeeService.COLLECTION))
+            .thenReturn(Optional.of(version));
+
+        assertEquals(42L, employeeService.collectionVersion());
+    }
+
+    @Test
+    public void findEmployeesPage_firstPageUsesDefaultSize() {
+        Pageable expected = PageRequest.of(0, 100, Sort.by("id"));
+        when(mockEmployeeRepo.findAllBy(expected))
+            .thenReturn(new SliceImpl<Employee>(new ArrayList<Employee>()));
+
+        Slice<Employee> page = employeeService.findEmployeesPage(null, null);
+
+        assertTrue("first page should be empty", page.getContent().isEmpty());
+        verify(mockEmployeeRepo).findAllBy(expected);
+    }
+
+    @Test
+    public void findEmployeesPage_continuesAfterGivenId() {
+        Pageable expected = PageRequest.of(0, 10, Sort.by("id"));
+        when(mockEmployeeRepo.findByIdGreaterThan(eq(TEST_OBJECT_ID),
+                                                  eq(expected)))
+            .thenReturn(new SliceImpl<Employee>(new ArrayList<Employee>()));
+
+        employeeService.findEmployeesPage(TEST_OBJECT_ID, 10);
+
+        verify(mockEmployeeRepo).findByIdGreaterThan(TEST_OBJECT_ID,
+                                                     expected);
+    }
+
+    @Test
+    public void findEmployeesPage_afterNonObjectIdContinuesIntoObjectIds() {
+        Pageable expected = PageRequest.of(0, 10, Sort.by("id"));
+        when(mockEmployeeRepo.findAfterNonObjectId(eq(TEST_EMPLOYEE_ID),
+                                                   eq(expected)))
+            .thenReturn(new SliceImpl<Employee>(new ArrayList<Employee>()));
+
+        employeeService.findEmployeesPage(TEST_EMPLOYEE_ID, 10);
+
+        verify(mockEmployeeRepo).findAfterNonObjectId(TEST_EMPLOYEE_ID,
+                                                      expected);
+        verify(mockEmployeeRepo, never()).findByIdGreaterThan(any(), any());
+    }
+
+    @Test
+    public void findEmployeesPage_sizeIsCappedAtMaximum() {
+        Pageable expected = PageRequest.of(0, 1000, Sort.by("id"));
+        when(mockEmployeeRepo.findAllBy(expected))
+            .thenReturn(new SliceImpl<Employee>(new ArrayList<Employee>()));
+
+        employeeService.findEmployeesPage(null, 1000000);
+
+        verify(mockEmployeeRepo).findAllBy(expected);
+    }
+
+    @Test(expected = InvalidPageRequestException.class)
+    public void findEmployeesPage_zeroSizeThrowsInvalidPageRequest() {
+        employeeService.findEmployeesPage(null, 0);
+    }
+
     @Test
     public void findEmployee_returnsEmployee() {
         Employee testEmployee = new Employee();
@@ -99,6 +245,54 @@ public class EmployeeServiceTests {
         employeeService.findEmployee(TEST_EMPLOYEE_ID);
     }
 
+    @Test
+    public void findEmployee_repeatedLookupIsCached() {
+        Employee testEmployee = new Employee();
+        testEmployee.setId(TEST_EMPLOYEE_ID);
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+
+        when(mockEmployeeRepo.findById(TEST_EMPLOYEE_ID))
+             .thenReturn(Optional.of(testEmployee));
+
+        employeeService.findEmployee(TEST_EMPLOYEE_ID);
+        employeeService.findEmployee(TEST_EMPLOYEE_ID);
+
+        verify(mockEmployeeRepo, times(1)).findById(TEST_EMPLOYEE_ID);
+    }
+
+    @Test
+    public void findEmployee_unknownIdIsCached() {
+        when(mockEmployeeRepo.findById(TEST_EMPLOYEE_ID))
+             .thenReturn(Optional.empty());
+
+        for (int i = 0; i < 2; ++i) {
+            try {
+                employeeService.findEmployee(TEST_EMPLOYEE_ID);
+            } catch (EntityNotFoundException ex) {
+                // expected
+            }
+        }
+
+        verify(mockEmployeeRepo, times(1)).findById(TEST_EMPLOYEE_ID);
+    }
+
+    @Test
+    public void deleteEmployee_invalidatesCache() {
+        Employee testEmployee = new Employee();
+        testEmployee.setId(TEST_EMPLOYEE_ID);
+
+        when(mockEmployeeRepo.findById(TEST_EMPLOYEE_ID))
+             .thenReturn(Optional.of(testEmployee));
+        when(mockEmployeeRepo.removeById(TEST_EMPLOYEE_ID))
+             .thenReturn(testEmployee);
+
+        employeeService.findEmployee(TEST_EMPLOYEE_ID);
+        employeeService.deleteEmployee(TEST_EMPLOYEE_ID);
+        employeeService.findEmployee(TEST_EMPLOYEE_ID);
+
+        verify(mockEmployeeRepo, times(2)).findById(TEST_EMPLOYEE_ID);
+    }
+
     @Test
     public void createEmployee_returnsEmployee() {
         Employee testEmployee = new Employee();
@@ -129,6 +323,7 @@ public class EmployeeServiceTests {
         assertEquals("findEmployee should return correct data",
                      savedEmployee.getDepartmentId(),
                      TEST_DEPARTMENT_ID);
+        verify(mockCollectionVersionRepo).increment(EmployeeService.COLLECTION);
     }
 
 
@@ -163,6 +358,176 @@ public class EmployeeServiceTests {
         employeeService.saveEmployee(testEmployee);
     }
 
+    @Test
+    public void importEmployees_reportsInvalidRecords() {
+        Employee valid = new Employee();
+        valid.setFullName(TEST_EMPLOYEE_FULLNAME);
+        valid.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        Employee unknownDepartment = new Employee();
+        unknownDepartment.setFullName(TEST_EMPLOYEE_FULLNAME);
+        unknownDepartment.setDepartmentId("unknown");
+
+        Employee noName = new Employee();
+        noName.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        Department testDepartment = new Department();
+        testDepartment.setId(TEST_DEPARTMENT_ID);
+
+        when(mockDepartmentRepo.findAllById(anySet()))
+            .thenReturn(Arrays.asList(testDepartment));
+        when(mockEmployeeRepo.insertUnordered(anyList()))
+            .thenReturn(Collections.emptyMap());
+
+        BulkImportResult result = employeeService.importEmployees(
+                Arrays.asList(valid, unknownDepartment, noName).iterator());
+
+        assertEquals("all records should be counted", 3, result.getReceived());
+        assertEquals("only valid records should be inserted",
+                     1, result.getInserted());
+        assertEquals("invalid records should be reported",
+                     2, result.getErrors().size());
+        assertEquals("errors should carry input index",
+                     1, result.getErrors().get(0).getIndex());
+        assertEquals("errors should carry input index",
+                     2, result.getErrors().get(1).getIndex());
+        verify(mockEmployeeRepo).insertUnordered(Arrays.asList(valid));
+    }
+
+    @Test
+    public void findDepartmentEmployeesPage_usesDepartmentQueries() {
+        Slice<Employee> page = new SliceImpl<>(new ArrayList<Employee>());
+        PageRequest pageRequest = PageRequest.of(0, 10, Sort.by("id"));
+
+        when(mockEmployeeRepo.findByDepartmentId(TEST_DEPARTMENT_ID, pageRequest))
+            .thenReturn(page);
+        when(mockEmployeeRepo.findByDepartmentIdAndIdGreaterThan(
+                    TEST_DEPARTMENT_ID, TEST_OBJECT_ID, pageRequest))
+            .thenReturn(page);
+        when(mockEmployeeRepo.findByDepartmentIdAfterNonObjectId(
+                    TEST_DEPARTMENT_ID, TEST_EMPLOYEE_ID, pageRequest))
+            .thenReturn(page);
+
+        assertEquals(page, employeeService.findDepartmentEmployeesPage(
+                                TEST_DEPARTMENT_ID, null, 10));
+        assertEquals(page, employeeService.findDepartmentEmployeesPage(
+                                TEST_DEPARTMENT_ID, TEST_OBJECT_ID, 10));
+        assertEquals(page, employeeService.findDepartmentEmployeesPage(
+                                TEST_DEPARTMENT_ID, TEST_EMPLOYEE_ID, 10));
+    }
+
+    @Test
+    public void searchEmployees_usesDefaultPageSize() {
+        EmployeeSearch search = new EmployeeSearch(
+                TEST_EMPLOYEE_FULLNAME, NameMatch.IGNORE_CASE, null,
+                Arrays.asList("id", "fullName"));
+        Slice<Employee> page = new SliceImpl<>(new ArrayList<Employee>());
+
+        when(mockEmployeeRepo.search(search, TEST_EMPLOYEE_ID, 100))
+            .thenReturn(page);
+
+        assertEquals(page, employeeService.searchEmployees(
+                                search, TEST_EMPLOYEE_ID, null));
+    }
+
+    @Test(expected = InvalidSearchException.class)
+    public void searchEmployees_requiresName() {
+        employeeService.searchEmployees(
+                new EmployeeSearch("", NameMatch.EXACT, null,
+                                   Collections.<String>emptyList()),
+                null, null);
+    }
+
+    @Test(expected = InvalidSearchException.class)
+    public void searchEmployees_rejectsUnknownField() {
+        employeeService.searchEmployees(
+                new EmployeeSearch(TEST_EMPLOYEE_FULLNAME, NameMatch.EXACT, null,
+                                   Arrays.asList("salary")),
+                null, null);
+    }
+
+    @Test
+    public void importEmployees_countsRecords() {
+        Employee valid = new Employee();
+        valid.setFullName(TEST_EMPLOYEE_FULLNAME);
+        valid.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        Employee noName = new Employee();
+        noName.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        Department testDepartment = new Department();
+        testDepartment.setId(TEST_DEPARTMENT_ID);
+
+        when(mockDepartmentRepo.findAllById(anySet()))
+            .thenReturn(Arrays.asList(testDepartment));
+        when(mockEmployeeRepo.insertUnordered(anyList()))
+            .thenReturn(Collections.emptyMap());
+
+        double inserted = importCount("inserted");
+        double rejected = importCount("rejected");
+
+        employeeService.importEmployees(
+                Arrays.asList(valid, noName).iterator());
+
+        assertEquals("inserted records should be counted",
+                     inserted + 1, importCount("inserted"), 0);
+        assertEquals("rejected records should be counted",
+                     rejected + 1, importCount("rejected"), 0);
+    }
+
+    @Test
+    public void importEmployees_malformedRecordReturnsResultSoFar()
+                                                        throws Exception {
+        Department testDepartment = new Department();
+        testDepartment.setId(TEST_DEPARTMENT_ID);
+
+        when(mockDepartmentRepo.findAllById(anySet()))
+            .thenReturn(Arrays.asList(testDepartment));
+        when(mockEmployeeRepo.insertUnordered(anyList()))
+            .thenReturn(Collections.emptyMap());
+
+        String line = "{\"fullName\": \"" + TEST_EMPLOYEE_FULLNAME
+                      + "\", \"departmentId\": \"" + TEST_DEPARTMENT_ID + "\"}";
+        MappingIterator<Employee> employees = new ObjectMapper()
+                .readerFor(Employee.class)
+                .readValues(line + "\n" + line + "\n{\"fullName\": \n" + line);
+
+        BulkImportResult result = employeeService.importEmployees(employees);
+
+        assertEquals(3, result.getReceived());
+        assertEquals(2, result.getInserted());
+        assertEquals(1, result.getErrors().size());
+        assertEquals(2, result.getErrors().get(0).getIndex());
+        verify(mockEmployeeRepo).insertUnordered(argThat(list -> list.size() == 2));
+    }
+
+    @Test
+    public void importEmployees_reportsFailedInserts() {
+        Employee first = new Employee();
+        first.setFullName(TEST_EMPLOYEE_FULLNAME);
+        first.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        Employee second = new Employee();
+        second.setFullName(TEST_EMPLOYEE_FULLNAME);
+        second.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        Department testDepartment = new Department();
+        testDepartment.setId(TEST_DEPARTMENT_ID);
+
+        when(mockDepartmentRepo.findAllById(anySet()))
+            .thenReturn(Arrays.asList(testDepartment));
+        when(mockEmployeeRepo.insertUnordered(anyList()))
+            .thenReturn(Collections.singletonMap(1, "duplicate key"));
+
+        BulkImportResult result = employeeService.importEmployees(
+                Arrays.asList(first, second).iterator());
+
+        assertEquals("failed insert should not be counted",
+                     1, result.getInserted());
+        assertEquals("failed insert should be reported",
+                     1, result.getErrors().get(0).getIndex());
+    }
+
     @Test
     public void updateEmployee_returnsEmployee() {
         Employee testEmployee = new Employee();
@@ -175,16 +540,19 @@ public class EmployeeServiceTests {
         testTask.setDescription(TEST_TASK_DESCRIPTION);
         testEmployee.setCurrentTask(testTask);
 
-        when(mockEmployeeRepo.existsById(TEST_EMPLOYEE_ID))
-            .thenReturn(true);
         when(mockDepartmentRepo.existsById(TEST_DEPARTMENT_ID))
             .thenReturn(true);
-        when(mockEmployeeRepo.save(isA(Employee.class)))
+        when(mockEmployeeRepo.patch(eq(TEST_EMPLOYEE_ID), isNull(), anyMap()))
              .thenReturn(testEmployee);
 
         Employee savedEmployee = employeeService.updateEmployee(
                                             testEmployee);
 
+        verify(mockEmployeeRepo, never()).findById(TEST_EMPLOYEE_ID);
+        verify(mockEmployeeRepo, never()).existsById(TEST_EMPLOYEE_ID);
+        verify(mockEmployeeRepo, never()).save(isA(Employee.class));
+        assertEquals(testTask, savedEmployee.getCurrentTask());
+
         assertThat("saveEmployee should return Employee",
                    savedEmployee, instanceOf(Employee.class));
         assertEquals("findByEmployeePath should return correct data",
@@ -205,8 +573,10 @@ public class EmployeeServiceTests {
         testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
         testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
 
-        when(mockEmployeeRepo.existsById(TEST_DEPARTMENT_ID))
-             .thenReturn(false);
+        when(mockDepartmentRepo.existsById(TEST_DEPARTMENT_ID))
+            .thenReturn(true);
+        when(mockEmployeeRepo.patch(eq(TEST_EMPLOYEE_ID), isNull(), anyMap()))
+             .thenReturn(null);
         employeeService.updateEmployee(testEmployee);
     }
 
@@ -220,15 +590,343 @@ public class EmployeeServiceTests {
 
     @Test
     public void deleteEmployee_noErrors() {
+        Employee testEmployee = new Employee();
+        testEmployee.setId(TEST_EMPLOYEE_ID);
+
+        when(mockEmployeeRepo.removeById(TEST_EMPLOYEE_ID))
+             .thenReturn(testEmployee);
+
         employeeService.deleteEmployee(TEST_EMPLOYEE_ID);
     }
 
     @Test(expected = EntityNotFoundException.class)
     public void deletEmployee_unknownThrowsNotFound() {
-        doThrow(new IllegalArgumentException())
-        .when(mockEmployeeRepo)
-        .deleteById(TEST_EMPLOYEE_ID);
+        when(mockEmployeeRepo.removeById(TEST_EMPLOYEE_ID))
+             .thenReturn(null);
 
         employeeService.deleteEmployee(TEST_EMPLOYEE_ID);
     }
+
+    @Test
+    public void createEmployee_countsInDepartment() {
+        Employee testEmployee = new Employee();
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+        testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
+        testEmployee.setCurrentTask(new Task());
+
+        when(mockDepartmentRepo.existsById(TEST_DEPARTMENT_ID))
+            .thenReturn(true);
+        when(mockEmployeeRepo.save(testEmployee))
+             .thenReturn(testEmployee);
+
+        employeeService.saveEmployee(testEmployee);
+
+        verify(mockDepartmentStatsRepo).adjust(TEST_DEPARTMENT_ID, 1, 1);
+    }
+
+    @Test
+    public void updateEmployee_movesCountsBetweenDepartments() {
+        Employee previous = new Employee();
+        previous.setId(TEST_EMPLOYEE_ID);
+        previous.setFullName(TEST_EMPLOYEE_FULLNAME);
+        previous.setDepartmentId(TEST_OTHER_DEPARTMENT_ID);
+        previous.setCurrentTask(new Task());
+
+        Employee moved = new Employee();
+        moved.setId(TEST_EMPLOYEE_ID);
+        moved.setFullName(TEST_EMPLOYEE_FULLNAME);
+        moved.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        when(mockDepartmentRepo.existsById(TEST_DEPARTMENT_ID))
+            .thenReturn(true);
+        when(mockEmployeeRepo.patch(eq(TEST_EMPLOYEE_ID), isNull(), anyMap()))
+             .thenReturn(previous);
+
+        employeeService.updateEmployee(moved);
+
+        verifyMoved(TEST_OTHER_DEPARTMENT_ID, -1, TEST_DEPARTMENT_ID, 0);
+    }
+
+    @Test
+    public void updateEmployee_sameDepartmentCountsTaskChange() {
+        Employee previous = new Employee();
+        previous.setId(TEST_EMPLOYEE_ID);
+        previous.setFullName(TEST_EMPLOYEE_FULLNAME);
+        previous.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        Employee updated = new Employee();
+        updated.setId(TEST_EMPLOYEE_ID);
+        updated.setFullName(TEST_EMPLOYEE_FULLNAME);
+        updated.setDepartmentId(TEST_DEPARTMENT_ID);
+        updated.setCurrentTask(new Task());
+
+        when(mockDepartmentRepo.existsById(TEST_DEPARTMENT_ID))
+            .thenReturn(true);
+        when(mockEmployeeRepo.patch(eq(TEST_EMPLOYEE_ID), isNull(), anyMap()))
+             .thenReturn(previous);
+
+        employeeService.updateEmployee(updated);
+
+        verify(mockDepartmentStatsRepo).adjust(TEST_DEPARTMENT_ID, 0, 1);
+    }
+
+    @Test
+    public void deleteEmployee_uncountsFromDepartment() {
+        Employee removed = new Employee();
+        removed.setId(TEST_EMPLOYEE_ID);
+        removed.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        when(mockEmployeeRepo.removeById(TEST_EMPLOYEE_ID))
+             .thenReturn(removed);
+
+        employeeService.deleteEmployee(TEST_EMPLOYEE_ID);
+
+        verify(mockDepartmentStatsRepo).adjust(TEST_DEPARTMENT_ID, -1, 0);
+    }
+
+    private double importCount(String result) {
+        return meterRegistry.counter(EmployeeService.IMPORT_METRIC_NAME,
+                                     "result", result).count();
+    }
+
+    /**
+     * Check both Departments' counters changed in a single adjustAll.
+     */
+    private void verifyMoved(String from, long fromWithTask,
+                             String to, long toWithTask) {
+        verify(mockDepartmentStatsRepo).adjustAll(argThat(changes -> {
+            List<DepartmentStats> list = new ArrayList<>(changes);
+            return list.size() == 2
+                    && from.equals(list.get(0).getId())
+                    && list.get(0).getHeadcount() == -1
+                    && list.get(0).getWithTask() == fromWithTask
+                    && to.equals(list.get(1).getId())
+                    && list.get(1).getHeadcount() == 1
+                    && list.get(1).getWithTask() == toWithTask;
+        }));
+        verify(mockDepartmentStatsRepo, never()).adjust(any(), anyLong(),
+                                                        anyLong());
+    }
+
+    @Test
+    public void patchEmployee_setsOnlyPatchedFields() {
+        Employee previous = new Employee();
+        previous.setId(TEST_EMPLOYEE_ID);
+        previous.setFullName(TEST_EMPLOYEE_FULLNAME);
+        previous.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        Task testTask = new Task();
+        EmployeePatch patch = new EmployeePatch()
+                                .set(EmployeePatch.CURRENT_TASK, testTask);
+
+        when(mockEmployeeRepo.patch(TEST_EMPLOYEE_ID, null, patch.getChanges()))
+             .thenReturn(previous);
+
+        Employee patched = employeeService.patchEmployee(TEST_EMPLOYEE_ID,
+                                                         patch);
+
+        assertEquals(TEST_EMPLOYEE_FULLNAME, patched.getFullName());
+        assertEquals(TEST_DEPARTMENT_ID, patched.getDepartmentId());
+        assertEquals(testTask, patched.getCurrentTask());
+        verify(mockDepartmentStatsRepo).adjust(TEST_DEPARTMENT_ID, 0, 1);
+        verify(mockCollectionVersionRepo).increment(EmployeeService.COLLECTION);
+        verify(mockEmployeeRepo, never()).findById(TEST_EMPLOYEE_ID);
+        verify(mockEmployeeRepo, never()).save(isA(Employee.class));
+    }
+
+    @Test
+    public void patchEmployee_movesCountsBetweenDepartments() {
+        Employee previous = new Employee();
+        previous.setId(TEST_EMPLOYEE_ID);
+        previous.setFullName(TEST_EMPLOYEE_FULLNAME);
+        previous.setDepartmentId(TEST_OTHER_DEPARTMENT_ID);
+
+        EmployeePatch patch = new EmployeePatch()
+                                .set(EmployeePatch.DEPARTMENT_ID,
+                                     TEST_DEPARTMENT_ID);
+
+        when(mockDepartmentRepo.existsById(TEST_DEPARTMENT_ID))
+            .thenReturn(true);
+        when(mockEmployeeRepo.patch(TEST_EMPLOYEE_ID, null, patch.getChanges()))
+             .thenReturn(previous);
+
+        Employee patched = employeeService.patchEmployee(TEST_EMPLOYEE_ID,
+                                                         patch);
+
+        assertEquals(TEST_DEPARTMENT_ID, patched.getDepartmentId());
+        verifyMoved(TEST_OTHER_DEPARTMENT_ID, 0, TEST_DEPARTMENT_ID, 0);
+    }
+
+    @Test(expected = EntityNotFoundException.class)
+    public void patchEmployee_unknownEmployeeThrowsNotFound() {
+        employeeService.patchEmployee(TEST_EMPLOYEE_ID, new EmployeePatch()
+                                .set(EmployeePatch.CURRENT_TASK, null));
+    }
+
+    @Test(expected = EntityNotFoundException.class)
+    public void patchEmployee_invalidDepartmentThrowsNotFound() {
+        when(mockDepartmentRepo.existsById(TEST_DEPARTMENT_ID))
+            .thenReturn(false);
+
+        employeeService.patchEmployee(TEST_EMPLOYEE_ID, new EmployeePatch()
+                                .set(EmployeePatch.DEPARTMENT_ID,
+                                     TEST_DEPARTMENT_ID));
+    }
+
+    @Test
+    public void patchEmployee_invalidNameWritesNothing() {
+        try {
+            employeeService.patchEmployee(TEST_EMPLOYEE_ID, new EmployeePatch()
+                                .set(EmployeePatch.FULL_NAME, null));
+        } catch (InvalidEntityFieldException ex) {
+            verify(mockEmployeeRepo, never()).patch(eq(TEST_EMPLOYEE_ID),
+                                                    any(), anyMap());
+            return;
+        }
+        throw new AssertionError("Expected InvalidEntityFieldException");
+    }
+
+    @Test(expected = InvalidEntityFieldException.class)
+    public void patchEmployee_unknownFieldThrowsInvalid() {
+        employeeService.patchEmployee(TEST_EMPLOYEE_ID, new EmployeePatch()
+                                .set("id", "other"));
+    }
+
+    @Test
+    public void updateEmployee_withoutVersionIsUnconditional() {
+        Employee previous = new Employee();
+        previous.setId(TEST_EMPLOYEE_ID);
+        previous.setDepartmentId(TEST_DEPARTMENT_ID);
+        previous.setVersion(TEST_VERSION);
+
+        Employee testEmployee = new Employee();
+        testEmployee.setId(TEST_EMPLOYEE_ID);
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+        testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        when(mockDepartmentRepo.existsById(TEST_DEPARTMENT_ID))
+            .thenReturn(true);
+        when(mockEmployeeRepo.patch(eq(TEST_EMPLOYEE_ID), isNull(), anyMap()))
+             .thenReturn(previous);
+
+        Employee updated = employeeService.updateEmployee(testEmployee);
+
+        assertEquals(Long.valueOf(TEST_VERSION + 1), updated.getVersion());
+    }
+
+    @Test
+    public void updateEmployee_replacesEveryField() {
+        Employee previous = new Employee();
+        previous.setId(TEST_EMPLOYEE_ID);
+        previous.setDepartmentId(TEST_DEPARTMENT_ID);
+        previous.setCurrentTask(new Task());
+
+        Employee testEmployee = new Employee();
+        testEmployee.setId(TEST_EMPLOYEE_ID);
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+        testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        when(mockDepartmentRepo.existsById(TEST_DEPARTMENT_ID))
+            .thenReturn(true);
+        when(mockEmployeeRepo.patch(eq(TEST_EMPLOYEE_ID), isNull(), anyMap()))
+             .thenReturn(previous);
+
+        Employee updated = employeeService.updateEmployee(testEmployee);
+
+        assertEquals(null, updated.getCurrentTask());
+        verify(mockEmployeeRepo).patch(eq(TEST_EMPLOYEE_ID), isNull(),
+                argThat(changes -> changes.size() == 3
+                        && changes.containsKey(EmployeePatch.CURRENT_TASK)
+                        && changes.get(EmployeePatch.CURRENT_TASK) == null
+                        && TEST_EMPLOYEE_FULLNAME.equals(
+                                changes.get(EmployeePatch.FULL_NAME))));
+        verify(mockDepartmentStatsRepo).adjust(TEST_DEPARTMENT_ID, 0, -1);
+    }
+
+    @Test(expected = PreconditionFailedException.class)
+    public void updateEmployee_staleIfMatchThrowsPreconditionFailed() {
+        Employee testEmployee = new Employee();
+        testEmployee.setId(TEST_EMPLOYEE_ID);
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+        testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        when(mockDepartmentRepo.existsById(TEST_DEPARTMENT_ID))
+            .thenReturn(true);
+        when(mockEmployeeRepo.patch(eq(TEST_EMPLOYEE_ID), eq(TEST_VERSION),
+                                    anyMap()))
+             .thenReturn(null);
+        when(mockEmployeeRepo.existsById(TEST_EMPLOYEE_ID))
+             .thenReturn(true);
+
+        employeeService.updateEmployee(testEmployee, TEST_VERSION);
+    }
+
+    @Test(expected = VersionConflictException.class)
+    public void updateEmployee_staleBodyVersionThrowsConflict() {
+        Employee testEmployee = new Employee();
+        testEmployee.setId(TEST_EMPLOYEE_ID);
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+        testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
+        testEmployee.setVersion(TEST_VERSION);
+
+        when(mockDepartmentRepo.existsById(TEST_DEPARTMENT_ID))
+            .thenReturn(true);
+        when(mockEmployeeRepo.patch(eq(TEST_EMPLOYEE_ID), eq(TEST_VERSION),
+                                    anyMap()))
+             .thenReturn(null);
+        when(mockEmployeeRepo.existsById(TEST_EMPLOYEE_ID))
+             .thenReturn(true);
+
+        employeeService.updateEmployee(testEmployee);
+    }
+
+    @Test(expected = EntityNotFoundException.class)
+    public void updateEmployee_unknownWithVersionThrowsNotFound() {
+        Employee testEmployee = new Employee();
+        testEmployee.setId(TEST_EMPLOYEE_ID);
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+        testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        when(mockDepartmentRepo.existsById(TEST_DEPARTMENT_ID))
+            .thenReturn(true);
+        when(mockEmployeeRepo.existsById(TEST_EMPLOYEE_ID))
+             .thenReturn(false);
+
+        employeeService.updateEmployee(testEmployee, TEST_VERSION);
+    }
+
+    @Test(expected = VersionConflictException.class)
+    public void saveEmployee_concurrentSaveThrowsConflict() {
+        Employee previous = new Employee();
+        previous.setId(TEST_EMPLOYEE_ID);
+        previous.setVersion(TEST_VERSION);
+
+        Employee testEmployee = new Employee();
+        testEmployee.setId(TEST_EMPLOYEE_ID);
+        testEmployee.setFullName(TEST_EMPLOYEE_FULLNAME);
+        testEmployee.setDepartmentId(TEST_DEPARTMENT_ID);
+
+        when(mockEmployeeRepo.findById(TEST_EMPLOYEE_ID))
+            .thenReturn(Optional.of(previous));
+        when(mockDepartmentRepo.existsById(TEST_DEPARTMENT_ID))
+            .thenReturn(true);
+        when(mockEmployeeRepo.save(testEmployee))
+             .thenThrow(new OptimisticLockingFailureException("version changed"));
+
+        employeeService.saveEmployee(testEmployee);
+    }
+
+    @Test(expected = PreconditionFailedException.class)
+    public void patchEmployee_staleIfMatchThrowsPreconditionFailed() {
+        EmployeePatch patch = new EmployeePatch()
+                                .set(EmployeePatch.CURRENT_TASK, null);
+
+        when(mockEmployeeRepo.patch(TEST_EMPLOYEE_ID, TEST_VERSION,
+                                    patch.getChanges()))
+             .thenReturn(null);
+        when(mockEmployeeRepo.existsById(TEST_EMPLOYEE_ID))
+             .thenReturn(true);
+
+        employeeService.patchEmployee(TEST_EMPLOYEE_ID, patch, TEST_VERSION);
+    }
 }
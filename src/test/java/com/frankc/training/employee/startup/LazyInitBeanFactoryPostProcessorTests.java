@@ -0,0 +1,60 @@
+package com.frankc.training.employee.startup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.support.GenericApplicationContext;
+
+public class LazyInitBeanFactoryPostProcessorTests {
+
+    private static final List<String> created = new ArrayList<>();
+
+    public static class Eager {
+        public Eager() {
+            created.add("eager");
+        }
+    }
+
+    public static class Lazy {
+        public Lazy() {
+            created.add("lazy");
+        }
+    }
+
+    public static class Infrastructure {
+        public Infrastructure() {
+            created.add("infrastructure");
+        }
+    }
+
+    @Test
+    public void postProcess_defersAllButEagerAndInfrastructureBeans() {
+        created.clear();
+
+        RootBeanDefinition infrastructure = new RootBeanDefinition(Infrastructure.class);
+        infrastructure.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+
+        try (GenericApplicationContext context = new GenericApplicationContext()) {
+            context.registerBeanDefinition("eager", new RootBeanDefinition(Eager.class));
+            context.registerBeanDefinition("lazy", new RootBeanDefinition(Lazy.class));
+            context.registerBeanDefinition("infrastructure", infrastructure);
+            context.addBeanFactoryPostProcessor(
+                    new LazyInitBeanFactoryPostProcessor(Eager.class));
+            context.refresh();
+
+            assertTrue(created.contains("eager"));
+            assertTrue(created.contains("infrastructure"));
+            assertFalse(created.contains("lazy"));
+
+            context.getBean(Lazy.class);
+            assertEquals(3, created.size());
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.frankc.training.employee.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.frankc.training.employee.cache.DepartmentCache;
+import com.frankc.training.employee.cache.EmployeeCache;
+import com.frankc.training.employee.changes.ChangeLog;
+import com.frankc.training.employee.dto.DepartmentSummary;
+import com.frankc.training.employee.dto.EmployeePatch;
+import com.frankc.training.employee.dto.EmployeeSearch;
+import com.frankc.training.employee.dto.EmployeeSearch.NameMatch;
+import com.frankc.training.employee.dto.EntityChange;
+import com.frankc.training.employee.entities.Department;
+import com.frankc.training.employee.entities.Employee;
+import com.frankc.training.employee.entities.Task;
+import com.frankc.training.employee.exceptions.DepartmentNotEmptyException;
+import com.frankc.training.employee.exceptions.DuplicateDepartmentException;
+import com.frankc.training.employee.exceptions.EntityNotFoundException;
+import com.frankc.training.employee.exceptions.PreconditionFailedException;
+import com.frankc.training.employee.exceptions.VersionConflictException;
+import com.frankc.training.employee.index.EmployeeIndex;
+import com.frankc.training.employee.repositories.CollectionVersionRepository;
+import com.frankc.training.employee.repositories.DepartmentRepository;
+import com.frankc.training.employee.repositories.DepartmentStatsRepository;
+import com.frankc.training.employee.repositories.EmployeeRepository;
+import com.frankc.training.employee.services.DepartmentService;
+import com.frankc.training.employee.services.EmployeeService;
+import com.frankc.training.employee.util.ETags;
+import com.frankc.training.employee.util.EntityFieldValidator;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * The services over the embedded store, checking the repositories behave
+ * as the Mongo ones do where the services depend on it.
+ */
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = {LogStoreConfig.class,
+                                 EmployeeService.class,
+                                 DepartmentService.class,
+                                 DepartmentCache.class,
+                                 EmployeeCache.class,
+                                 EmployeeIndex.class,
+                                 ChangeLog.class,
+                                 EntityFieldValidator.class,
+                                 SimpleMeterRegistry.class})
+@ActiveProfiles("embedded-store")
+@TestPropertySource(properties = "store.directory=target/embedded-store-tests")
+public class EmbeddedStoreServiceTests {
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private DepartmentService departmentService;
+
+    @Autowired
+    private EmployeeRepository employeeRepo;
+
+    @Autowired
+    private DepartmentRepository departmentRepo;
+
+    @Autowired
+    private DepartmentStatsRepository departmentStatsRepo;
+
+    @Autowired
+    private CollectionVersionRepository collectionVersionRepo;
+
+    @Autowired
+    private EmployeeCache employeeCache;
+
+    @Autowired
+    private DepartmentCache departmentCache;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    private Department department;
+
+    @Before
+    public void clearStore() {
+        employeeRepo.deleteAll();
+        departmentRepo.deleteAll();
+        departmentStatsRepo.deleteAll();
+        collectionVersionRepo.deleteAll();
+        employeeCache.invalidateAll();
+        departmentCache.invalidateAll();
+
+        department = new Department();
+        department.setName("Engineering");
+        department = departmentService.saveDepartment(department);
+    }
+
+    @Test
+    public void saveEmployee_isFoundWithVersionAndCounted() {
+        Employee saved = employeeService.saveEmployee(employee("Bob"));
+
+        assertEquals(Long.valueOf(0), saved.getVersion());
+        assertEquals("Bob", employeeService.findEmployee(saved.getId()).getFullName());
+        assertEquals(1, departmentService.findDepartment(department.getId())
+                                         .getStats().getHeadcount());
+        assertEquals(1, employeeService.collectionVersion());
+    }
+
+    @Test
+    public void writes_areRecordedInChangeLog() {
+        long before = changeLog.latest();
+
+        Employee saved = employeeService.saveEmployee(employee("Bob"));
+        saved.setFullName("Robert");
+        employeeService.updateEmployee(saved);
+        employeeService.deleteEmployee(saved.getId());
+        departmentService.deleteDepartment(department.getId());
+
+        List<EntityChange> changes = changeLog.readAfter(before, 10);
+        assertEquals(4, changes.size());
+        assertEquals(EntityChange.Type.CREATED, changes.get(0).getType());
+        assertEquals(saved.getId(), changes.get(0).getId());
+        assertEquals(EntityChange.Type.UPDATED, changes.get(1).getType());
+        assertEquals("Robert", ((Employee) changes.get(1).getEntity())
+                                                    .getFullName());
+        assertEquals(EntityChange.Type.DELETED, changes.get(2).getType());
+        assertEquals(DepartmentService.COLLECTION,
+                     changes.get(3).getCollection());
+        assertEquals(EntityChange.Type.DELETED, changes.get(3).getType());
+    }
+
+    @Test(expected = EntityNotFoundException.class)
+    public void findEmployee_unknownIdThrows() {
+        employeeService.findEmployee("nosuchid");
+    }
+
+    @Test(expected = EntityNotFoundException.class)
+    public void deleteEmployee_unknownIdThrows() {
+        employeeService.deleteEmployee("nosuchid");
+    }
+
+    @Test
+    public void deleteDepartment_unknownIdChangesNothing() {
+        long before = changeLog.latest();
+        long version = departmentService.collectionVersion();
+
+        try {
+            departmentService.deleteDepartment("nosuchid");
+            throw new AssertionError("Expected EntityNotFoundException");
+        } catch (EntityNotFoundException ex) {
+            assertTrue(changeLog.readAfter(before, 10).isEmpty());
+            assertEquals(version, departmentService.collectionVersion());
+        }
+    }
+
+    @Test
+    public void deleteDepartment_withEmployeesConflictsAndKeepsStats() {
+        employeeService.saveEmployee(employee("Bob"));
+
+        try {
+            departmentService.deleteDepartment(department.getId());
+            throw new AssertionError("Expected DepartmentNotEmptyException");
+        } catch (DepartmentNotEmptyException ex) {
+            assertEquals(1, departmentService.findDepartment(department.getId())
+                                             .getStats().getHeadcount());
+        }
+    }
+
+    @Test
+    public void updateEmployee_staleVersionConflicts() {
+        Employee saved = employeeService.saveEmployee(employee("Bob"));
+
+        Employee first = employee("Robert");
+        first.setId(saved.getId());
+        first.setVersion(0L);
+        assertEquals(Long.valueOf(1), employeeService.updateEmployee(first).getVersion());
+
+        Employee second = employee("Rob");
+        second.setId(saved.getId());
+        second.setVersion(0L);
+        try {
+            employeeService.updateEmployee(second);
+            throw new AssertionError("Expected VersionConflictException");
+        } catch (VersionConflictException ex) {
+            assertEquals("Robert", employeeRepo.findById(saved.getId())
+                                               .get().getFullName());
+        }
+    }
+
+    @Test(expected = PreconditionFailedException.class)
+    public void patchEmployee_wrongExpectedVersionFails() {
+        Employee saved = employeeService.saveEmployee(employee("Bob"));
+
+        employeeService.patchEmployee(saved.getId(),
+                new EmployeePatch().set(EmployeePatch.FULL_NAME, "Robert"), 5L);
+    }
+
+    @Test
+    public void patchEmployee_setsAndUnsetsFieldsAndMovesCounters() {
+        Employee bob = employee("Bob");
+        bob.setCurrentTask(new Task());
+        bob.getCurrentTask().setTitle("Write tests");
+        Employee saved = employeeService.saveEmployee(bob);
+
+        Employee patched = employeeService.patchEmployee(saved.getId(),
+                new EmployeePatch().set(EmployeePatch.CURRENT_TASK, null));
+
+        assertNull(patched.getCurrentTask());
+        assertEquals(Long.valueOf(1), patched.getVersion());
+        assertEquals(0, departmentService.findDepartment(department.getId())
+                                         .getStats().getWithTask());
+    }
+
+    @Test
+    public void patchEmployee_mergesTaskFields() {
+        Employee bob = employee("Bob");
+        bob.setCurrentTask(new Task());
+        bob.getCurrentTask().setTitle("Write tests");
+        bob.getCurrentTask().setDescription("For the store");
+        Employee saved = employeeService.saveEmployee(bob);
+
+        Employee patched = employeeService.patchEmployee(saved.getId(),
+                new EmployeePatch().set(EmployeePatch.CURRENT_TASK_TITLE,
+                                        "Run tests"));
+
+        assertEquals("Run tests", patched.getCurrentTask().getTitle());
+        assertEquals("For the store",
+                     patched.getCurrentTask().getDescription());
+        assertEquals("For the store", employeeRepo.findById(saved.getId())
+                             .get().getCurrentTask().getDescription());
+    }
+
+    @Test
+    public void findDepartmentEmployeesPage_pagesInIdOrder() {
+        for (String name : Arrays.asList("A", "B", "C")) {
+            employeeService.saveEmployee(employee(name));
+        }
+        Employee elsewhere = employee("D");
+        elsewhere.setDepartmentId(null);
+        employeeRepo.save(elsewhere);
+
+        Slice<Employee> first = employeeService.findDepartmentEmployeesPage(
+                                            department.getId(), null, 2);
+        assertEquals(2, first.getNumberOfElements());
+        assertTrue(first.hasNext());
+
+        Slice<Employee> second = employeeService.findDepartmentEmployeesPage(
+                department.getId(), first.getContent().get(1).getId(), 2);
+        assertEquals(1, second.getNumberOfElements());
+        assertFalse(second.hasNext());
+    }
+
+    @Test
+    public void searchEmployees_matchesAndProjects() {
+        employeeService.saveEmployee(employee("Bob Smith"));
+        employeeService.saveEmployee(employee("bob jones"));
+
+        Slice<Employee> found = employeeService.searchEmployees(
+                new EmployeeSearch("BOB SMITH", NameMatch.IGNORE_CASE, null,
+                        Collections.singletonList(EmployeePatch.FULL_NAME)),
+                null, null);
+
+        assertEquals(1, found.getNumberOfElements());
+        assertEquals("Bob Smith", found.getContent().get(0).getFullName());
+        assertNull(found.getContent().get(0).getDepartmentId());
+    }
+
+    @Test
+    public void summarizeDepartment_countsEmployees() {
+        Employee busy = employee("Bob");
+        busy.setCurrentTask(new Task());
+        employeeService.saveEmployee(busy);
+        employeeService.saveEmployee(employee("Alice"));
+
+        DepartmentSummary summary =
+                departmentService.summarizeDepartment(department.getId());
+
+        assertEquals("Engineering", summary.getName());
+        assertEquals(2, summary.getHeadcount());
+        assertEquals(1, summary.getWithTask());
+        assertEquals(1, summary.getWithoutTask());
+    }
+
+    @Test(expected = DuplicateDepartmentException.class)
+    public void saveDepartment_duplicateNameThrows() {
+        Department duplicate = new Department();
+        duplicate.setName("Engineering");
+        departmentService.saveDepartment(duplicate);
+    }
+
+    @Test
+    public void updateDepartment_keepsNameAndBumpsVersion() {
+        Department update = new Department();
+        update.setId(department.getId());
+        update.setName("Engineering");
+
+        assertEquals(Long.valueOf(1),
+                     departmentService.updateDepartment(update, null).getVersion());
+        assertTrue(departmentService.findDepartment(department.getId())
+                                    .getStats() != null);
+    }
+
+    @Test
+    public void updateDepartment_returnsTheETagOfAFind() {
+        employeeService.saveEmployee(employee("Bob"));
+
+        Department update = new Department();
+        update.setId(department.getId());
+        update.setName("Engineering");
+        Department updated = departmentService.updateDepartment(update, null);
+        Department found = departmentService.findDepartment(department.getId());
+
+        assertEquals(1, updated.getStats().getHeadcount());
+        assertEquals(ETags.forVersion(found.getVersion(), found.getStats()),
+                     ETags.forVersion(updated.getVersion(), updated.getStats()));
+    }
+
+    private Employee employee(String fullName) {
+        Employee employee = new Employee();
+        employee.setFullName(fullName);
+        employee.setDepartmentId(department.getId());
+        return employee;
+    }
+}
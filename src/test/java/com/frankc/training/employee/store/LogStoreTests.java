@@ -0,0 +1,170 @@
+package com.frankc.training.employee.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.frankc.training.employee.entities.Employee;
+import com.frankc.training.employee.entities.Task;
+
+public class LogStoreTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+
+    private LogStore<Employee> store;
+
+    @Before
+    public void openStore() throws IOException {
+        file = folder.getRoot().toPath().resolve("employees.log");
+        store = open(0);
+    }
+
+    @After
+    public void closeStore() {
+        store.close();
+    }
+
+    @Test
+    public void put_isReadBackAfterReopen() {
+        Employee employee = employee("1", "Bob");
+        employee.setCurrentTask(new Task());
+        employee.getCurrentTask().setTitle("Write tests");
+        store.put(employee);
+        store.put(employee("2", "Alice"));
+
+        store.close();
+        store = open(0);
+
+        assertEquals(2, store.size());
+        assertEquals("Bob", store.get("1").getFullName());
+        assertEquals("Write tests", store.get("1").getCurrentTask().getTitle());
+        assertEquals(Arrays.asList("1", "2"), store.ids());
+    }
+
+    @Test
+    public void put_replacesPreviousDocument() {
+        store.put(employee("1", "Bob"));
+        store.put(employee("1", "Robert"));
+
+        store.close();
+        store = open(0);
+
+        assertEquals(1, store.size());
+        assertEquals("Robert", store.get("1").getFullName());
+    }
+
+    @Test
+    public void remove_returnsRemovedAndSurvivesReopen() {
+        store.put(employee("1", "Bob"));
+
+        assertEquals("Bob", store.remove("1").getFullName());
+        assertNull(store.remove("1"));
+
+        store.close();
+        store = open(0);
+
+        assertFalse(store.contains("1"));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void scan_returnsMatchesAfterIdInIdOrder() {
+        store.put(employee("3", "Carol"));
+        store.put(employee("1", "Bob"));
+        store.put(employee("2", "Bill"));
+        store.put(employee("4", "Dave"));
+
+        assertEquals(2, store.scan("1", e -> e.getFullName().length() == 4, -1).size());
+        assertEquals("3", store.scan("2", e -> true, 1).get(0).getId());
+    }
+
+    @Test
+    public void open_discardsTornRecord() throws IOException {
+        store.put(employee("1", "Bob"));
+        store.put(employee("2", "Alice"));
+        long end = store.logBytes();
+        store.close();
+
+        // Corrupt a byte of the second record, as a crash might
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0}), end - 1);
+        }
+
+        store = open(0);
+
+        assertTrue(store.contains("1"));
+        assertFalse(store.contains("2"));
+
+        // The log is writable again after the discarded record
+        store.put(employee("3", "Carol"));
+        store.close();
+        store = open(0);
+        assertEquals(Arrays.asList("1", "3"), store.ids());
+    }
+
+    @Test
+    public void compact_keepsOnlyLiveRecords() {
+        for (int i = 0; i < 100; ++i) {
+            store.put(employee("1", "Bob " + i));
+        }
+        store.put(employee("2", "Alice"));
+        store.remove("2");
+        long before = store.logBytes();
+
+        store.compact();
+
+        assertTrue(store.logBytes() < before);
+        assertEquals(store.liveBytes(), store.logBytes());
+        assertEquals("Bob 99", store.get("1").getFullName());
+
+        store.close();
+        store = open(0);
+        assertEquals(1, store.size());
+        assertEquals("Bob 99", store.get("1").getFullName());
+    }
+
+    @Test
+    public void put_compactsOnceMostlyGarbage() {
+        store.close();
+        store = open(1024);
+
+        for (int i = 0; i < 200; ++i) {
+            store.put(employee("1", "Bob " + i));
+        }
+
+        assertTrue(store.logBytes() < 2048);
+        assertEquals("Bob 199", store.get("1").getFullName());
+    }
+
+    private LogStore<Employee> open(long compactionMinBytes) {
+        return new LogStore<>(file, Employee.class, Employee::getId,
+                              new ObjectMapper(), false,
+                              compactionMinBytes == 0 ? Long.MAX_VALUE
+                                                      : compactionMinBytes);
+    }
+
+    private static Employee employee(String id, String fullName) {
+        Employee employee = new Employee();
+        employee.setId(id);
+        employee.setFullName(fullName);
+        return employee;
+    }
+}
@@ -0,0 +1,39 @@
+package com.frankc.training.employee.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class VirtualThreadsTests {
+
+    @Test
+    public void newExecutor_runsTasksOnNamedVirtualThreads() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+
+        ExecutorService executor = VirtualThreads.newExecutor("test-vt-");
+        try {
+            Future<Thread> thread = executor.submit(Thread::currentThread);
+            Method isVirtual = Thread.class.getMethod("isVirtual");
+
+            assertTrue((Boolean) isVirtual.invoke(thread.get(5, TimeUnit.SECONDS)));
+            assertEquals("test-vt-0", thread.get().getName());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void newExecutor_failsBeforeJava21() {
+        assumeFalse(VirtualThreads.isSupported());
+
+        VirtualThreads.newExecutor("test-vt-");
+    }
+}